@@ -0,0 +1,3 @@
+@echo off
+
+call "./build/install/jmm/bin/jmmc.bat" %*
@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.analysis.passes.Analysispasses;
+import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+/**
+ * Semantic analysis of the benchmark inputs: the symbol table, each analysis pass on its own and the whole stage.
+ */
+public class AnalysisBenchmark {
+
+    @Benchmark
+    public void symbolTable(CompilerInputs inputs, Blackhole blackhole) {
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(JmmSymbolTableBuilder.build(parserResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void analysispasses(CompilerInputs inputs, Blackhole blackhole) {
+        runPass(new Analysispasses(), inputs, blackhole);
+    }
+
+    @Benchmark
+    public void undeclaredVariable(CompilerInputs inputs, Blackhole blackhole) {
+        runPass(new UndeclaredVariable(), inputs, blackhole);
+    }
+
+    @Benchmark
+    public void semanticAnalysis(CompilerInputs inputs, Blackhole blackhole) {
+        var analysis = new JmmAnalysisImpl();
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(analysis.semanticAnalysis(parserResult));
+        }
+    }
+
+    private static void runPass(AnalysisPass pass, CompilerInputs inputs, Blackhole blackhole) {
+        // Uses the symbol tables of the semantics results, so only the pass itself is measured
+        for (var semanticsResult : inputs.semanticsResults) {
+            blackhole.consume(pass.analyze(semanticsResult.getRootNode(), semanticsResult.getSymbolTable()));
+        }
+    }
+}
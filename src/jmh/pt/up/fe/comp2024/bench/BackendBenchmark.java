@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+
+/**
+ * Jasmin code generation of the benchmark inputs.
+ */
+public class BackendBenchmark {
+
+    @Benchmark
+    public void toJasmin(CompilerInputs inputs, Blackhole blackhole) {
+        var backend = new JasminBackendImpl();
+        for (var ollirResult : inputs.ollirResults) {
+            blackhole.consume(backend.toJasmin(ollirResult));
+        }
+    }
+}
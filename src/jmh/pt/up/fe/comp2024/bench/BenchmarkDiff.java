@@ -0,0 +1,96 @@
+package pt.up.fe.comp2024.bench;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files (JSON format) and prints the change of each benchmark.
+ * <p>
+ * Usage: BenchmarkDiff BASELINE.json CURRENT.json [THRESHOLD_PERCENT]
+ * <p>
+ * Exits with status 1 if any benchmark got slower than the threshold (10% by default). Every benchmark of this
+ * module measures average time, so a higher score is slower.
+ */
+public class BenchmarkDiff {
+
+    private static final double DEFAULT_THRESHOLD = 10.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkDiff BASELINE.json CURRENT.json [THRESHOLD_PERCENT]");
+            System.exit(2);
+        }
+
+        var baseline = readScores(Path.of(args[0]));
+        var current = readScores(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+        int regressions = 0;
+        for (var entry : current.entrySet()) {
+            var name = entry.getKey();
+            var score = entry.getValue();
+            var baseScore = baseline.get(name);
+
+            if (baseScore == null) {
+                System.out.printf("  new    %-70s %12.3f%n", name, score);
+                continue;
+            }
+
+            double change = (score - baseScore) / baseScore * 100;
+            String mark = change > threshold ? "SLOWER" : change < -threshold ? "faster" : "";
+            if (change > threshold) {
+                regressions++;
+            }
+
+            System.out.printf("%-6s %-70s %12.3f -> %12.3f (%+6.1f%%)%n", mark, name, baseScore, score, change);
+        }
+
+        for (var name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("  gone   %s%n", name);
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the " + threshold + "% threshold");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the score of each benchmark, keyed by benchmark name and parameters
+     */
+    private static Map<String, Double> readScores(Path file) throws IOException {
+        var json = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonArray();
+        var scores = new TreeMap<String, Double>();
+
+        for (JsonElement element : json) {
+            var run = element.getAsJsonObject();
+            var name = run.get("benchmark").getAsString() + formatParams(run);
+            var score = run.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+            scores.put(name, score);
+        }
+
+        return scores;
+    }
+
+    private static String formatParams(JsonObject run) {
+        if (!run.has("params")) {
+            return "";
+        }
+
+        Map<String, String> params = new LinkedHashMap<>();
+        run.getAsJsonObject("params").entrySet()
+                .forEach(entry -> params.put(entry.getKey(), entry.getValue().getAsString()));
+        return params.toString();
+    }
+}
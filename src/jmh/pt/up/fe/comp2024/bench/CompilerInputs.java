@@ -0,0 +1,110 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.BatchCompiler;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.JmmProgramGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inputs of the compiler benchmarks, with the results of every stage computed once so each benchmark only measures
+ * its own stage.
+ * <p>
+ * The 'input' parameter selects the programs:
+ * <ul>
+ *     <li>"corpus": every .jmm file under the test folder (or the folder given with -Djmm.corpus). Files that fail
+ *     a stage are not used by the following stages</li>
+ *     <li>"synthetic-N": a single class with N methods of 50 statements each, from the {@link JmmProgramGenerator}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class CompilerInputs {
+
+    private static final String DEFAULT_CORPUS = "test/pt/up/fe/comp";
+    private static final long SYNTHETIC_SEED = 42;
+    private static final int SYNTHETIC_STATEMENTS = 50;
+
+    @Param({"corpus", "synthetic-100", "synthetic-1000"})
+    public String input;
+
+    public Map<String, String> config;
+    public List<String> codes;
+    public List<JmmParserResult> parserResults;
+    public List<JmmSemanticsResult> semanticsResults;
+    public List<OllirResult> ollirResults;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        config = CompilerConfig.getDefault();
+        codes = loadCodes(input);
+
+        var parser = new JmmParserImpl();
+        parserResults = new ArrayList<>();
+        for (var code : codes) {
+            var result = parser.parse(code, config);
+            if (!ReportUtils.anyError(result.getReports())) {
+                parserResults.add(result);
+            }
+        }
+
+        var analysis = new JmmAnalysisImpl();
+        semanticsResults = new ArrayList<>();
+        for (var parserResult : parserResults) {
+            var result = analysis.semanticAnalysis(parserResult);
+            if (!ReportUtils.anyError(result.getReports())) {
+                semanticsResults.add(result);
+            }
+        }
+
+        var optimization = new JmmOptimizationImpl();
+        var backend = new JasminBackendImpl();
+        ollirResults = new ArrayList<>();
+        for (var semanticsResult : semanticsResults) {
+            try {
+                var result = optimization.toOllir(semanticsResult);
+                if (!ReportUtils.anyError(result.getReports())
+                        && !ReportUtils.anyError(backend.toJasmin(result).getReports())) {
+                    ollirResults.add(result);
+                }
+            } catch (RuntimeException e) {
+                // Constructs not supported by the code generators yet, not used by the backend benchmarks
+            }
+        }
+    }
+
+    private static List<String> loadCodes(String input) {
+        if (input.equals("corpus")) {
+            var corpus = System.getProperty("jmm.corpus", DEFAULT_CORPUS);
+            var codes = new ArrayList<String>();
+            BatchCompiler.resolveInputs(corpus).forEach(file -> codes.add(SpecsIo.read(file)));
+            return codes;
+        }
+
+        if (input.startsWith("synthetic-")) {
+            int methods = Integer.parseInt(input.substring("synthetic-".length()));
+            return List.of(new JmmProgramGenerator(SYNTHETIC_SEED)
+                    .fields(methods / 2)
+                    .methods(methods)
+                    .statements(SYNTHETIC_STATEMENTS)
+                    .generate());
+        }
+
+        throw new RuntimeException("Unknown benchmark input '" + input + "'");
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.dataflow.AvailableExpressions;
+import pt.up.fe.comp2024.optimization.dataflow.DefUse;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.LiveVariables;
+import pt.up.fe.comp2024.optimization.dataflow.ReachingDefinitions;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import utils.JmmProgramGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyses of the dataflow framework on the OLLIR of a few large generated methods, with nested loops and branches.
+ */
+public class DataflowBenchmark {
+
+    private static final long SEED = 42;
+    private static final int METHODS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Methods {
+
+        @Param({"500", "5000"})
+        public int statements;
+
+        public List<FlowGraph> graphs;
+        public List<DefUse> defUses;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            var config = CompilerConfig.getDefault();
+            var code = new JmmProgramGenerator(SEED)
+                    .methods(METHODS)
+                    .statements(statements)
+                    .nestingDepth(3)
+                    .generate();
+
+            var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(new JmmParserImpl().parse(code, config));
+            var classUnit = new JmmOptimizationImpl().toOllir(semanticsResult).getOllirClass();
+            classUnit.buildCFGs();
+
+            graphs = new ArrayList<>();
+            defUses = new ArrayList<>();
+            for (var method : classUnit.getMethods()) {
+                var graph = new FlowGraph(method);
+                graphs.add(graph);
+                defUses.add(new DefUse(graph));
+            }
+        }
+    }
+
+    @Benchmark
+    public void flowGraph(Methods methods, Blackhole blackhole) {
+        for (var graph : methods.graphs) {
+            var rebuilt = new FlowGraph(graph.getMethod());
+            blackhole.consume(new DefUse(rebuilt));
+        }
+    }
+
+    @Benchmark
+    public void liveVariables(Methods methods, Blackhole blackhole) {
+        for (int i = 0; i < methods.graphs.size(); i++) {
+            blackhole.consume(new LiveVariables(methods.graphs.get(i), methods.defUses.get(i)).solve());
+        }
+    }
+
+    @Benchmark
+    public void reachingDefinitions(Methods methods, Blackhole blackhole) {
+        for (int i = 0; i < methods.graphs.size(); i++) {
+            blackhole.consume(new ReachingDefinitions(methods.graphs.get(i), methods.defUses.get(i)).solve());
+        }
+    }
+
+    @Benchmark
+    public void availableExpressions(Methods methods, Blackhole blackhole) {
+        for (int i = 0; i < methods.graphs.size(); i++) {
+            blackhole.consume(new AvailableExpressions(methods.graphs.get(i), methods.defUses.get(i)).solve());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindDispatch;
+
+import java.util.function.BiFunction;
+
+/**
+ * Visitor dispatch over the trees of the benchmark inputs: the string-keyed lookup of {@link AJmmVisitor} against the
+ * per-kind cache of {@link KindDispatch}. Both visitors register a visit for every {@link Kind} and only count nodes,
+ * so the difference is the cost of finding the visit method.
+ */
+public class DispatchBenchmark {
+
+    @Benchmark
+    public void stringMap(CompilerInputs inputs, Blackhole blackhole) {
+        var visitor = new CountingVisitor();
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(visitor.visit(parserResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void kindDispatch(CompilerInputs inputs, Blackhole blackhole) {
+        var visitor = new DispatchingVisitor();
+        for (var parserResult : inputs.parserResults) {
+            blackhole.consume(visitor.visit(parserResult.getRootNode()));
+        }
+    }
+
+    private static class CountingVisitor extends AJmmVisitor<Void, Integer> {
+
+        @Override
+        protected void buildVisitor() {
+            for (var kind : Kind.values()) {
+                addVisit(kind, this::count);
+            }
+            setDefaultVisit(this::count);
+        }
+
+        private Integer count(JmmNode node, Void unused) {
+            int count = 1;
+            for (var child : node.getChildren()) {
+                count += visit(child);
+            }
+            return count;
+        }
+    }
+
+    private static class DispatchingVisitor extends CountingVisitor {
+
+        private final KindDispatch<Void, Integer> dispatch = new KindDispatch<>(super::getVisit);
+
+        @Override
+        protected BiFunction<JmmNode, Void, Integer> getVisit(JmmNode node) {
+            return dispatch.get(node);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import utils.JmmProgramGenerator;
+
+import java.util.Map;
+
+/**
+ * Parsing and semantic analysis of generated programs of growing size, to check that the front end scales close to
+ * linearly: the score divided by the number of statements ({@value #METHODS} methods of 'statements' each) should stay
+ * about the same for every size. A quadratic front end would be around 8x slower per statement on the largest input
+ * than on the smallest.
+ */
+public class FrontEndScalingBenchmark {
+
+    private static final long SEED = 2024;
+    private static final int METHODS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Program {
+
+        @Param({"250", "500", "1000", "2000"})
+        public int statements;
+
+        public Map<String, String> config;
+        public String code;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            config = CompilerConfig.getDefault();
+            code = new JmmProgramGenerator(SEED).methods(METHODS).statements(statements).generate();
+        }
+    }
+
+    @Benchmark
+    public JmmSemanticsResult frontEnd(Program program) {
+        var parserResult = new JmmParserImpl().parse(program.code, program.config);
+        return new JmmAnalysisImpl().semanticAnalysis(parserResult);
+    }
+}
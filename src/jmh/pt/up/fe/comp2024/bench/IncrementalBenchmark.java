@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.incremental.IncrementalFrontEnd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checking the benchmark inputs again after an edit inside the last method with a return statement: the incremental
+ * front end against a new one, which parses and analyses the whole file.
+ */
+public class IncrementalBenchmark {
+
+    @State(Scope.Thread)
+    public static class Edits {
+
+        public List<IncrementalFrontEnd> frontEnds;
+        public List<String[]> versions;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void setup(CompilerInputs inputs) {
+            frontEnds = new ArrayList<>();
+            versions = new ArrayList<>();
+
+            for (var code : inputs.codes) {
+                int returnIndex = code.lastIndexOf("return ");
+                if (returnIndex < 0) {
+                    continue;
+                }
+
+                var edited = code.substring(0, returnIndex) + "return  " + code.substring(returnIndex + 7);
+                var frontEnd = new IncrementalFrontEnd(inputs.config);
+                frontEnd.update(code);
+                frontEnds.add(frontEnd);
+                versions.add(new String[]{code, edited});
+            }
+        }
+    }
+
+    @Benchmark
+    public void incremental(Edits edits, Blackhole blackhole) {
+        // Alternates between the two versions, each call is an edit
+        int version = ++edits.next % 2;
+        for (int i = 0; i < edits.frontEnds.size(); i++) {
+            blackhole.consume(edits.frontEnds.get(i).update(edits.versions.get(i)[version]));
+        }
+    }
+
+    @Benchmark
+    public void full(Edits edits, CompilerInputs inputs, Blackhole blackhole) {
+        int version = ++edits.next % 2;
+        for (var versions : edits.versions) {
+            blackhole.consume(new IncrementalFrontEnd(inputs.config).update(versions[version]));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OLLIR stage of the benchmark inputs: AST optimizations, OLLIR generation and OLLIR optimizations.
+ */
+public class OptimizationBenchmark {
+
+    /**
+     * Inputs of the optimizations with -o set. The optimizations change the AST and the OLLIR in place, so they are
+     * rebuilt before every invocation.
+     */
+    @State(Scope.Thread)
+    public static class Optimizable {
+
+        public List<JmmSemanticsResult> semanticsResults;
+        public List<OllirResult> ollirResults;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerInputs inputs) {
+            Map<String, String> config = new HashMap<>(inputs.config);
+            config.put("optimize", "true");
+
+            var parser = new JmmParserImpl();
+            var analysis = new JmmAnalysisImpl();
+            semanticsResults = new ArrayList<>();
+            for (var code : inputs.codes) {
+                var parserResult = parser.parse(code, config);
+                if (ReportUtils.anyError(parserResult.getReports())) {
+                    continue;
+                }
+                var result = analysis.semanticAnalysis(parserResult);
+                if (!ReportUtils.anyError(result.getReports())) {
+                    semanticsResults.add(result);
+                }
+            }
+
+            ollirResults = new ArrayList<>();
+            for (var ollirResult : inputs.ollirResults) {
+                ollirResults.add(new OllirResult(ollirResult.getOllirCode(), config));
+            }
+        }
+    }
+
+    @Benchmark
+    public void optimizeAst(Optimizable inputs, Blackhole blackhole) {
+        var optimization = new JmmOptimizationImpl();
+        for (var semanticsResult : inputs.semanticsResults) {
+            blackhole.consume(optimization.optimize(semanticsResult));
+        }
+    }
+
+    @Benchmark
+    public void toOllir(CompilerInputs inputs, Blackhole blackhole) {
+        var optimization = new JmmOptimizationImpl();
+        for (var semanticsResult : inputs.semanticsResults) {
+            blackhole.consume(optimization.toOllir(semanticsResult));
+        }
+    }
+
+    @Benchmark
+    public void optimizeOllir(Optimizable inputs, Blackhole blackhole) {
+        var optimization = new JmmOptimizationImpl();
+        for (var ollirResult : inputs.ollirResults) {
+            blackhole.consume(optimization.optimize(ollirResult));
+        }
+    }
+}
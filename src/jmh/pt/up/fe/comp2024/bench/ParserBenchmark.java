@@ -0,0 +1,35 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.PredictionCache;
+
+/**
+ * Parsing of the benchmark inputs, from source code to AST: the two-stage SLL/LL parser, a single LL parse, and the
+ * two-stage parser starting from empty DFA caches.
+ */
+public class ParserBenchmark {
+
+    @Benchmark
+    public void parse(CompilerInputs inputs, Blackhole blackhole) {
+        parse(new JmmParserImpl(), inputs, blackhole);
+    }
+
+    @Benchmark
+    public void parseLl(CompilerInputs inputs, Blackhole blackhole) {
+        parse(new JmmParserImpl(false), inputs, blackhole);
+    }
+
+    @Benchmark
+    public void parseColdCache(CompilerInputs inputs, Blackhole blackhole) {
+        PredictionCache.clear();
+        parse(new JmmParserImpl(), inputs, blackhole);
+    }
+
+    private static void parse(JmmParserImpl parser, CompilerInputs inputs, Blackhole blackhole) {
+        for (var code : inputs.codes) {
+            blackhole.consume(parser.parse(code, inputs.config));
+        }
+    }
+}
@@ -72,9 +72,9 @@ varDecl
     : type name=(ID | MAIN) SEMI #Var
     ;
 
-type locals [boolean isArray = false]
+type locals [boolean isArray = false, boolean isVarargs = false]
     : name=INT (LSQUARE RSQUARE {$isArray = true;})
-    | name=INT DOTS
+    | name=INT DOTS {$isArray = true; $isVarargs = true;}
     | name=BOOL
     | name=INT
     | name=STRING
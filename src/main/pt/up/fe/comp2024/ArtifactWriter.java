@@ -0,0 +1,197 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the artifacts selected with '-e' (AST, OLLIR, Jasmin, class files) of a compilation.
+ * <p>
+ * Artifacts go to files in the folder given with '-d', or to the given writer when there is no output folder. Text is
+ * streamed through buffered writers, the AST in particular is written node by node instead of being built as a
+ * single String.
+ */
+public class ArtifactWriter {
+
+    public enum Artifact {
+        AST(".ast.txt"),
+        OLLIR(".ollir"),
+        JASMIN(".j"),
+        CLASS(".class");
+
+        private final String extension;
+
+        Artifact(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final String AST_INDENT = "   ";
+
+    private final Set<Artifact> artifacts;
+    private final File outputDir;
+
+    public ArtifactWriter(Set<Artifact> artifacts, File outputDir) {
+        this.artifacts = artifacts.isEmpty() ? EnumSet.noneOf(Artifact.class) : EnumSet.copyOf(artifacts);
+        this.outputDir = outputDir;
+
+        if (this.artifacts.contains(Artifact.CLASS) && outputDir == null) {
+            throw new RuntimeException("Emitting class files requires an output folder, use '-d=<DIR>'");
+        }
+    }
+
+    /**
+     * Builds a writer from the '-q', '-e' and '-d' options.
+     *
+     * @param config
+     * @param defaults artifacts to write when '-e' is not given
+     * @return
+     */
+    public static ArtifactWriter fromConfig(Map<String, String> config, Set<Artifact> defaults) {
+        Set<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+
+        if (!CompilerConfig.getQuiet(config)) {
+            var emit = CompilerConfig.getEmit(config);
+            if (emit.isPresent()) {
+                Arrays.stream(emit.get().split(","))
+                        .map(String::strip)
+                        .filter(name -> !name.isEmpty())
+                        .forEach(name -> artifacts.add(parseArtifact(name)));
+            } else {
+                artifacts.addAll(defaults);
+            }
+        }
+
+        return new ArtifactWriter(artifacts, CompilerConfig.getOutputDir(config).orElse(null));
+    }
+
+    private static Artifact parseArtifact(String name) {
+        try {
+            return Artifact.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown artifact '" + name + "' in option '-e', expected any of "
+                    + Arrays.toString(Artifact.values()).toLowerCase());
+        }
+    }
+
+    public boolean isEmpty() {
+        return artifacts.isEmpty();
+    }
+
+    /**
+     * @return true if artifacts are written to an output folder instead of a writer
+     */
+    public boolean writesToFiles() {
+        return outputDir != null;
+    }
+
+    /**
+     * Writes the selected artifacts that are available in the given result. Artifacts of stages that were not reached
+     * are skipped.
+     *
+     * @param result
+     * @param baseName name used for the output files when the class name is not known
+     * @param out      destination when there is no output folder
+     */
+    public void write(JmmPipeline.Result result, String baseName, Writer out) throws IOException {
+        if (artifacts.isEmpty()) {
+            return;
+        }
+
+        var name = getClassName(result, baseName);
+
+        if (artifacts.contains(Artifact.AST) && result.getParserResult() != null
+                && result.getParserResult().getRootNode() != null) {
+            var root = result.getParserResult().getRootNode();
+            writeArtifact(Artifact.AST, name, out, writer -> writeTree(root, "", writer));
+        }
+
+        if (artifacts.contains(Artifact.OLLIR) && result.getOllirCode() != null) {
+            writeArtifact(Artifact.OLLIR, name, out, writer -> writer.write(result.getOllirCode()));
+        }
+
+        var jasminCode = result.getJasminResult() != null ? result.getJasminResult().getJasminCode() : null;
+        if (jasminCode == null) {
+            return;
+        }
+
+        if (artifacts.contains(Artifact.JASMIN)) {
+            writeArtifact(Artifact.JASMIN, name, out, writer -> writer.write(jasminCode));
+        }
+
+        if (artifacts.contains(Artifact.CLASS)) {
+            if (artifacts.contains(Artifact.JASMIN)) {
+                JasminUtils.assemble(new File(outputDir, name + Artifact.JASMIN.extension), outputDir);
+                return;
+            }
+
+            // Each unit gets its own folder, units with the same class name can be assembled at the same time
+            var tempDir = Files.createTempDirectory("jasmin").toFile();
+            try {
+                var jasminFile = new File(tempDir, name + Artifact.JASMIN.extension);
+                try (var writer = Files.newBufferedWriter(jasminFile.toPath(), StandardCharsets.UTF_8)) {
+                    writer.write(jasminCode);
+                }
+
+                JasminUtils.assemble(jasminFile, outputDir);
+            } finally {
+                SpecsIo.deleteFolderContents(tempDir);
+                tempDir.delete();
+            }
+        }
+    }
+
+    private String getClassName(JmmPipeline.Result result, String baseName) {
+        if (result.getJasminResult() != null && result.getJasminResult().getClassName() != null) {
+            return result.getJasminResult().getClassName();
+        }
+
+        if (result.getSemanticsResult() != null && result.getSemanticsResult().getSymbolTable() != null) {
+            return result.getSemanticsResult().getSymbolTable().getClassName();
+        }
+
+        return baseName;
+    }
+
+    private interface WriterAction {
+        void write(Writer writer) throws IOException;
+    }
+
+    private void writeArtifact(Artifact artifact, String name, Writer out, WriterAction action) throws IOException {
+        if (outputDir == null) {
+            action.write(out);
+            out.write("\n");
+            return;
+        }
+
+        SpecsIo.mkdir(outputDir);
+        var file = new File(outputDir, name + artifact.extension);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            action.write(writer);
+        }
+    }
+
+    /**
+     * Same format as {@link JmmNode#toTree()}, without building the whole tree in memory.
+     */
+    private static void writeTree(JmmNode node, String prefix, Writer writer) throws IOException {
+        writer.write(prefix);
+        writer.write(node.toString());
+        writer.write("\n");
+
+        for (var child : node.getChildren()) {
+            writeTree(child, prefix + AST_INDENT, writer);
+        }
+    }
+}
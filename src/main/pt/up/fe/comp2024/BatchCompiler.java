@@ -0,0 +1,274 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.parser.PredictionCache;
+import pt.up.fe.comp2024.profiling.ProfileReport;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles several Java-- files in the same process, reusing one warmed-up {@link JmmPipeline}.
+ */
+public class BatchCompiler {
+
+    private static final String JMM_EXTENSION = ".jmm";
+
+    private final JmmPipeline pipeline;
+
+    // Stage instances keep per-unit state, so each worker thread of the parallel driver gets its own pipeline
+    private final ThreadLocal<JmmPipeline> workerPipeline;
+
+    public BatchCompiler() {
+        this.pipeline = new JmmPipeline();
+        this.workerPipeline = ThreadLocal.withInitial(JmmPipeline::new);
+    }
+
+    /**
+     * Resolves the batch input into a sorted list of files.
+     * <p>
+     * The input can be a folder (all .jmm files inside it, recursively), a glob pattern (e.g. 'test/**.jmm') or a
+     * file that lists one input file per line. Empty lines and lines starting with '#' in a list file are ignored.
+     *
+     * @param batchInput
+     * @return
+     */
+    public static List<File> resolveInputs(String batchInput) {
+        var inputPath = Paths.get(batchInput);
+
+        if (Files.isDirectory(inputPath)) {
+            return walk(inputPath, path -> path.toString().endsWith(JMM_EXTENSION));
+        }
+
+        if (isGlob(batchInput)) {
+            var matcher = FileSystems.getDefault().getPathMatcher("glob:" + batchInput);
+            return walk(getGlobRoot(batchInput), path -> matcher.matches(path.normalize()));
+        }
+
+        var listFile = inputPath.toFile();
+        if (!listFile.isFile()) {
+            throw new RuntimeException("Option '-b' expects a folder, a glob or a list file, got '" + batchInput + "'");
+        }
+
+        var baseFolder = listFile.getAbsoluteFile().getParentFile();
+        return SpecsIo.read(listFile).lines()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> {
+                    var file = new File(line);
+                    return file.isAbsolute() ? file : new File(baseFolder, line);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isGlob(String input) {
+        return input.chars().anyMatch(c -> c == '*' || c == '?' || c == '[' || c == '{');
+    }
+
+    private static Path getGlobRoot(String glob) {
+        // Longest prefix of folder names without glob characters
+        var parts = glob.replace('\\', '/').split("/");
+        var root = new StringBuilder(glob.startsWith("/") ? "/" : "");
+        for (int i = 0; i < parts.length - 1 && !isGlob(parts[i]); i++) {
+            root.append(parts[i]).append("/");
+        }
+        return root.length() == 0 ? Paths.get(".") : Paths.get(root.toString());
+    }
+
+    private static List<File> walk(Path root, Predicate<Path> filter) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list files in '" + root + "'", e);
+        }
+    }
+
+    /**
+     * Compiles every given file, printing per-file and aggregate timings.
+     * <p>
+     * With more than one job, units are compiled on a work-stealing pool, each worker thread with its own pipeline.
+     * Results are always printed in input order.
+     *
+     * @param inputs
+     * @param config
+     * @return the number of files that failed to compile
+     */
+    public int compileAll(List<File> inputs, Map<String, String> config) {
+        // Before the timings, so the first files do not pay for building the DFA of the parser
+        PredictionCache.warmUp();
+
+        Map<JmmPipeline.Step, Long> totals = new EnumMap<>(JmmPipeline.Step.class);
+        List<File> failed = new ArrayList<>();
+        long batchStart = System.nanoTime();
+
+        int jobs = Math.min(CompilerConfig.getJobs(config), Math.max(1, inputs.size()));
+        ForkJoinPool pool = jobs > 1 ? new ForkJoinPool(jobs) : null;
+
+        // Batch mode writes no artifacts unless asked to
+        var artifacts = ArtifactWriter.fromConfig(config, EnumSet.noneOf(ArtifactWriter.Artifact.class));
+        var out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        var profile = new ProfileReport();
+
+        try {
+            List<Supplier<UnitResult>> results = new ArrayList<>();
+            for (var input : inputs) {
+                if (pool == null) {
+                    results.add(() -> compileOne(input, pipeline, config, artifacts));
+                } else {
+                    var task = pool.submit(() -> compileOne(input, workerPipeline.get(), config, artifacts));
+                    results.add(task::join);
+                }
+            }
+
+            for (var resultSupplier : results) {
+                var unit = resultSupplier.get();
+
+                if (!unit.isOk()) {
+                    failed.add(unit.input);
+                }
+
+                if (unit.result != null) {
+                    for (var step : JmmPipeline.Step.values()) {
+                        totals.merge(step, unit.result.getNanos(step), Long::sum);
+                    }
+                    profile.add(unit.input, unit.result);
+                }
+
+                printFileSummary(unit);
+
+                // Artifacts printed to stdout are written in input order, files are written by the workers
+                if (unit.result != null && !artifacts.writesToFiles()) {
+                    writeArtifacts(artifacts, unit, out);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        long batchElapsed = System.nanoTime() - batchStart;
+
+        var summary = new StringBuilder();
+        summary.append("Compiled ").append(inputs.size() - failed.size()).append("/").append(inputs.size())
+                .append(" files in ").append(toMillis(batchElapsed)).append(" ms using ").append(jobs)
+                .append(jobs == 1 ? " job" : " jobs");
+        for (var step : JmmPipeline.Step.values()) {
+            summary.append(" | ").append(step.name().toLowerCase()).append(" ")
+                    .append(toMillis(totals.getOrDefault(step, 0L))).append(" ms");
+        }
+        System.out.println(summary);
+
+        CompilationCache.fromConfig(config).ifPresent(cache -> System.out.println(cache));
+
+        failed.forEach(file -> System.out.println("Failed: " + file));
+
+        profile.write(config);
+
+        return failed.size();
+    }
+
+    private static UnitResult compileOne(File input, JmmPipeline pipeline, Map<String, String> config,
+                                         ArtifactWriter artifacts) {
+        long start = System.nanoTime();
+        JmmPipeline.Result result = null;
+        Throwable exception = null;
+
+        try {
+            result = pipeline.compile(input, config);
+
+            if (artifacts.writesToFiles()) {
+                artifacts.write(result, SpecsIo.removeExtension(input.getName()), null);
+            }
+        } catch (Throwable e) {
+            // Errors such as a StackOverflowError on a deeply nested input only fail this file
+            exception = e;
+        }
+
+        return new UnitResult(input, result, exception, System.nanoTime() - start);
+    }
+
+    private static void writeArtifacts(ArtifactWriter artifacts, UnitResult unit, Writer out) {
+        if (artifacts.isEmpty()) {
+            return;
+        }
+
+        try {
+            artifacts.write(unit.result, SpecsIo.removeExtension(unit.input.getName()), out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write artifacts of '" + unit.input + "'", e);
+        }
+    }
+
+    private void printFileSummary(UnitResult unit) {
+        var input = unit.input;
+        var result = unit.result;
+        var exception = unit.exception;
+        var elapsed = unit.elapsed;
+
+        var line = new StringBuilder();
+        line.append(unit.isOk() ? "[ OK ] " : "[FAIL] ").append(input.getPath());
+        if (result != null && result.isFromCache()) {
+            line.append(" (cached)");
+        }
+
+        if (result != null) {
+            for (var step : JmmPipeline.Step.values()) {
+                line.append(" | ").append(step.name().toLowerCase()).append(" ")
+                        .append(toMillis(result.getNanos(step))).append(" ms");
+            }
+        }
+        line.append(" | total ").append(toMillis(elapsed)).append(" ms");
+
+        System.out.println(line);
+
+        if (exception != null) {
+            System.out.println("    " + exception);
+        } else if (result != null && result.hasErrors()) {
+            result.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.ERROR)
+                    .forEach(report -> System.out.println("    " + report));
+        }
+    }
+
+    private record UnitResult(File input, JmmPipeline.Result result, Throwable exception, long elapsed) {
+
+        /**
+         * @return true if the unit compiled without errors and its artifacts were written. An exception thrown while
+         * writing them leaves a result without errors
+         */
+        private boolean isOk() {
+            return exception == null && result != null && !result.hasErrors();
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -10,6 +10,21 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH = "batch";
+    private static final String JOBS = "jobs";
+    private static final String SERVER = "server";
+    private static final String PORT = "port";
+    private static final String CACHE = "cacheFolder";
+    private static final String CACHE_MAX_MB = "cacheMaxMb";
+    private static final String QUIET = "quiet";
+    private static final String EMIT = "emit";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String PROFILE = "profile";
+    private static final String LOG = "log";
+    private static final String ANALYSIS_JOBS = "analysisJobs";
+    private static final String WATCH = "watch";
+
+    private static final int DEFAULT_PORT = 7800;
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +33,19 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("j", CompilerConfig.JOBS);
+        shortToLong.put("s", CompilerConfig.SERVER);
+        shortToLong.put("p", CompilerConfig.PORT);
+        shortToLong.put("c", CompilerConfig.CACHE);
+        shortToLong.put("m", CompilerConfig.CACHE_MAX_MB);
+        shortToLong.put("q", CompilerConfig.QUIET);
+        shortToLong.put("e", CompilerConfig.EMIT);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("t", CompilerConfig.PROFILE);
+        shortToLong.put("l", CompilerConfig.LOG);
+        shortToLong.put("a", CompilerConfig.ANALYSIS_JOBS);
+        shortToLong.put("w", CompilerConfig.WATCH);
     }
 
 
@@ -32,6 +60,124 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * @return the batch input given with '-b', which can be a folder, a glob pattern or a file listing one input per
+     * line
+     */
+    public static Optional<String> getBatchInput(Map<String, String> config) {
+        return Optional.ofNullable(config.get(BATCH));
+    }
+
+    /**
+     * @return the maximum number of compilation units compiled at the same time in batch mode. '-j' without a value
+     * uses one job per available processor
+     */
+    public static int getJobs(Map<String, String> config) {
+        var jobsValue = config.getOrDefault(JOBS, "1");
+        if (jobsValue.equals("true")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        int jobs = Integer.parseInt(jobsValue);
+        if (jobs < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of jobs, got '" + jobs + "'");
+        }
+        return jobs;
+    }
+
+    /**
+     * @return the number of threads used to analyse the methods of a class. '-a' without a value uses one thread per
+     * available processor
+     */
+    public static int getAnalysisJobs(Map<String, String> config) {
+        var jobsValue = config.getOrDefault(ANALYSIS_JOBS, "1");
+        if (jobsValue.equals("true")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        int jobs = Integer.parseInt(jobsValue);
+        if (jobs < 1) {
+            throw new RuntimeException("Option '-a' expects a positive number of jobs, got '" + jobs + "'");
+        }
+        return jobs;
+    }
+
+    /**
+     * @return true if the input file should be checked again every time it changes, with the incremental front end
+     */
+    public static boolean getWatch(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WATCH, "false"));
+    }
+
+    /**
+     * @return true if the compiler should run as a long-lived compile server
+     */
+    public static boolean getServer(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(SERVER, "false"));
+    }
+
+    /**
+     * @return the loopback port used by the compile server and its client
+     */
+    public static int getPort(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(PORT, String.valueOf(DEFAULT_PORT)));
+    }
+
+    /**
+     * @return the folder of the on-disk compilation cache, or empty if caching is disabled
+     */
+    public static Optional<File> getCacheFolder(Map<String, String> config) {
+        return Optional.ofNullable(config.get(CACHE)).map(File::new);
+    }
+
+    /**
+     * @return the maximum size of the compilation cache, in megabytes
+     */
+    public static long getCacheMaxMb(Map<String, String> config, long defaultMb) {
+        long maxMb = Long.parseLong(config.getOrDefault(CACHE_MAX_MB, String.valueOf(defaultMb)));
+        if (maxMb < 1) {
+            throw new RuntimeException("Option '-m' expects a positive size in megabytes, got '" + maxMb + "'");
+        }
+        return maxMb;
+    }
+
+    /**
+     * @return true if no artifacts (AST, OLLIR, Jasmin) should be printed or written
+     */
+    public static boolean getQuiet(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(QUIET, "false"));
+    }
+
+    /**
+     * @return the comma-separated list of artifacts to write (ast, ollir, jasmin, class), if given
+     */
+    public static Optional<String> getEmit(Map<String, String> config) {
+        return Optional.ofNullable(config.get(EMIT));
+    }
+
+    /**
+     * @return the folder where artifacts are written, or empty if they should be printed to stdout
+     */
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        return Optional.ofNullable(config.get(OUTPUT_DIR)).map(File::new);
+    }
+
+    /**
+     * @return where to write the JSON profiling report given with '-t=<FILE>', "true" for '-t' alone (print to
+     * stdout), or empty if profiling is disabled
+     */
+    public static Optional<String> getProfile(Map<String, String> config) {
+        return Optional.ofNullable(config.get(PROFILE));
+    }
+
+    /**
+     * @return the log levels given with '-l', e.g. 'debug' or 'analysis=trace,optimization=debug', or empty to print
+     * only warnings and errors
+     */
+    public static Optional<String> getLog(Map<String, String> config) {
+        return Optional.ofNullable(config.get(LOG));
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -89,9 +235,20 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        // in batch and server mode the inputs are not given with '-i'
+        if (config.containsKey(BATCH) || getServer(config)) {
+            getOptimize(config);
+            getRegisterAllocation(config);
+            getJobs(config);
+            getAnalysisJobs(config);
+            getPort(config);
+            getCacheMaxMb(config, 1);
+            return config;
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<DIR|GLOB|LIST_FILE>'");
         }
 
         // make sure we save the absolute path of the input file
@@ -106,6 +263,9 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getAnalysisJobs(config);
+        getPort(config);
+        getCacheMaxMb(config, 1);
 
         return config;
     }
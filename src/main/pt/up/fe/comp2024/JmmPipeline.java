@@ -0,0 +1,307 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.OllirPrinter;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Runs a compilation unit through every stage of the compiler.
+ * <p>
+ * The stage instances are kept between calls, so the same pipeline can compile many units in a row without paying
+ * class loading and warm-up costs again. One pipeline should only be used by one thread at a time.
+ * <p>
+ * When a cache folder is configured, results are looked up in the {@link CompilationCache} before running any stage.
+ * When profiling is enabled with '-t', each stage is measured by a {@link CompilerProfiler}.
+ */
+public class JmmPipeline {
+
+    public enum Step {
+        PARSE,
+        ANALYSIS,
+        OLLIR,
+        JASMIN
+    }
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl sema;
+    private final JmmOptimizationImpl ollirGen;
+    private final JasminBackendImpl jasminGen;
+
+    public JmmPipeline() {
+        parser = new JmmParserImpl();
+        sema = new JmmAnalysisImpl();
+        ollirGen = new JmmOptimizationImpl();
+        jasminGen = new JasminBackendImpl();
+    }
+
+    /**
+     * Compiles the given code. Stops at the first stage that reports an error.
+     *
+     * @param code   Java-- source code
+     * @param config compiler options
+     * @return the results of every stage that was executed
+     */
+    public Result compile(String code, Map<String, String> config) {
+        var cache = CompilationCache.fromConfig(config);
+        if (cache.isEmpty()) {
+            return compileUncached(parser -> parser.parse(code, config), config);
+        }
+
+        var key = cache.get().key(code, config);
+        var cached = cache.get().get(key);
+        if (cached.isPresent()) {
+            return Result.fromCache(cached.get(), config);
+        }
+
+        var result = compileUncached(parser -> parser.parse(code, config), config);
+        cache.get().put(key, result.toCacheEntry());
+
+        return result;
+    }
+
+    /**
+     * Compiles the given source file. Without a compilation cache, which needs the code to build its key, large files
+     * are parsed from a memory-mapped buffer instead of being read into a String.
+     *
+     * @param file   Java-- source file
+     * @param config compiler options
+     * @return the results of every stage that was executed
+     */
+    public Result compile(File file, Map<String, String> config) {
+        if (CompilationCache.fromConfig(config).isPresent()) {
+            return compile(SpecsIo.read(file), config);
+        }
+
+        return compileUncached(parser -> parser.parse(file, config), config);
+    }
+
+    private Result compileUncached(Function<JmmParserImpl, JmmParserResult> parse, Map<String, String> config) {
+        var profiler = new CompilerProfiler(CompilerConfig.getProfile(config).isPresent());
+        var result = new Result();
+        result.profiler = profiler;
+
+        profiler.install();
+        try {
+            runStages(parse, config, result, profiler);
+        } finally {
+            profiler.uninstall();
+        }
+
+        return result;
+    }
+
+    private void runStages(Function<JmmParserImpl, JmmParserResult> parse, Map<String, String> config, Result result,
+                           CompilerProfiler profiler) {
+        // Parsing stage
+        try (var span = profiler.start("parse")) {
+            result.parserResult = parse.apply(parser);
+            result.addTime(Step.PARSE, span);
+        }
+        if (result.failed(result.parserResult.getReports())) {
+            return;
+        }
+        if (profiler.isEnabled()) {
+            profiler.count("astNodes", countNodes(result.parserResult.getRootNode()));
+        }
+
+        // Semantic Analysis stage
+        try (var span = profiler.start("analysis")) {
+            result.semanticsResult = sema.semanticAnalysis(result.parserResult);
+            result.addTime(Step.ANALYSIS, span);
+        }
+        if (result.failed(result.semanticsResult.getReports())) {
+            return;
+        }
+
+        // Optimization stage
+        try (var span = profiler.start("ollir")) {
+            JmmSemanticsResult semanticsResult;
+            try (var ignored = profiler.start("ollir.optimizeAst")) {
+                semanticsResult = ollirGen.optimize(result.semanticsResult);
+            }
+            OllirResult ollirResult;
+            try (var ignored = profiler.start("ollir.toOllir")) {
+                ollirResult = ollirGen.toOllir(semanticsResult);
+            }
+            try (var ignored = profiler.start("ollir.optimize")) {
+                result.ollirResult = ollirGen.optimize(ollirResult);
+            }
+            // The optimizations edit the OLLIR class in place, its code is printed again to match the Jasmin code
+            if (CompilerConfig.getOptimize(config)) {
+                try (var ignored = profiler.start("ollir.print")) {
+                    result.ollirCode = OllirPrinter.print(result.ollirResult.getOllirClass());
+                }
+            }
+            result.addTime(Step.OLLIR, span);
+        }
+        if (result.failed(result.ollirResult.getReports())) {
+            return;
+        }
+        if (profiler.isEnabled()) {
+            profiler.count("ollirInstructions", result.ollirResult.getOllirClass().getMethods().stream()
+                    .mapToLong(method -> method.getInstructions().size())
+                    .sum());
+        }
+
+        // Code generation stage
+        try (var span = profiler.start("jasmin")) {
+            result.jasminResult = jasminGen.toJasmin(result.ollirResult);
+            result.addTime(Step.JASMIN, span);
+        }
+        if (result.failed(result.jasminResult.getReports())) {
+            return;
+        }
+        if (profiler.isEnabled()) {
+            profiler.count("jasminLines", result.jasminResult.getJasminCode().lines().count());
+        }
+    }
+
+    private static long countNodes(JmmNode root) {
+        long count = 0;
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            count++;
+            node.getChildren().forEach(pending::push);
+        }
+        return count;
+    }
+
+    public static class Result {
+
+        private JmmParserResult parserResult;
+        private JmmSemanticsResult semanticsResult;
+        private OllirResult ollirResult;
+        private JasminResult jasminResult;
+        private List<Report> reports = new ArrayList<>();
+        private final Map<Step, Long> times = new EnumMap<>(Step.class);
+        private boolean hasErrors = false;
+        private boolean fromCache = false;
+        private String ollirCode;
+        private CompilerProfiler profiler;
+
+        private static Result fromCache(CompilationCache.Entry entry, Map<String, String> config) {
+            var result = new Result();
+            result.fromCache = true;
+            result.ollirCode = entry.getOllirCode();
+            result.reports = entry.getReports();
+            result.hasErrors = ReportUtils.anyError(result.reports);
+            if (entry.getJasminCode() != null) {
+                result.jasminResult = new JasminResult(entry.getClassName(), entry.getJasminCode(), result.reports,
+                        config);
+            }
+            return result;
+        }
+
+        private CompilationCache.Entry toCacheEntry() {
+            String className = null;
+            if (jasminResult != null) {
+                className = jasminResult.getClassName();
+            } else if (semanticsResult != null && semanticsResult.getSymbolTable() != null) {
+                className = semanticsResult.getSymbolTable().getClassName();
+            }
+
+            var jasminCode = jasminResult != null ? jasminResult.getJasminCode() : null;
+            return new CompilationCache.Entry(className, getOllirCode(), jasminCode, reports);
+        }
+
+        private void addTime(Step step, CompilerProfiler.Span span) {
+            span.close();
+            times.put(step, span.getWallNanos());
+        }
+
+        private boolean failed(List<Report> stageReports) {
+            // Each stage result already carries the reports of the previous stages
+            reports = stageReports;
+            hasErrors = ReportUtils.anyError(stageReports);
+            return hasErrors;
+        }
+
+        /**
+         * @return true if this result was read from the compilation cache. In that case only the OLLIR code, the
+         * Jasmin result and the reports are available
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        /**
+         * @return the generated OLLIR code, or null if that stage was not reached. With optimizations on, this is the
+         * optimized code, printed from the OLLIR class, and not the code of {@link #getOllirResult()}
+         */
+        public String getOllirCode() {
+            if (ollirCode == null && ollirResult != null) {
+                return ollirResult.getOllirCode();
+            }
+            return ollirCode;
+        }
+
+        public JmmParserResult getParserResult() {
+            return parserResult;
+        }
+
+        public JmmSemanticsResult getSemanticsResult() {
+            return semanticsResult;
+        }
+
+        public OllirResult getOllirResult() {
+            return ollirResult;
+        }
+
+        public JasminResult getJasminResult() {
+            return jasminResult;
+        }
+
+        /**
+         * @return the reports of the last stage that was executed, which include the reports of the previous stages
+         */
+        public List<Report> getReports() {
+            return reports;
+        }
+
+        public boolean hasErrors() {
+            return hasErrors;
+        }
+
+        /**
+         * @return the time spent on the given step, in nanoseconds, or 0 if the step was not executed
+         */
+        public long getNanos(Step step) {
+            return times.getOrDefault(step, 0L);
+        }
+
+        /**
+         * @return the profile of this compilation, or empty if it was read from the cache. Only the stage times are
+         * recorded when profiling was not enabled with '-t'
+         */
+        public Optional<CompilerProfiler> getProfiler() {
+            return Optional.ofNullable(profiler);
+        }
+
+        public long getTotalNanos() {
+            return times.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
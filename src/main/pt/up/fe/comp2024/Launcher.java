@@ -1,17 +1,19 @@
 package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.daemon.CompileServer;
+import pt.up.fe.comp2024.incremental.IncrementalFrontEnd;
+import pt.up.fe.comp2024.profiling.ProfileReport;
+import pt.up.fe.comp2024.utils.CompilerLogger;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
 import java.util.Map;
 
 public class Launcher {
@@ -20,41 +22,58 @@ public class Launcher {
         SpecsSystem.programStandardInit();
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
+        CompilerConfig.getLog(config).ifPresent(CompilerLogger::configure);
+
+        if (CompilerConfig.getServer(config)) {
+            try {
+                new CompileServer(config).run();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not run compile server", e);
+            }
+            return;
+        }
+
+        var batchInput = CompilerConfig.getBatchInput(config);
+        if (batchInput.isPresent()) {
+            var inputs = BatchCompiler.resolveInputs(batchInput.get());
+            int failed = new BatchCompiler().compileAll(inputs, config);
+            if (failed > 0) {
+                throw new RuntimeException("Batch compilation failed for " + failed + " of " + inputs.size() + " files");
+            }
+            return;
+        }
 
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
+        if (CompilerConfig.getWatch(config)) {
+            new IncrementalFrontEnd(config).watch(inputFile, System.out);
+            return;
+        }
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        // By default, print the AST, the OLLIR code and the Jasmin code
+        var artifacts = ArtifactWriter.fromConfig(config,
+                EnumSet.of(ArtifactWriter.Artifact.AST, ArtifactWriter.Artifact.OLLIR, ArtifactWriter.Artifact.JASMIN));
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        // Run every stage, stopping at the first one with errors
+        JmmPipeline.Result result = new JmmPipeline().compile(inputFile, config);
 
-        // Print OLLIR code
-        System.out.println(ollirResult.getOllirCode());
+        // Write the artifacts of the stages that succeeded
+        var out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            artifacts.write(result, SpecsIo.removeExtension(inputFile.getName()), out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write compilation artifacts", e);
+        }
 
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        var profile = new ProfileReport();
+        profile.add(inputFile, result);
+        profile.write(config);
 
-        // Print Jasmin code
-        System.out.println(jasminResult.getJasminCode());
+        TestUtils.noErrors(result.getReports());
     }
 
 }
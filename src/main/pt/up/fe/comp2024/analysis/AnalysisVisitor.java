@@ -1,21 +1,40 @@
 package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.ExprTypeTable;
+import pt.up.fe.comp2024.ast.KindDispatch;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
- *
+ * Base class of the analysis passes that visit the AST.
+ * <p>
+ * A pass can run on its own with {@link #analyze(JmmNode, SymbolTable)}, or together with other passes in a single
+ * traversal of the tree with {@link FusedAnalysis}. In that case only the node kinds registered with addVisit are
+ * dispatched to the pass, and the expression types the pass computes are recorded with {@link #recordType}.
  */
 public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
 
+    // Filled by addVisit, which is called from the super constructor before the field initializers run
+    private Set<String> handledKinds;
+
+    // Resolves the visits registered in buildVisitor, which runs before this initializer
+    private final KindDispatch<SymbolTable, Void> dispatch = new KindDispatch<>(super::getVisit);
+
+    // Where the types computed by the pass are recorded, null when they are not kept
+    private ExprTypeTable exprTypes;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
@@ -30,10 +49,71 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return reports;
     }
 
+    /**
+     * Records the type the pass computed for an expression, for the stages after the analysis.
+     */
+    protected void recordType(JmmNode expr, Type type) {
+        if (exprTypes != null) {
+            exprTypes.put(expr, type);
+        }
+    }
+
+    /**
+     * Sets the table where the types computed by the pass are recorded, or null to not keep them.
+     */
+    public void setExprTypes(ExprTypeTable exprTypes) {
+        this.exprTypes = exprTypes;
+    }
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, SymbolTable, Void> method) {
+        if (handledKinds == null) {
+            handledKinds = new HashSet<>();
+        }
+        handledKinds.add(kind);
+        super.addVisit(kind, method);
+    }
+
+    @Override
+    protected BiFunction<JmmNode, SymbolTable, Void> getVisit(JmmNode node) {
+        return dispatch.get(node);
+    }
+
+    /**
+     * @return true if a visit method was registered for the node, or for one of the kinds in its hierarchy
+     */
+    public boolean handles(JmmNode node) {
+        if (handledKinds == null) {
+            return false;
+        }
+
+        for (var kind : node.getHierarchy()) {
+            if (handledKinds.contains(kind)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Visits a single node, without visiting its children.
+     */
+    public void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
+
+    /**
+     * Prepares the pass to analyse a new tree. Passes can be reused between compilations, so subclasses that keep
+     * state between nodes should reset it here.
+     */
+    public void reset(JmmNode root, SymbolTable table) {
+        reports = new ArrayList<>();
+    }
 
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        reset(root, table);
+
         // Visit the node
         visit(root, table);
 
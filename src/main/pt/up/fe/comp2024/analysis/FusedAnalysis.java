@@ -0,0 +1,211 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.CompactAst;
+import pt.up.fe.comp2024.ast.ExprTypeTable;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Runs several analysis passes in a single preorder traversal of the AST.
+ * <p>
+ * Each node is dispatched to the {@link AnalysisVisitor} passes that registered a visit for its kind, in the order
+ * the passes were given. Each pass keeps its own reports, and records the expression types it computes in the given
+ * {@link ExprTypeTable}. If a pass throws, its reports are replaced by an error
+ * report and it is skipped for the rest of the traversal, the other passes are not affected. Passes that do not visit
+ * the AST run on their own after the traversal.
+ * <p>
+ * With profiling on, the time spent in the visits of each pass is added to the counter 'passNanos.&lt;pass&gt;' of the
+ * profiler of the current thread.
+ * <p>
+ * An instance keeps a dispatch table and the state of its passes, so it must not be shared between threads.
+ */
+public class FusedAnalysis {
+
+    private static final CompilerLogger LOG = CompilerLogger.get("analysis");
+
+    private final List<AnalysisPass> passes;
+    private final List<AnalysisVisitor> visitors;
+
+    // Visitors interested in each node kind, computed the first time the kind is seen
+    private final Map<String, AnalysisVisitor[]> dispatchTable;
+
+    public FusedAnalysis(List<AnalysisPass> passes) {
+        this.passes = passes;
+        this.visitors = new ArrayList<>();
+        this.dispatchTable = new HashMap<>();
+
+        for (var pass : passes) {
+            if (pass instanceof AnalysisVisitor visitor) {
+                visitors.add(visitor);
+            }
+        }
+    }
+
+    /**
+     * Analyses the tree with every pass.
+     *
+     * @param root
+     * @param table
+     * @param exprTypes where the types of the expressions are recorded, or null
+     * @return the reports of each pass, in the order of the passes
+     */
+    public List<Report> analyze(JmmNode root, SymbolTable table, ExprTypeTable exprTypes) {
+        List<Report> reports = new ArrayList<>();
+        analyzeByPass(CompactAst.of(root), 0, node -> false, table, exprTypes).forEach(reports::addAll);
+        return reports;
+    }
+
+    /**
+     * Analyses a part of the tree with every pass. The passes are reset with the root of the program, so they can
+     * collect program-wide information (e.g. imports), but only the nodes of the unit are visited, skipping the
+     * subtrees of the excluded nodes. Passes that do not visit the AST only run when the unit is the whole program.
+     * <p>
+     * The passes visit the nodes of the original tree, the compact AST is only used to walk it.
+     *
+     * @param ast       the program
+     * @param unit      root of the subtree to visit
+     * @param excluded  nodes of the unit whose subtrees are not visited
+     * @param table
+     * @param exprTypes where the types of the expressions of the unit are recorded, or null
+     * @return the reports of each pass, in the order of the passes
+     */
+    public List<List<Report>> analyzeByPass(CompactAst ast, int unit, IntPredicate excluded, SymbolTable table,
+                                            ExprTypeTable exprTypes) {
+        return analyzeByPass(ast.source(0), ast, unit, excluded, table, exprTypes, unit == 0);
+    }
+
+    /**
+     * Analyses a subtree of the program (e.g. a method) with every pass, walking a compact AST of only that subtree.
+     * The passes are reset with the root of the program, as in {@link #analyzeByPass(CompactAst, int, IntPredicate,
+     * SymbolTable)}.
+     *
+     * @param root      root of the program
+     * @param subtree   compact AST of the subtree, its nodes must belong to the program
+     * @param table
+     * @param exprTypes where the types of the expressions of the subtree are recorded, or null
+     * @return the reports of each pass, in the order of the passes
+     */
+    public List<List<Report>> analyzeSubtree(JmmNode root, CompactAst subtree, SymbolTable table,
+                                             ExprTypeTable exprTypes) {
+        return analyzeByPass(root, subtree, 0, node -> false, table, exprTypes, false);
+    }
+
+    private List<List<Report>> analyzeByPass(JmmNode root, CompactAst ast, int unit, IntPredicate excluded,
+                                             SymbolTable table, ExprTypeTable exprTypes, boolean wholeProgram) {
+        Map<AnalysisPass, List<Report>> passReports = new HashMap<>();
+        Map<AnalysisVisitor, Exception> failed = new HashMap<>();
+
+        var profiler = CompilerProfiler.current();
+        boolean timed = profiler.isEnabled();
+        Map<AnalysisPass, Long> passNanos = new HashMap<>();
+
+        for (var visitor : visitors) {
+            visitor.setExprTypes(exprTypes);
+            try {
+                visitor.reset(root, table);
+            } catch (Exception e) {
+                failed.put(visitor, e);
+            }
+        }
+
+        // Preorder is the order of the nodes in the compact AST, an excluded subtree is skipped by jumping to its end
+        var kindVisitors = new AnalysisVisitor[ast.numNames()][];
+        int end = ast.end(unit);
+        int node = unit;
+
+        while (node < end) {
+            if (node != unit && excluded.test(node)) {
+                node = ast.end(node);
+                continue;
+            }
+
+            int kind = ast.kindNameId(node);
+            var nodeVisitors = kindVisitors[kind];
+            if (nodeVisitors == null) {
+                nodeVisitors = getVisitors(ast.source(node));
+                kindVisitors[kind] = nodeVisitors;
+            }
+            LOG.trace("Visiting node kind: {}", ast.kindName(node));
+
+            for (var visitor : nodeVisitors) {
+                if (failed.containsKey(visitor)) {
+                    continue;
+                }
+
+                long start = timed ? System.nanoTime() : 0;
+                try {
+                    visitor.visitNode(ast.source(node), table);
+                } catch (Exception e) {
+                    failed.put(visitor, e);
+                }
+                if (timed) {
+                    passNanos.merge(visitor, System.nanoTime() - start, Long::sum);
+                }
+            }
+
+            node++;
+        }
+
+        for (var visitor : visitors) {
+            if (!failed.containsKey(visitor)) {
+                passReports.put(visitor, visitor.getReports());
+            }
+        }
+
+        // Passes that do not visit nodes run on their own, once per program
+        for (var pass : passes) {
+            if (!(pass instanceof AnalysisVisitor) && wholeProgram) {
+                long start = timed ? System.nanoTime() : 0;
+                try {
+                    passReports.put(pass, pass.analyze(root, table));
+                } catch (Exception e) {
+                    passReports.put(pass, List.of(passError(pass, e)));
+                }
+                if (timed) {
+                    passNanos.merge(pass, System.nanoTime() - start, Long::sum);
+                }
+            }
+        }
+
+        passNanos.forEach((pass, nanos) -> profiler.count("passNanos." + pass.getClass().getSimpleName(), nanos));
+
+        List<List<Report>> reports = new ArrayList<>();
+        for (var pass : passes) {
+            if (pass instanceof AnalysisVisitor visitor && failed.containsKey(visitor)) {
+                reports.add(List.of(passError(pass, failed.get(visitor))));
+                continue;
+            }
+            reports.add(passReports.getOrDefault(pass, List.of()));
+        }
+
+        return reports;
+    }
+
+    private AnalysisVisitor[] getVisitors(JmmNode node) {
+        var nodeVisitors = dispatchTable.get(node.getKind());
+        if (nodeVisitors != null) {
+            return nodeVisitors;
+        }
+
+        nodeVisitors = visitors.stream()
+                .filter(visitor -> visitor.handles(node))
+                .toArray(AnalysisVisitor[]::new);
+        dispatchTable.put(node.getKind(), nodeVisitors);
+        return nodeVisitors;
+    }
+
+    private static Report passError(AnalysisPass pass, Exception e) {
+        return Report.newError(Stage.SEMANTIC, -1, -1,
+                "Problem while executing analysis pass '" + pass.getClass().getSimpleName() + "'", e);
+    }
+}
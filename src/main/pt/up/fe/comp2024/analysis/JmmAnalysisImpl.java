@@ -2,45 +2,191 @@ package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.analysis.passes.Analysispasses;
 import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2024.ast.CompactAst;
+import pt.up.fe.comp2024.ast.ExprTypeTable;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Semantic analysis of a program.
+ * <p>
+ * Once the symbol table is built, which is immutable, each method can be analysed independently. The program is
+ * split into units: the class-level declarations (imports, class and fields) and one unit per method. With more than
+ * one analysis job ('-a') the methods are analysed in parallel, each worker thread with its own instances of the
+ * passes. Reports are merged in the same order as a sequential analysis: pass by pass, and within a pass the
+ * class-level reports first and then the reports of each method in source order.
+ * <p>
+ * Every analysis runs on the same pool, with one thread per processor at most. Its threads are daemons and end when
+ * they are idle, so a long-running process (the compile server, a batch) keeps a bounded number of threads whatever
+ * the job counts it is given. The number of jobs is the number of workers an analysis submits to the pool, each
+ * taking the next method that is not analysed yet.
+ */
 public class JmmAnalysisImpl implements JmmAnalysis {
 
-    private final List<AnalysisPass> analysisPasses;
+    // Shared by every compilation
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // The passes keep state while visiting a method, so each thread has its own
+    private final ThreadLocal<FusedAnalysis> fusedAnalysis;
 
     public JmmAnalysisImpl() {
-        this.analysisPasses = List.of(new Analysispasses(), new UndeclaredVariable());
+        this.fusedAnalysis = ThreadLocal.withInitial(JmmAnalysisImpl::newFusedAnalysis);
+    }
+
+    private static FusedAnalysis newFusedAnalysis() {
+        return new FusedAnalysis(List.of(new Analysispasses(), new UndeclaredVariable()));
     }
 
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
+        var profiler = CompilerProfiler.current();
+        var root = parserResult.getRootNode();
+
         // Build the symbol table from the root node of the parser result
-        SymbolTable table = JmmSymbolTableBuilder.build(parserResult.getRootNode());
-        List<Report> reports = new ArrayList<>();
+        JmmSymbolTable table;
+        try (var span = profiler.start("analysis.symbolTable")) {
+            table = JmmSymbolTableBuilder.build(root);
+        }
 
-        // Apply each analysis pass defined in the analysisPasses list
-        for (AnalysisPass pass : analysisPasses) {
-            try {
-                // Analyze the AST using the current pass and collect all reports
-                List<Report> passReports = pass.analyze(parserResult.getRootNode(), table);
-                reports.addAll(passReports);
-            } catch (Exception e) {
-                // Handle any exceptions during the analysis by creating an error report
-                reports.add(Report.newError(Stage.SEMANTIC, -1, -1,
-                        "Problem while executing analysis pass '" + pass.getClass().getSimpleName() + "'", e));
-            }
+        // Array-backed copy of the tree, walked by the passes below
+        CompactAst ast;
+        try (var span = profiler.start("analysis.compactAst")) {
+            ast = CompactAst.of(root);
+        }
+
+        // Apply every analysis pass, in a single traversal of each unit. The passes record the type of each
+        // expression they check, for the later stages
+        List<Report> reports;
+        try (var span = profiler.start("analysis.passes")) {
+            int jobs = CompilerConfig.getAnalysisJobs(parserResult.getConfig());
+            reports = analyzeUnits(ast, table, jobs);
         }
 
         // Return the result of the semantic analysis along with the symbol table and reports
         return new JmmSemanticsResult(parserResult, table, reports);
     }
+
+    private List<Report> analyzeUnits(CompactAst ast, JmmSymbolTable table, int jobs) {
+        var methods = findMethods(ast);
+        var exprTypes = table.getExprTypes();
+
+        // Class-level declarations, without the bodies of the methods
+        List<List<List<Report>>> unitReports = new ArrayList<>();
+        unitReports.add(fusedAnalysis.get().analyzeByPass(ast, 0, node -> isMethod(ast, node), table, exprTypes));
+
+        if (jobs > 1 && methods.size() > 1) {
+            var profiler = CompilerProfiler.current();
+            List<List<List<Report>>> methodReports = new ArrayList<>(Collections.nCopies(methods.size(), null));
+            // Each method records its types in its own table, merged below by this thread
+            List<ExprTypeTable> methodTypes = new ArrayList<>(Collections.nCopies(methods.size(), null));
+            var nextMethod = new AtomicInteger();
+
+            List<ForkJoinTask<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < Math.min(jobs, methods.size()); worker++) {
+                // The workers add their pass times to the profiler of this compilation
+                workers.add(POOL.submit(() -> {
+                    profiler.install();
+                    try {
+                        int index;
+                        while ((index = nextMethod.getAndIncrement()) < methods.size()) {
+                            var types = new ExprTypeTable();
+                            methodReports.set(index, fusedAnalysis.get()
+                                    .analyzeByPass(ast, methods.get(index), node -> false, table, types));
+                            methodTypes.set(index, types);
+                        }
+                    } finally {
+                        profiler.uninstall();
+                    }
+                }));
+            }
+            workers.forEach(ForkJoinTask::join);
+            unitReports.addAll(methodReports);
+            methodTypes.forEach(exprTypes::putAll);
+        } else {
+            for (int method : methods) {
+                unitReports.add(fusedAnalysis.get().analyzeByPass(ast, method, node -> false, table, exprTypes));
+            }
+        }
+
+        return mergeByPass(unitReports);
+    }
+
+    /**
+     * Analyses the class-level declarations of the program (imports, class and fields), without the methods. The
+     * types of the expressions are recorded in the table of the symbol table.
+     *
+     * @return the reports of each pass
+     */
+    public List<List<Report>> analyzeClass(JmmNode root, JmmSymbolTable table) {
+        var ast = CompactAst.of(root);
+        return fusedAnalysis.get().analyzeByPass(ast, 0, node -> isMethod(ast, node), table, table.getExprTypes());
+    }
+
+    /**
+     * Analyses a single method of the program. The types of the expressions are recorded in the table of the symbol
+     * table.
+     *
+     * @return the reports of each pass
+     */
+    public List<List<Report>> analyzeMethod(JmmNode root, JmmNode method, JmmSymbolTable table) {
+        return fusedAnalysis.get().analyzeSubtree(root, CompactAst.of(method), table, table.getExprTypes());
+    }
+
+    /**
+     * Merges the reports of each unit in the order of a sequential analysis: pass by pass, and within a pass the units
+     * in the given order.
+     *
+     * @param unitReports the reports of each pass, for each unit
+     */
+    public static List<Report> mergeByPass(List<List<List<Report>>> unitReports) {
+        List<Report> reports = new ArrayList<>();
+        if (unitReports.isEmpty()) {
+            return reports;
+        }
+
+        int numPasses = unitReports.get(0).size();
+        for (int pass = 0; pass < numPasses; pass++) {
+            for (var unit : unitReports) {
+                reports.addAll(unit.get(pass));
+            }
+        }
+
+        return reports;
+    }
+
+    private static List<Integer> findMethods(CompactAst ast) {
+        List<Integer> methods = new ArrayList<>();
+        for (int i = 0; i < ast.numChildren(0); i++) {
+            int classDecl = ast.child(0, i);
+            if (!ast.isInstance(classDecl, Kind.CLASS_DECL)) {
+                continue;
+            }
+
+            for (int j = 0; j < ast.numChildren(classDecl); j++) {
+                if (isMethod(ast, ast.child(classDecl, j))) {
+                    methods.add(ast.child(classDecl, j));
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static boolean isMethod(CompactAst ast, int node) {
+        return ast.isInstance(node, Kind.METHOD_DECL);
+    }
 }
@@ -1,20 +1,28 @@
 package pt.up.fe.comp2024.analysis.passes;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.Types;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodScope;
+import pt.up.fe.comp2024.utils.CompilerLogger;
 
 import java.util.*;
 
 public class Analysispasses extends AnalysisVisitor {
 
+    private static final CompilerLogger LOG = CompilerLogger.get("analysis.types");
+
+    // Type of the calls to methods of imported classes and of the super class, compatible with every type
+    private static final String ASSUMED = "assumed";
+
     private List<String> importedClasses;
-    private Map<String, String> variableTypes = new HashMap<>();
 
     @Override
     public void buildVisitor() {
@@ -25,8 +33,14 @@ public class Analysispasses extends AnalysisVisitor {
         addVisit(Kind.BINARY_EXPR, this::visitBinaryExpr);
         addVisit(Kind.VAR_DECL, this::visitVarDecl);
         addVisit(Kind.NEW_ARRAY_INT, this::visitNewArray);
-        addVisit(Kind.RETURN, this::visitReturn);
+        addVisit(Kind.ARRAY_INIT, this::visitNewArray);
+        addVisit(Kind.RETURN_STMT, this::visitReturn);
         addVisit(Kind.ASSIGN, this::visitAssign); // Register the visitAssign method
+        addVisit(Kind.ARRAY, this::visitArrayAccess);
+        addVisit(Kind.NOT, this::visitNot);
+        addVisit(Kind.IF_ELSE, this::visitCondition);
+        addVisit(Kind.WHILE, this::visitCondition);
+        addVisit(Kind.METHOD_CALL_EXPR, this::visitCallArguments);
         setDefaultVisit(this::visitAllNodes);
     }
     private Void visitAssign(JmmNode assignNode, SymbolTable table) {
@@ -64,7 +78,7 @@ public class Analysispasses extends AnalysisVisitor {
 
 
     private boolean typesAreCompatible(String varType, String exprType, SymbolTable table) {
-        if (varType.equals(exprType)) {
+        if (varType.equals(exprType) || varType.equals(ASSUMED) || exprType.equals(ASSUMED)) {
             return true;
         }
 
@@ -73,10 +87,13 @@ public class Analysispasses extends AnalysisVisitor {
     }
 
     private boolean isSubtype(String subtype, String supertype, SymbolTable table) {
-        // Direct match or basic types check
-        if (subtype.equals(supertype) || isBuiltInType(subtype) && isBuiltInType(supertype)) {
+        // Direct match, basic types are only compatible with themselves
+        if (subtype.equals(supertype)) {
             return true;
         }
+        if (isBuiltInType(subtype) || isBuiltInType(supertype) || subtype.endsWith("[]") || supertype.endsWith("[]")) {
+            return false;
+        }
 
         // Check if the subtype is a class that extends the supertype
         String currentSuper = subtype;
@@ -97,11 +114,11 @@ public class Analysispasses extends AnalysisVisitor {
 
 
     private Void visitReturn(JmmNode returnNode, SymbolTable table) {
-        System.out.println("Visiting return statement: " + returnNode);
+        LOG.trace("Visiting return statement: {}", returnNode);
 
         JmmNode methodNode = findParentMethod(returnNode);
         if (methodNode == null) {
-            System.err.println("Return statement not within a method context.");
+            LOG.debug("Return statement not within a method context: {}", returnNode);
             return null;
         }
 
@@ -111,14 +128,18 @@ public class Analysispasses extends AnalysisVisitor {
                 .orElse(null);
 
         if (returnTypeNode == null) {
-            System.err.println("Method return type not found.");
+            LOG.debug("Method return type not found: {}", methodNode);
+            return null;
+        }
+
+        if (returnNode.getChildren().isEmpty()) {
             return null;
         }
 
         String methodReturnType = resolveType(returnTypeNode, table);
         String returnType = resolveType(returnNode.getChildren().get(0), table);
 
-        if (!methodReturnType.equals(returnType)) {
+        if (!typesAreCompatible(methodReturnType, returnType, table)) {
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     NodeUtils.getLine(returnNode),
@@ -132,7 +153,7 @@ public class Analysispasses extends AnalysisVisitor {
     }
 
     private Void visitNewArray(JmmNode newArrayNode, SymbolTable table) {
-        System.out.println("Visiting new array initialization: " + newArrayNode);
+        LOG.trace("Visiting new array initialization: {}", newArrayNode);
 
         // Resolve the type of the array
         String arrayType = resolveType(newArrayNode, table);
@@ -170,37 +191,32 @@ public class Analysispasses extends AnalysisVisitor {
         String varName = varDecl.get("name");
         String varType = resolveType(typeNode, table);
 
-        System.out.println("Variable declaration: " + varName + ", type: " + varType);
-
-        if (table instanceof JmmSymbolTable) {
-            JmmSymbolTable jmmTable = (JmmSymbolTable) table;
-            jmmTable.addLocalVariable(currentScope(varDecl), varName, varType);
-        }
-
-        // Remember the variable type
-        variableTypes.put(varName, varType);
+        LOG.trace("Variable declaration: {}, type: {}", varName, varType);
 
         return null;
     }
 
     private Void visitAllNodes(JmmNode node, SymbolTable table) {
-        System.out.println("Visiting node kind: " + node.getKind());
+        LOG.trace("Visiting node kind: {}", node.getKind());
         return null;
     }
     private Void visitImportDecl(JmmNode importDecl, SymbolTable table) {
-        // Collecting full import name correctly
-        String fullImportName = String.join(".", importDecl.get("names"));
+        String fullImportName = importName(importDecl);
         // Adding to importedClasses if not already present
-        fullImportName = fullImportName.replaceAll("^\\[|\\]$", "");
         if (!importedClasses.contains(fullImportName)) {
             importedClasses.add(fullImportName);
         }
         // Debug output to show current state of imported classes
-        System.out.println("Import registered: " + fullImportName);
-        System.out.println("Current imports: " + Arrays.toString(importedClasses.toArray()));
+        LOG.debug("Import registered: {}, current imports: {}", fullImportName, importedClasses);
         return null;
     }
 
+    private static String importName(JmmNode importDecl) {
+        // Collecting full import name correctly
+        String fullImportName = String.join(".", importDecl.get("names"));
+        return fullImportName.replaceAll("^\\[|\\]$", "");
+    }
+
 
 
     private boolean isTypeValid(String typeName, SymbolTable table) {
@@ -209,7 +225,6 @@ public class Analysispasses extends AnalysisVisitor {
 
         // Check if the type is the name of the class being compiled
         boolean isCurrentClass = typeName.equals(((JmmSymbolTable)table).getClassName());
-        System.out.println(importedClasses);
         // Check if the type is in the list of imported classes
         boolean isImported = importedClasses.contains(typeName);
 
@@ -238,7 +253,7 @@ public class Analysispasses extends AnalysisVisitor {
                     null
             ));
         } else {
-            System.out.println("Type recognized: " + fullTypeName);
+            LOG.trace("Type recognized: {}", fullTypeName);
         }
         return null;
     }
@@ -253,17 +268,17 @@ public class Analysispasses extends AnalysisVisitor {
 
 
     private Void visitBinaryExpr(JmmNode binaryExpr, SymbolTable table) {
-        System.out.println("Visiting binary expression: " + binaryExpr); // Debug statement
+        LOG.trace("Visiting binary expression: {}", binaryExpr);
         String operator = binaryExpr.get("op");
         List<JmmNode> children = binaryExpr.getChildren();
         if (children.size() == 2) {
             String leftType = resolveType(children.get(0), table);
             String rightType = resolveType(children.get(1), table);
 
-            System.out.println("Operator: " + operator + ", Left type: " + leftType + ", Right type: " + rightType);
+            LOG.trace("Operator: {}, Left type: {}, Right type: {}", operator, leftType, rightType);
 
             if (operator.equals("+")) {
-                if (!leftType.equals("int") || !rightType.equals("int")) {
+                if (!isType(leftType, "int") || !isType(rightType, "int")) {
                     addReport(Report.newError(
                             Stage.SEMANTIC,
                             NodeUtils.getLine(binaryExpr),
@@ -281,7 +296,7 @@ public class Analysispasses extends AnalysisVisitor {
                             "Cannot multiply boolean with integer.",
                             null
                     ));
-                } else if (!leftType.equals("int") || !rightType.equals("int")) {
+                } else if (!isType(leftType, "int") || !isType(rightType, "int")) {
                     addReport(Report.newError(
                             Stage.SEMANTIC,
                             NodeUtils.getLine(binaryExpr),
@@ -290,45 +305,216 @@ public class Analysispasses extends AnalysisVisitor {
                             null
                     ));
                 }
+            } else {
+                // Logical operators take booleans, the other arithmetic and relational operators take ints
+                String operandType = operator.equals("&&") || operator.equals("||") ? "boolean" : "int";
+                if (!isType(leftType, operandType) || !isType(rightType, operandType)) {
+                    addReport(Report.newError(
+                            Stage.SEMANTIC,
+                            NodeUtils.getLine(binaryExpr),
+                            NodeUtils.getColumn(binaryExpr),
+                            "Operator " + operator + " expects " + operandType + " operands but found " + leftType
+                                    + " and " + rightType + ".",
+                            null
+                    ));
+                }
             }
         }
         return null;
     }
 
+    private static boolean isType(String type, String expected) {
+        return type.equals(expected) || type.equals(ASSUMED);
+    }
+
+    private Void visitNot(JmmNode not, SymbolTable table) {
+        String operandType = resolveType(not.getChildren().get(0), table);
+        if (!isType(operandType, "boolean")) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(not),
+                    NodeUtils.getColumn(not),
+                    "Cannot negate " + operandType + ".",
+                    null
+            ));
+        }
+        return null;
+    }
+
+    private Void visitCondition(JmmNode statement, SymbolTable table) {
+        String conditionType = resolveType(statement.getChildren().get(0), table);
+        if (!isType(conditionType, "boolean")) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(statement),
+                    NodeUtils.getColumn(statement),
+                    "Condition must be boolean but found " + conditionType + ".",
+                    null
+            ));
+        }
+        return null;
+    }
+
+    private Void visitArrayAccess(JmmNode arrayAccess, SymbolTable table) {
+        String arrayType = resolveType(arrayAccess.getChildren().get(0), table);
+        String indexType = resolveType(arrayAccess.getChildren().get(1), table);
+
+        if (!arrayType.endsWith("[]") && !arrayType.equals(ASSUMED)) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(arrayAccess),
+                    NodeUtils.getColumn(arrayAccess),
+                    "Cannot index " + arrayType + ", it is not an array.",
+                    null
+            ));
+        }
+        if (!isType(indexType, "int")) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(arrayAccess),
+                    NodeUtils.getColumn(arrayAccess),
+                    "Array index must be int but found " + indexType + ".",
+                    null
+            ));
+        }
+        return null;
+    }
+
+    /**
+     * Checks the arguments of the calls to methods of the class. A varargs parameter ('int... a') also takes any
+     * number of int arguments.
+     */
+    private Void visitCallArguments(JmmNode methodCall, SymbolTable table) {
+        String methodName = methodCall.get("methodName");
+        if (!isCallOnThisClass(methodCall, table) || !table.getMethods().contains(methodName)) {
+            return null;
+        }
+
+        var params = table.getParameters(methodName);
+        var args = methodCall.getChildren().subList(1, methodCall.getNumChildren());
+        var argTypes = args.stream().map(arg -> resolveType(arg, table)).toList();
+        var paramTypes = params.stream().map(param -> typeName(param.getType())).toList();
+        if (!argumentsMatch(paramTypes, isVarargs(methodName, table), argTypes, table)) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(methodCall),
+                    NodeUtils.getColumn(methodCall),
+                    "Method '" + methodName + "' cannot be called with arguments " + argTypes + ".",
+                    null
+            ));
+        }
+        return null;
+    }
+
+    private boolean argumentsMatch(List<String> paramTypes, boolean varargs, List<String> argTypes,
+                                   SymbolTable table) {
+        boolean exact = paramTypes.size() == argTypes.size();
+        for (int i = 0; exact && i < paramTypes.size(); i++) {
+            exact = typesAreCompatible(paramTypes.get(i), argTypes.get(i), table);
+        }
+        if (exact) {
+            return true;
+        }
+
+        // Varargs: the fixed parameters, then ints for the last one
+        int fixed = paramTypes.size() - 1;
+        if (!varargs || argTypes.size() < fixed) {
+            return false;
+        }
+        for (int i = 0; i < argTypes.size(); i++) {
+            String paramType = i < fixed ? paramTypes.get(i) : "int";
+            if (!typesAreCompatible(paramType, argTypes.get(i), table)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVarargs(String methodName, SymbolTable table) {
+        return table instanceof JmmSymbolTable jmmTable && jmmTable.isVarargs(methodName);
+    }
+
+    /**
+     * @return true if the method is called on 'this' or on a variable whose type is the class
+     */
+    private boolean isCallOnThisClass(JmmNode methodCall, SymbolTable table) {
+        var caller = methodCall.getChildren().get(0);
+        if (caller.getKind().equals("This")) {
+            return true;
+        }
+        if (!caller.getKind().equals("VarRefExpr") && !caller.getKind().equals("NewObject")) {
+            return false;
+        }
+        return resolveType(caller, table).equals(table.getClassName());
+    }
+
+    /**
+     * Resolves the type of an expression, or of a type node, and records the type of expressions that have a known
+     * one. Calls whose type is assumed are left for the later stages.
+     */
     private String resolveType(JmmNode node, SymbolTable table) {
+        String resolvedType = computeType(node, table);
+        if (!Kind.TYPE.check(node) && !resolvedType.equals("unknown") && !resolvedType.equals(ASSUMED)) {
+            recordType(node, toType(resolvedType));
+        }
+        return resolvedType;
+    }
+
+    private static Type toType(String typeName) {
+        return typeName.endsWith("[]")
+                ? Types.of(typeName.substring(0, typeName.length() - 2), true)
+                : Types.of(typeName);
+    }
+
+    private String computeType(JmmNode node, SymbolTable table) {
         String resolvedType = "unknown";  // Default case for unknown or unhandled types
-        System.out.println("Kind: " + node.getKind());
+        LOG.trace("Resolving type of kind: {}", node.getKind());
         switch (node.getKind()) {
             case "Type":
                 String typeName = node.get("name");
                 boolean isArray = node.getOptional("isArray").map(Boolean::parseBoolean).orElse(false);
-                typeName += isArray ? "[]" : "";
-                if (isTypeValid(typeName, table)) return typeName;
+                if (isTypeValid(typeName, table)) return isArray ? typeName + "[]" : typeName;
                 break;
             case "MethodCallExpr":
-                resolvedType = "int";
+                resolvedType = resolveCallType(node, table);
                 break;
             case "Boolean":
+            case "Not":
                 resolvedType = "boolean";
                 break;
+            case "IntegerLiteral":
+            case "Length":
+            case "Array":
+                resolvedType = "int";
+                break;
+            case "NewArrayInt":
+            case "ArrayInit":
+                resolvedType = "int[]";
+                break;
+            case "Parenthesis":
+                resolvedType = resolveType(node.getChildren().get(0), table);
+                break;
+            case "BinaryExpr":
+                resolvedType = switch (node.get("op")) {
+                    case "+", "-", "*", "/" -> "int";
+                    default -> "boolean";
+                };
+                break;
+            case "This":
+                resolvedType = table.getClassName();
+                break;
             case "VarRefExpr":
                 String varName = node.get("name");
-                System.out.println("Resolving type for variable: " + varName);
-                // Check if the variable type is already remembered
-                if (variableTypes.containsKey(varName)) {
-                    resolvedType = variableTypes.get(varName);
-                } else {
-                    resolvedType = findVariableType(varName, node, table);
-                }
-                System.out.println("Resolved type for variable " + varName + ": " + resolvedType);
+                LOG.trace("Resolving type for variable: {}", varName);
+                resolvedType = findVariableType(varName, node, table);
+                LOG.trace("Resolved type for variable {}: {}", varName, resolvedType);
                 break;
             case "NewObject":
-                System.out.println("Attributes of NewObject node: " + node.getAttributes());
+                LOG.trace("Attributes of NewObject node: {}", node.getAttributes());
                 if (node.hasAttribute("className")) {
                     resolvedType = node.get("className");
-                    rememberNewObjectType(node, resolvedType);
                 } else {
-                    System.err.println("NewObject node does not have a 'className' attribute.");
+                    LOG.debug("NewObject node does not have a 'className' attribute: {}", node);
                 }
                 break;
             default:
@@ -337,93 +523,43 @@ public class Analysispasses extends AnalysisVisitor {
         return resolvedType;
     }
 
-
-
-
-    private void rememberNewObjectType(JmmNode newNode, String typeName) {
-        JmmNode parent = newNode.getParent();
-        if (parent != null && parent.getKind().equals("Assign") && parent.getChildren().size() > 0) {
-            JmmNode lhs = parent.getChildren().get(0);  // Left-hand side of the assignment
-            if (lhs.getKind().equals("VarRefExpr")) {
-                String varName = lhs.get("name");
-                // Remember the type of the variable
-                variableTypes.put(varName, typeName);
-                System.out.println("Remembering type: " + varName + " -> " + typeName);
-            }
+    /**
+     * Methods of the class have the declared return type. Methods of imported classes and of the super class are not
+     * known, their calls get a type compatible with every other.
+     */
+    private String resolveCallType(JmmNode methodCall, SymbolTable table) {
+        String methodName = methodCall.get("methodName");
+        if (isCallOnThisClass(methodCall, table) && table.getMethods().contains(methodName)) {
+            return typeName(table.getReturnType(methodName));
         }
+        return ASSUMED;
     }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
     private String findVariableType(String varName, JmmNode contextNode, SymbolTable table) {
-        // First, check if the variable type is already remembered
-        if (variableTypes.containsKey(varName)) {
-            return variableTypes.get(varName);
-        }
-
         String currentMethodSignature = getCurrentMethodSignature(contextNode);
 
         // Check if the method signature is valid and parameters are not null
         var methodParams = table.getParameters(currentMethodSignature);
         if (methodParams == null) {
-            System.err.println("Method parameters not found for method: " + currentMethodSignature);
+            LOG.debug("Method parameters not found for method: {}", currentMethodSignature);
             // Handle as a class field or imported type
             return findClassFieldType(varName, table);
         }
 
-        // Check if the variable is a local variable in the current method
-        var localVar = table.getLocalVariables(currentMethodSignature).stream()
-                .filter(var -> var.getName().equals(varName))
-                .findFirst();
-        if (localVar.isPresent()) {
-            String localVarType = localVar.get().getType().getName();
-            boolean isArray = localVar.get().getType().isArray();
-            System.out.println("Local variable found: " + varName + ", type: " + (isArray ? localVarType + "[]" : localVarType));
-            return isArray ? localVarType + "[]" : localVarType;
+        // Local variables shadow parameters, which shadow class fields
+        var variable = MethodScope.of(table, currentMethodSignature).get(varName);
+        if (variable != null && variable.kind() == MethodScope.VarKind.FIELD && isInStaticMethod(contextNode)) {
+            LOG.trace("Field used in a static method: {}", varName);
+            return "unknown";
         }
-
-        // Check if the variable is a parameter in the current method
-        var paramVar = methodParams.stream()
-                .filter(param -> param.getName().equals(varName))
-                .findFirst();
-        if (paramVar.isPresent()) {
-            String paramVarType = paramVar.get().getType().getName();
-            boolean isArray = paramVar.get().getType().isArray();
-            System.out.println("Parameter found: " + varName + ", type: " + (isArray ? paramVarType + "[]" : paramVarType));
-            return isArray ? paramVarType + "[]" : paramVarType;
-        }
-
-        // Check if the variable is a class field
-        var fieldVar = table.getFields().stream()
-                .filter(field -> field.getName().equals(varName))
-                .findFirst();
-        if (fieldVar.isPresent()) {
-            String fieldVarType = fieldVar.get().getType().getName();
-            boolean isArray = fieldVar.get().getType().isArray();
-            System.out.println("Field found: " + varName + ", type: " + (isArray ? fieldVarType + "[]" : fieldVarType));
-            return isArray ? fieldVarType + "[]" : fieldVarType;
+        if (variable != null) {
+            String type = typeName(variable.getType());
+            LOG.trace("Variable found: {}, type: {}", varName, type);
+            return type;
         }
 
         // If variable is not found, return unknown
-        System.out.println("Variable not found: " + varName);
+        LOG.trace("Variable not found: {}", varName);
         return "unknown";
     }
 
@@ -432,19 +568,16 @@ public class Analysispasses extends AnalysisVisitor {
 
     private String findClassFieldType(String varName, SymbolTable table) {
         // Check if the variable is a class field
-        var fieldVar = table.getFields().stream()
-                .filter(field -> field.getName().equals(varName))
-                .findFirst();
-        if (fieldVar.isPresent()) {
-            String fieldVarType = fieldVar.get().getType().getName();
-            boolean isArray = fieldVar.get().getType().isArray();
-            System.out.println("Field found: " + varName + ", type: " + (isArray ? fieldVarType + "[]" : fieldVarType));
-            return isArray ? fieldVarType + "[]" : fieldVarType;
+        var fieldType = MethodScope.of(table, null).getType(varName);
+        if (fieldType != null) {
+            String type = typeName(fieldType);
+            LOG.trace("Field found: {}, type: {}", varName, type);
+            return type;
         }
 
         // If not found, check if it is an imported class type
         if (importedClasses.contains(varName)) {
-            System.out.println("Imported class type found: " + varName);
+            LOG.trace("Imported class type found: {}", varName);
             return varName;
         }
 
@@ -457,21 +590,30 @@ public class Analysispasses extends AnalysisVisitor {
 
 
 
+    private static String typeName(Type type) {
+        return type.isArray() ? type.getName() + "[]" : type.getName();
+    }
+
     private String getCurrentMethodSignature(JmmNode node) {
         JmmNode methodNode = findParentMethod(node);
         if (methodNode != null) {
-            System.out.println("Current method signature: " + methodNode.get("name"));
+            LOG.trace("Current method signature: {}", methodNode.get("name"));
             return methodNode.get("name");
         }
         return "";
     }
 
 
+    private boolean isInStaticMethod(JmmNode node) {
+        var methodNode = findParentMethod(node);
+        return methodNode != null && methodNode.getKind().equals("Main");
+    }
+
     private JmmNode findParentMethod(JmmNode node) {
         JmmNode current = node;
         while (current != null) {
-            // Check if the current node kind is "MethodDecl", which represents method declaration
-            if (current.getKind().equals("MethodDecl")) {
+            // Methods and main are both declarations, their kinds are "Method" and "Main"
+            if (current.isInstance(Kind.METHOD_DECL)) {
                 return current;
             }
             current = current.getParent();
@@ -487,7 +629,7 @@ public class Analysispasses extends AnalysisVisitor {
     }
 
     private Void visitMethodCall(JmmNode methodCall, SymbolTable table) {
-        System.out.println("Visiting method call: " + methodCall);
+        LOG.trace("Visiting method call: {}", methodCall);
 
         String methodName = methodCall.get("methodName");
         JmmNode objectExpr = methodCall.getChildren().get(0); // Assuming the object expression is the first child
@@ -504,8 +646,7 @@ public class Analysispasses extends AnalysisVisitor {
             return null;
         }
 
-        System.out.println("Method name: " + methodName);
-        System.out.println("Object class name: " + className);
+        LOG.trace("Method name: {}, object class name: {}", methodName, className);
 
         if (!isMethodAvailable(methodName, className, table)) {
             addReport(Report.newError(
@@ -527,7 +668,7 @@ public class Analysispasses extends AnalysisVisitor {
         }
 
         if (!(table instanceof JmmSymbolTable)) {
-            System.err.println("Symbol table is not compatible with JmmSymbolTable specific methods.");
+            LOG.debug("Symbol table is not compatible with JmmSymbolTable specific methods.");
             return false;
         }
 
@@ -553,10 +694,10 @@ public class Analysispasses extends AnalysisVisitor {
     private String resolveClassName(JmmNode objectExpr, SymbolTable table) {
         if (objectExpr.getKind().equals("VarRefExpr")) {
             String varName = objectExpr.get("name");
-            System.out.println("Resolving class name for variable: " + varName);
+            LOG.trace("Resolving class name for variable: {}", varName);
             var variableType = ((JmmSymbolTable)table).getVariableType(varName, currentScope(objectExpr));
             if (variableType == null) {
-                System.out.println("Variable type for " + varName + " is null.");
+                LOG.trace("Variable type for {} is null.", varName);
                 return "unknown";
             }
             return variableType.getName();
@@ -575,13 +716,21 @@ public class Analysispasses extends AnalysisVisitor {
     }
 
     @Override
-    public List<Report> analyze(JmmNode root, SymbolTable table) {
+    public void reset(JmmNode root, SymbolTable table) {
+        super.reset(root, table);
         importedClasses = new ArrayList<>();
 
-        // Print the entire AST for debugging
-        System.out.println("AST Root Node: " + root.toTree());
+        // Imports are known up front, a method can be analysed without visiting the rest of the program
+        for (var importDecl : root.getChildren(Kind.IMPORT_DECL)) {
+            var importName = importName(importDecl);
+            if (!importedClasses.contains(importName)) {
+                importedClasses.add(importName);
+            }
+        }
 
-        super.analyze(root, table);
-        return getReports();
+        // Print the entire AST for debugging
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("AST Root Node: " + root.toTree());
+        }
     }
 }
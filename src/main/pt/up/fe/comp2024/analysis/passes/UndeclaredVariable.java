@@ -7,6 +7,8 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.MethodScope;
+import pt.up.fe.comp2024.utils.CompilerLogger;
 
 import java.util.*;
 
@@ -15,6 +17,8 @@ import java.util.*;
  */
 public class UndeclaredVariable extends AnalysisVisitor {
 
+    private static final CompilerLogger LOG = CompilerLogger.get("analysis.undeclared");
+
     private Set<String> declaredVariables;
     private String currentMethod;
     private Stack<Set<String>> scopeStack = new Stack<>();
@@ -57,8 +61,8 @@ private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
     String varRefName = varRefExpr.get("name");
     JmmNode parentMethod = findParentMethod(varRefExpr);
 
-    // Check if the variable is in the local scope of the method or if it is a class field
-    if (!isVariableDeclared(varRefName, parentMethod, table)) {
+    // Check if the variable is in the local scope of the method, a class field or an imported class (e.g. io.println)
+    if (!isVariableDeclared(varRefName, parentMethod, table) && !isImportedClass(varRefName, table)) {
         addReport(Report.newError(
                 Stage.SEMANTIC,
                 NodeUtils.getLine(varRefExpr),
@@ -71,28 +75,24 @@ private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
 }
 
     private boolean isVariableDeclared(String varName, JmmNode methodNode, SymbolTable table) {
-        // Check local variables and parameters in the current method scope
-        if (methodNode != null) {
-            List<String> parametersAndLocals = new ArrayList<>();
-            table.getParameters(methodNode.get("name")).forEach(param -> parametersAndLocals.add(param.getName()));
-            table.getLocalVariables(methodNode.get("name")).forEach(local -> parametersAndLocals.add(local.getName()));
-            System.out.println(varName);
-            if (parametersAndLocals.contains(varName) ) {
-                return true;
-            }
-        }
-
-        // Check class fields
-        return table.getFields().stream().anyMatch(field -> field.getName().equals(varName));
+        // Local variables, parameters and class fields visible in the current method
+        String methodName = methodNode != null ? methodNode.get("name") : null;
+        LOG.trace("Checking declaration of {} in method {}", varName, methodName);
+        return MethodScope.of(table, methodName).contains(varName);
     }
 
 
 
+    private boolean isImportedClass(String name, SymbolTable table) {
+        return table.getImports().stream()
+                .anyMatch(importName -> importName.equals(name) || importName.endsWith("." + name));
+    }
+
     private JmmNode findParentMethod(JmmNode node) {
         JmmNode current = node;
         while (current != null) {
-            // Check if the current node kind is "Method", which matches the output from your debugging
-            if (current.getKind().equals("Method")) {
+            // Both "Method" and "Main" nodes are method declarations
+            if (current.isInstance(Kind.METHOD_DECL)) {
                 return current;
             }
             current = current.getParent();
@@ -103,8 +103,8 @@ private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
 
 
     @Override
-    public List<Report> analyze(JmmNode root, SymbolTable table) {
+    public void reset(JmmNode root, SymbolTable table) {
+        super.reset(root, table);
         scopeStack.clear();
-        return super.analyze(root, table);
     }
 }
@@ -0,0 +1,486 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, array-backed copy of an AST.
+ * <p>
+ * Nodes are numbered in preorder, so the subtree of node i is the range [i, {@link #end(int)}) and a pass can walk a
+ * tree, or skip a subtree, with a plain loop. Every property of a node is stored in an array indexed by its number:
+ * <ul>
+ * <li>the {@link Kind} of the node as an ordinal, and a bit mask with every Kind in its hierarchy;</li>
+ * <li>the parent and the range of its children in a shared child array;</li>
+ * <li>the attributes as pairs of indexes into a pool of interned names and a pool of values.</li>
+ * </ul>
+ * Hot passes use the index-based accessors. Code that expects a {@link JmmNode} can use {@link #node(int)}, a
+ * read-only view of the node, or {@link #source(int)}, the node the AST was built from (e.g. as a key of a side
+ * table shared with stages that use the original tree).
+ */
+public final class CompactAst {
+
+    private static final Kind[] KINDS = Kind.values();
+
+    static {
+        // The hierarchy of a node is a mask with one bit per Kind
+        if (KINDS.length > Long.SIZE) {
+            throw new IllegalStateException("Kind masks only fit " + Long.SIZE + " kinds, there are " + KINDS.length);
+        }
+    }
+
+    private final JmmNode[] sources;
+    private final int[] parents;
+    private final int[] ends;
+    private final int[] childStarts;
+    private final int[] childList;
+    private final int[] kindNames;
+    private final int[] kinds;
+    private final long[] kindMasks;
+    private final int[] attrStarts;
+    private final int[] attrNames;
+    private final int[] attrValues;
+
+    // Interned node kinds and attribute names, and the hierarchy of each node kind
+    private final List<String> names;
+    private final Map<String, Integer> nameIds;
+    private final Map<Integer, List<String>> hierarchies;
+
+    // Attribute values, equal values are stored once
+    private final Object[] values;
+
+    // Views are created on demand, and only once, so each node has a single view
+    private final Node[] views;
+
+    private CompactAst(Builder builder) {
+        int size = builder.sources.size();
+
+        this.sources = builder.sources.toArray(new JmmNode[0]);
+        this.parents = builder.parents.toArray();
+        this.kindNames = builder.kindNames.toArray();
+        this.names = builder.names;
+        this.nameIds = builder.nameIds;
+        this.hierarchies = builder.hierarchies;
+        this.values = builder.values.toArray();
+        this.views = new Node[size];
+
+        this.kinds = new int[size];
+        this.kindMasks = new long[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = builder.kindOrdinals.get(kindNames[i]);
+            kindMasks[i] = builder.kindMasks.get(kindNames[i]);
+        }
+
+        // Subtree ranges, from the size of each subtree
+        this.ends = new int[size];
+        int[] subtreeSizes = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            subtreeSizes[i]++;
+            ends[i] = i + subtreeSizes[i];
+            if (parents[i] >= 0) {
+                subtreeSizes[parents[i]] += subtreeSizes[i];
+            }
+        }
+
+        // Children, grouped by parent in the order they appear in the tree
+        this.childStarts = new int[size + 1];
+        for (int i = 1; i < size; i++) {
+            childStarts[parents[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            childStarts[i + 1] += childStarts[i];
+        }
+        this.childList = new int[Math.max(0, size - 1)];
+        int[] filled = new int[size];
+        for (int i = 1; i < size; i++) {
+            int parent = parents[i];
+            childList[childStarts[parent] + filled[parent]++] = i;
+        }
+
+        this.attrStarts = builder.attrStarts.toArray();
+        this.attrNames = builder.attrNames.toArray();
+        this.attrValues = builder.attrValues.toArray();
+    }
+
+    /**
+     * Copies the tree with the given root.
+     */
+    public static CompactAst of(JmmNode root) {
+        var builder = new Builder();
+
+        // Iterative preorder, children are pushed in reverse so they are numbered in order
+        var pending = new ArrayList<JmmNode>();
+        var pendingParents = new IntBuffer();
+        pending.add(root);
+        pendingParents.add(-1);
+
+        while (!pending.isEmpty()) {
+            var node = pending.remove(pending.size() - 1);
+            int parent = pendingParents.pop();
+            int index = builder.add(node, parent);
+
+            var children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.add(children.get(i));
+                pendingParents.add(index);
+            }
+        }
+        builder.attrStarts.add(builder.attrNames.size());
+
+        return new CompactAst(builder);
+    }
+
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * @return the node this node was copied from
+     */
+    public JmmNode source(int node) {
+        return sources[node];
+    }
+
+    /**
+     * @return the parent of the node, or -1 for the root
+     */
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * @return the number after the last node of the subtree of the given node
+     */
+    public int end(int node) {
+        return ends[node];
+    }
+
+    public int numChildren(int node) {
+        return childStarts[node + 1] - childStarts[node];
+    }
+
+    public int child(int node, int index) {
+        return childList[childStarts[node] + index];
+    }
+
+    /**
+     * @return the kind of the node, as given by {@link JmmNode#getKind()}
+     */
+    public String kindName(int node) {
+        return names.get(kindNames[node]);
+    }
+
+    /**
+     * @return an id of the kind of the node, the same for every node with the same {@link #kindName(int)}
+     */
+    public int kindNameId(int node) {
+        return kindNames[node];
+    }
+
+    /**
+     * @return the number of distinct ids returned by {@link #kindNameId(int)} and {@link #nameId(String)}
+     */
+    public int numNames() {
+        return names.size();
+    }
+
+    /**
+     * @return the most specific {@link Kind} of the node, or null if none of its hierarchy is a Kind
+     */
+    public Kind kind(int node) {
+        return kinds[node] < 0 ? null : KINDS[kinds[node]];
+    }
+
+    /**
+     * @return true if the kind is in the hierarchy of the node
+     */
+    public boolean isInstance(int node, Kind kind) {
+        return (kindMasks[node] & (1L << kind.ordinal())) != 0;
+    }
+
+    /**
+     * @return the id of an interned kind or attribute name, or -1 if no node of this tree uses the name
+     */
+    public int nameId(String name) {
+        return nameIds.getOrDefault(name, -1);
+    }
+
+    /**
+     * @param attribute id of the attribute name, see {@link #nameId(String)}
+     * @return the value of the attribute, or null if the node does not have it
+     */
+    public Object getObject(int node, int attribute) {
+        for (int i = attrStarts[node]; i < attrStarts[node + 1]; i++) {
+            if (attrNames[i] == attribute) {
+                return values[attrValues[i]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value of the attribute as a String, or null if the node does not have it
+     */
+    public String get(int node, String attribute) {
+        var value = getObject(node, nameId(attribute));
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @return a read-only {@link JmmNode} view of the node, the same instance on every call
+     */
+    public JmmNode node(int node) {
+        var view = views[node];
+        if (view == null) {
+            view = new Node(node);
+            views[node] = view;
+        }
+        return view;
+    }
+
+    private static class Builder {
+
+        private final List<JmmNode> sources = new ArrayList<>();
+        private final IntBuffer parents = new IntBuffer();
+        private final IntBuffer kindNames = new IntBuffer();
+        private final IntBuffer attrStarts = new IntBuffer();
+        private final IntBuffer attrNames = new IntBuffer();
+        private final IntBuffer attrValues = new IntBuffer();
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final Map<Integer, List<String>> hierarchies = new HashMap<>();
+        private final Map<Integer, Integer> kindOrdinals = new HashMap<>();
+        private final Map<Integer, Long> kindMasks = new HashMap<>();
+
+        private final List<Object> values = new ArrayList<>();
+        private final Map<Object, Integer> valueIds = new HashMap<>();
+
+        private int add(JmmNode node, int parent) {
+            int index = sources.size();
+            sources.add(node);
+            parents.add(parent);
+
+            int kindName = intern(node.getKind());
+            kindNames.add(kindName);
+            if (!hierarchies.containsKey(kindName)) {
+                addKind(kindName, node.getHierarchy());
+            }
+
+            attrStarts.add(attrNames.size());
+            for (var attribute : node.getAttributes()) {
+                var value = node.getObject(attribute);
+                attrNames.add(intern(attribute));
+                attrValues.add(valueIds.computeIfAbsent(value, key -> {
+                    values.add(key);
+                    return values.size() - 1;
+                }));
+            }
+
+            return index;
+        }
+
+        /**
+         * The hierarchy only depends on the kind, it is resolved once per kind name.
+         */
+        private void addKind(int kindName, Collection<String> hierarchy) {
+            hierarchies.put(kindName, List.copyOf(hierarchy));
+
+            int ordinal = -1;
+            long mask = 0;
+            for (var name : hierarchy) {
+                for (var kind : KINDS) {
+                    if (kind.getNodeName().equals(name)) {
+                        ordinal = ordinal < 0 ? kind.ordinal() : ordinal;
+                        mask |= 1L << kind.ordinal();
+                    }
+                }
+            }
+
+            kindOrdinals.put(kindName, ordinal);
+            kindMasks.put(kindName, mask);
+        }
+
+        private int intern(String name) {
+            var id = nameIds.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                nameIds.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Growable int array, so the builder does not box an Integer per node and attribute.
+     */
+    private static class IntBuffer {
+
+        private int[] data = new int[64];
+        private int size;
+
+        private void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        private int pop() {
+            return data[--size];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * Read-only view of a node of the compact AST, for code that works with {@link JmmNode}.
+     */
+    private class Node implements JmmNode {
+
+        private final int index;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKind() {
+            return kindName(index);
+        }
+
+        @Override
+        public Collection<String> getHierarchy() {
+            return hierarchies.get(kindNames[index]);
+        }
+
+        @Override
+        public Collection<String> getAttributes() {
+            List<String> attributes = new ArrayList<>();
+            for (int i = attrStarts[index]; i < attrStarts[index + 1]; i++) {
+                attributes.add(names.get(attrNames[i]));
+            }
+            return attributes;
+        }
+
+        @Override
+        public Object getObject(String attribute) {
+            var value = CompactAst.this.getObject(index, nameId(attribute));
+            SpecsCheck.checkNotNull(value, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+            return value;
+        }
+
+        @Override
+        public boolean hasAttribute(String attribute) {
+            return CompactAst.this.getObject(index, nameId(attribute)) != null;
+        }
+
+        @Override
+        public JmmNode getParent() {
+            return parents[index] < 0 ? null : node(parents[index]);
+        }
+
+        // Abstract in JmmNode, replaced by getParent
+        @Deprecated
+        @Override
+        public JmmNode getJmmParent() {
+            return getParent();
+        }
+
+        @Override
+        public List<JmmNode> getChildren() {
+            return new AbstractList<>() {
+                @Override
+                public JmmNode get(int i) {
+                    return node(child(index, i));
+                }
+
+                @Override
+                public int size() {
+                    return numChildren(index);
+                }
+            };
+        }
+
+        @Override
+        public int getNumChildren() {
+            return numChildren(index);
+        }
+
+        @Override
+        public JmmNode copyNode() {
+            var copy = new JmmNodeImpl(getKind());
+            copy.setHierarchy(getHierarchy());
+            for (int i = attrStarts[index]; i < attrStarts[index + 1]; i++) {
+                copy.putObject(names.get(attrNames[i]), values[attrValues[i]]);
+            }
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return copyNode().toString();
+        }
+
+        @Override
+        public Object putObject(String attribute, Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void add(JmmNode child, int index) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setChild(JmmNode newNode, int index) {
+            throw readOnly();
+        }
+
+        @Override
+        public JmmNode removeJmmChild(int index) {
+            throw readOnly();
+        }
+
+        // Abstract in JmmNode, replaced by removeChild
+        @Deprecated
+        @Override
+        public int removeJmmChild(JmmNode node) {
+            throw readOnly();
+        }
+
+        @Override
+        public JmmNode detach() {
+            throw readOnly();
+        }
+
+        @Override
+        public void removeParent() {
+            throw readOnly();
+        }
+
+        @Override
+        public void setParent(JmmNode parent) {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Nodes of a compact AST are read-only");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Type of each expression of the AST, keyed by node identity.
+ * <p>
+ * Semantic analysis computes the type of the expressions it checks once, and records it here with
+ * {@link #put(JmmNode, Type)}. The later stages read it through {@link TypeUtils#getExprType(JmmNode, SymbolTable)}.
+ * Expressions the analysis did not type (e.g. nodes created by an AST optimization, or calls to imported methods) are
+ * computed by {@link TypeUtils} on the first lookup and stored. Stages that replace nodes remove them with
+ * {@link #remove(JmmNode)}.
+ * <p>
+ * A table is not thread-safe and is only used by one thread at a time. When methods are analysed in parallel, each
+ * method records into its own table, and the tables are merged into the table of the symbol table with
+ * {@link #putAll(ExprTypeTable)} once the workers are done.
+ */
+public class ExprTypeTable {
+
+    // Null values are kept, some expressions have no known type
+    private final Map<JmmNode, Type> types;
+
+    private long hits;
+    private long misses;
+
+    public ExprTypeTable() {
+        this.types = new IdentityHashMap<>();
+    }
+
+    /**
+     * Records the type of an expression, replacing the type it had.
+     */
+    public void put(JmmNode expr, Type type) {
+        types.put(expr, type);
+    }
+
+    /**
+     * Records every type of the other table.
+     */
+    public void putAll(ExprTypeTable other) {
+        types.putAll(other.types);
+    }
+
+    /**
+     * Removes every expression of the subtree, e.g. of a method that was replaced in the AST.
+     */
+    public void remove(JmmNode subtree) {
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(subtree);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            types.remove(node);
+            node.getChildren().forEach(pending::push);
+        }
+    }
+
+    /**
+     * @return the type of the expression, computed and stored if it is not in the table yet
+     */
+    public Type get(JmmNode expr, SymbolTable table) {
+        var type = types.get(expr);
+        if (type != null || types.containsKey(expr)) {
+            hits++;
+            return type;
+        }
+
+        misses++;
+        type = TypeUtils.computeExprType(expr, table);
+        types.put(expr, type);
+        return type;
+    }
+
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * @return the number of lookups answered by the table
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to compute the type
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -43,6 +45,15 @@ public enum Kind {
     private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, RETURN_STMT, EXPRESSION, ASSiGN_ARRAY, LENGTH);
     private final String name;
 
+    // Kind of each node name, the first kind wins if two have the same name
+    private static final Map<String, Kind> BY_NODE_NAME = new HashMap<>();
+
+    static {
+        for (Kind k : Kind.values()) {
+            BY_NODE_NAME.putIfAbsent(k.getNodeName(), k);
+        }
+    }
+
     private Kind(String name) {
         this.name = name;
     }
@@ -53,12 +64,22 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = BY_NODE_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        return k;
+    }
+
+    /**
+     * Resolves the kind of a node with a single lookup, so callers can compare or switch on the result instead of
+     * comparing strings.
+     *
+     * @param node
+     * @return the Kind with the same name as the kind of the node, or null if there is none
+     */
+    public static Kind of(JmmNode node) {
+        return BY_NODE_NAME.get(node.getKind());
     }
 
     public String getNodeName() {
@@ -91,7 +112,7 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
-        return node.getKind().equals(getNodeName());
+        return of(node) == this;
     }
 
     /**
@@ -0,0 +1,83 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache of the visit method of each node kind of a visitor, in an array indexed by kind.
+ * <p>
+ * {@code AJmmVisitor.getVisit} looks up every kind in the hierarchy of the node in a map keyed by strings, for every
+ * node. Visitors can override it to go through this class instead: the kind of the node is resolved to an index once,
+ * the ordinal of its {@link Kind} (other node kinds get indexes after the last Kind), and the visit method is
+ * resolved by the visitor the first time an index is seen and then read from the array.
+ *
+ * <pre>
+ * private final KindDispatch&lt;Void, String&gt; dispatch = new KindDispatch&lt;&gt;(super::getVisit);
+ *
+ * &#64;Override
+ * protected BiFunction&lt;JmmNode, Void, String&gt; getVisit(JmmNode node) {
+ *     return dispatch.get(node);
+ * }
+ * </pre>
+ * <p>
+ * Nothing is resolved when the dispatch is created, so it can be a field initializer of the visitor even though the
+ * visits are registered earlier, in buildVisitor. The cache assumes the visit methods are not changed after the first
+ * visit. A dispatch is not thread-safe, like the visitor that owns it.
+ */
+public final class KindDispatch<D, R> {
+
+    // Index of each node kind, shared by every dispatch. The kinds of Kind are indexed by their ordinal
+    private static final Map<String, Integer> KIND_INDEXES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger(Kind.values().length);
+
+    static {
+        for (var kind : Kind.values()) {
+            KIND_INDEXES.putIfAbsent(kind.getNodeName(), kind.ordinal());
+        }
+    }
+
+    private final Function<JmmNode, BiFunction<JmmNode, D, R>> resolver;
+    private BiFunction<JmmNode, D, R>[] visits;
+
+    /**
+     * @param resolver finds the visit method of a node the first time its kind is seen, usually the getVisit of the
+     *                 superclass of the visitor
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public KindDispatch(Function<JmmNode, BiFunction<JmmNode, D, R>> resolver) {
+        this.resolver = resolver;
+        this.visits = new BiFunction[NEXT_INDEX.get()];
+    }
+
+    /**
+     * @return the index of a node kind, the ordinal of its {@link Kind} if there is one
+     */
+    public static int indexOf(String kind) {
+        var index = KIND_INDEXES.get(kind);
+        if (index != null) {
+            return index;
+        }
+
+        return KIND_INDEXES.computeIfAbsent(kind, newKind -> NEXT_INDEX.getAndIncrement());
+    }
+
+    public BiFunction<JmmNode, D, R> get(JmmNode node) {
+        int index = indexOf(node.getKind());
+        if (index >= visits.length) {
+            visits = Arrays.copyOf(visits, Math.max(index + 1, visits.length * 2));
+        }
+
+        var visit = visits[index];
+        if (visit == null) {
+            visit = resolver.apply(node);
+            visits[index] = visit;
+        }
+        return visit;
+    }
+}
@@ -3,11 +3,16 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodScope;
+import pt.up.fe.comp2024.utils.CompilerLogger;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 public class TypeUtils {
 
+    private static final CompilerLogger LOG = CompilerLogger.get("ast.types");
+
     private static final String INT_TYPE_NAME = "int";
 
     public static String getIntTypeName() {
@@ -16,33 +21,43 @@ public class TypeUtils {
 
     /**
      * Gets the {@link Type} of an arbitrary expression.
+     * <p>
+     * With a {@link JmmSymbolTable} the type is read from the table of expression types filled by semantic analysis.
      *
      * @param expr
      * @param table
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.getExprTypes().get(expr, table);
+        }
+
+        return computeExprType(expr, table);
+    }
+
+    static Type computeExprType(JmmNode expr, SymbolTable table) {
         var kind = Kind.fromString(expr.getKind());
 
         Type type = switch (kind) {
             case BINARY_EXPR -> getBinExprType(expr);
             case VAR_REF_EXPR -> getVarExprType(expr, table);
-            case INTEGER_LITERAL -> new Type(INT_TYPE_NAME, false);
-            case BOOLEAN -> new Type("boolean", false);
+            case INTEGER_LITERAL -> Types.INT;
+            case BOOLEAN -> Types.BOOLEAN;
             case METHOD_CALL_EXPR -> getMethodCallType(expr, table);
             case NOT -> getVarExprType(expr, table);
             case ARRAY -> getVarExprType(expr.getChild(0), table);
             //case NEW_OBJECT -> getNewObjectType(expr, table);
-            case NEW_OBJECT -> new Type(table.getClassName(), false);
-            case NEW_ARRAY_INT -> new Type("int", true);
-            case ARRAY_INIT -> new Type("int", true);
-            case LENGTH -> new Type("int", false);
+            case NEW_OBJECT -> Types.of(table.getClassName());
+            case NEW_ARRAY_INT -> Types.INT_ARRAY;
+            case ARRAY_INIT -> Types.INT_ARRAY;
+            case LENGTH -> Types.INT;
 
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
 
         if (type == null) {
-            System.err.println("Error: Type is null for expression " + expr);
+            LOG.warn("Type is null for expression {}", expr);
         }
 
         return type;
@@ -56,11 +71,9 @@ public class TypeUtils {
             case "-":
             case "/":
             case "*":
-                return new Type(INT_TYPE_NAME, false);
-            case "=":
-                return new Type("int[]", true);
-            case ">", "<", "&&", "||":
-                return new Type("boolean", false);
+                return Types.INT;
+            case ">", "<", ">=", "<=", "&&", "||":
+                return Types.BOOLEAN;
             default:
                 throw new RuntimeException("Unknown operator '" + operator + "' of expression '" + binaryExpr + "'");
         }
@@ -69,40 +82,37 @@ public class TypeUtils {
 
     private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table) {
         // Placeholder implementation, expand as needed
-        String methodName = varRefExpr.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow();
-        Type retType = table.getReturnType(methodName);
-
-        if (varRefExpr.getKind().equals("Not")) {
-            return new Type("boolean", false);
+        if (NOT.check(varRefExpr)) {
+            return Types.BOOLEAN;
         }
 
-        for (var locals : table.getLocalVariables(methodName)) {
-            if (locals.getName().equals(varRefExpr.get("name"))) {
-                retType = locals.getType();
-            }
+        // Variables outside of a method have no type
+        var method = varRefExpr.getAncestor(METHOD_DECL);
+        if (method.isEmpty()) {
+            return null;
         }
 
-        for (var params : table.getParameters(methodName)) {
-            if (params.getName().equals(varRefExpr.get("name"))) {
-                retType = params.getType();
-            }
+        String methodName = method.get().get("name");
+        Type retType = table.getReturnType(methodName);
+
+        var varType = MethodScope.of(table, methodName).getType(varRefExpr.get("name"));
+        if (varType != null) {
+            retType = varType;
         }
 
-        for (var fields : table.getFields()) {
-            if (fields.getName().equals(varRefExpr.get("name"))) {
-                retType = fields.getType();
-            }
+        if (retType == null) {
+            return null;
         }
 
         if (retType.isArray()) {
-            return new Type("int", true);
+            return Types.INT_ARRAY;
         }
 
         if (retType.getName().equals("boolean")) {
-            return new Type("boolean", false);
+            return Types.BOOLEAN;
         }
 
-        return new Type(INT_TYPE_NAME, false);
+        return Types.INT;
     }
     /*private static Type getNewObjectType(JmmNode newObjectExpr, SymbolTable table) {
         if (newObjectExpr.hasAttribute("className")) {
@@ -120,6 +130,11 @@ public class TypeUtils {
      * @return true if sourceType can be assigned to destinationType
      */
     public static boolean areTypesAssignable(Type sourceType, Type destinationType) {
+        // Built-in types are canonical, the same type is the same instance
+        if (sourceType == destinationType) {
+            return true;
+        }
+
         // Placeholder implementation, expand as needed
         return sourceType.getName().equals(destinationType.getName());
     }
@@ -128,13 +143,13 @@ public class TypeUtils {
         String methodName = methodCallExpr.get("methodName");
 
         if (methodName.equals("println")) {
-            return new Type("void", false);
+            return Types.VOID;
         }
 
         Type returnType = table.getReturnType(methodName);
 
         if (returnType == null) {
-            System.err.println("Error: Return type is null for method " + methodName);
+            LOG.warn("Return type is null for method {}", methodName);
         }
 
         return returnType;
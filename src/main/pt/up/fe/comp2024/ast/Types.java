@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.Map;
+
+/**
+ * Canonical {@link Type} instances.
+ * <p>
+ * {@link Type} is immutable, so the compiler shares one instance per built-in type (int, boolean, void, String and
+ * their arrays) instead of allocating a new one every time a type is computed. Built-in types built by the compiler
+ * are equal if and only if they are the same instance.
+ * <p>
+ * Class types are not interned: the registry is fixed, so it does not grow with the class names of every program
+ * compiled by a long-lived process such as the compile server. Class types are compared with equals.
+ */
+public final class Types {
+
+    public static final Type INT = new Type("int", false);
+    public static final Type BOOLEAN = new Type("boolean", false);
+    public static final Type VOID = new Type("void", false);
+    public static final Type STRING = new Type("String", false);
+    public static final Type INT_ARRAY = new Type("int", true);
+    public static final Type BOOLEAN_ARRAY = new Type("boolean", true);
+    public static final Type STRING_ARRAY = new Type("String", true);
+
+    private static final Map<String, Type> SCALARS = Map.of(
+            "int", INT,
+            "boolean", BOOLEAN,
+            "void", VOID,
+            "String", STRING);
+
+    private static final Map<String, Type> ARRAYS = Map.of(
+            "int", INT_ARRAY,
+            "boolean", BOOLEAN_ARRAY,
+            "String", STRING_ARRAY);
+
+    private Types() {
+    }
+
+    /**
+     * @return the canonical instance of a built-in type, or a new instance for a class type
+     */
+    public static Type of(String name, boolean isArray) {
+        var type = (isArray ? ARRAYS : SCALARS).get(name);
+        return type != null ? type : new Type(name, isArray);
+    }
+
+    /**
+     * @return the canonical instance of a built-in non-array type, or a new instance for a class name
+     */
+    public static Type of(String name) {
+        return of(name, false);
+    }
+
+    /**
+     * @return the canonical instance of a type that may not come from this class
+     */
+    public static Type intern(Type type) {
+        return of(type.getName(), type.isArray());
+    }
+
+    /**
+     * @return true if the type is one of the shared instances of this class
+     */
+    public static boolean isCanonical(Type type) {
+        return (type.isArray() ? ARRAYS : SCALARS).get(type.getName()) == type;
+    }
+}
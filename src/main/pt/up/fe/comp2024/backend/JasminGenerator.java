@@ -4,6 +4,7 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
@@ -89,10 +90,9 @@ public class JasminGenerator {
     }
 
     private String generateSingleOpCond(SingleOpCondInstruction singleOpCondInstruction) {
-        StringBuilder code = new StringBuilder();
-        // Assuming the condition is to check if the operand is zero
-        code.append("ifeq LABEL_TRUE\n");
-        return code.toString();
+        // Jumps if the boolean operand is true, i.e. not zero
+        return generators.apply(singleOpCondInstruction.getCondition().getSingleOperand())
+                + "ifne " + singleOpCondInstruction.getLabel() + NL;
     }
 
     private String generateGoto(GotoInstruction gotoInstruction) {
@@ -100,28 +100,17 @@ public class JasminGenerator {
     }
 
     private String generateOpCond(OpCondInstruction opCondInstruction) {
-        StringBuilder code = new StringBuilder();
-
-        Operation operation = opCondInstruction.getCondition().getOperation();
-        String jmpLabel = "LABEL_TRUE";
-
-        switch (operation.getOpType()) {
-            case LTH:
-                code.append("if_icmplt ").append(jmpLabel).append("\n");
-                break;
-            case GTH:
-                code.append("if_icmpgt ").append(jmpLabel).append("\n");
-                break;
-            case LTE:
-                code.append("if_icmple ").append(jmpLabel).append("\n");
-                break;
-            case GTE:
-                code.append("if_icmpge ").append(jmpLabel).append("\n");
-                break;
-            default:
-                throw new NotImplementedException("Operation not implemented: " + operation.getOpType());
+        var condition = opCondInstruction.getCondition();
+        var label = opCondInstruction.getLabel();
+
+        // Comparisons jump on the two operands, other conditions are computed as a boolean first
+        if (condition instanceof BinaryOpInstruction binaryOp && isBooleanOperation(binaryOp.getOperation())) {
+            return generators.apply(binaryOp.getLeftOperand())
+                    + generators.apply(binaryOp.getRightOperand())
+                    + getOperation(binaryOp.getOperation()) + " " + label + NL;
         }
-        return code.toString();
+
+        return generators.apply(condition) + "ifne " + label + NL;
     }
 
     public List<Report> getReports() {
@@ -175,6 +164,15 @@ public class JasminGenerator {
     }
 
     private String generateMethod(Method method) {
+        try (var span = CompilerProfiler.current().start("jasmin", method.getMethodName())) {
+            var methodCode = buildMethod(method);
+            span.count("ollirInstructions", method.getInstructions().size());
+            span.count("jasminLines", methodCode.lines().count());
+            return methodCode;
+        }
+    }
+
+    private String buildMethod(Method method) {
         // Set method
         currentMethod = method;
 
@@ -208,7 +206,15 @@ public class JasminGenerator {
         code.append(TAB).append(".limit stack ").append(limit_stack).append(NL);
         code.append(TAB).append(".limit locals ").append(limit_locals).append(NL);
 
+        // The label map of each instruction is built once and may be stale after the optimizations
+        var labels = new IdentityHashMap<Instruction, List<String>>();
+        method.getLabels().forEach((label, inst) -> labels.computeIfAbsent(inst, key -> new ArrayList<>()).add(label));
+
         for (var inst : method.getInstructions()) {
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                code.append(label).append(":").append(NL);
+            }
+
             var instCode = StringLines.getLines(generators.apply(inst)).stream()
                     .collect(Collectors.joining(NL + TAB, TAB, NL));
             code.append(instCode);
@@ -293,13 +299,39 @@ public class JasminGenerator {
     }
 
     private String generateLiteral(LiteralElement literal) {
-        return "ldc " + literal.getLiteral() + NL;
+        return loadConstant(literal.getLiteral()) + NL;
+    }
+
+    /**
+     * @return the shortest instruction that pushes the integer constant: iconst, bipush, sipush or ldc
+     */
+    private static String loadConstant(String literal) {
+        int value;
+        try {
+            value = Integer.parseInt(literal);
+        } catch (NumberFormatException e) {
+            return "ldc " + literal;
+        }
+
+        if (value >= -1 && value <= 5) {
+            return value == -1 ? "iconst_m1" : "iconst_" + value;
+        }
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return "bipush " + value;
+        }
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return "sipush " + value;
+        }
+        return "ldc " + value;
     }
 
     private String generateOperand(Operand operand) {
         // Get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
-        return "iload " + reg + NL;
+        return switch (operand.getType().getTypeOfElement()) {
+            case INT32, BOOLEAN -> "iload " + reg + NL;
+            default -> "aload " + reg + NL;
+        };
     }
 
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
@@ -312,21 +344,21 @@ public class JasminGenerator {
         // Get the operation code from the operation type
         String op = getOperation(binaryOp.getOperation());
 
-        // Append the operation to the code
-        code.append(op).append(NL);
-
-        // Handle boolean operations with specific control flow adjustments
+        // Comparisons jump to push 1 when they hold, and push 0 otherwise
         if (isBooleanOperation(binaryOp.getOperation())) {
             String labelTrue = "TRUE" + conditionalAux;
             String labelNext = "NEXT" + conditionalAux;
 
-            code.append(" iconst_0\n")
-                    .append("\tgoto ").append(labelNext).append("\n")
-                    .append(labelTrue).append(":\n")
-                    .append("\ticonst_1\n")
-                    .append(labelNext).append(":\n");
+            code.append(op).append(" ").append(labelTrue).append(NL)
+                    .append("iconst_0").append(NL)
+                    .append("goto ").append(labelNext).append(NL)
+                    .append(labelTrue).append(":").append(NL)
+                    .append("iconst_1").append(NL)
+                    .append(labelNext).append(":").append(NL);
 
             conditionalAux++;  // Ensure the label numbers are incremented to maintain uniqueness
+        } else {
+            code.append(op).append(NL);
         }
 
         return code.toString();
@@ -434,7 +466,7 @@ public class JasminGenerator {
 
         String valueCode;
         if (value instanceof LiteralElement) {
-            valueCode = "\tldc " + ((LiteralElement) value).getLiteral() + "\n";
+            valueCode = "\t" + loadConstant(((LiteralElement) value).getLiteral()) + "\n";
         } else if (value instanceof Operand) {
             valueCode = String.format("\t%s %d\n", getLoadInstruction(value.getType()), currentMethod.getVarTable().get(((Operand) value).getName()).getVirtualReg());
         } else {
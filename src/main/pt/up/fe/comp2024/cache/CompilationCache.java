@@ -0,0 +1,376 @@
+package pt.up.fe.comp2024.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache of compilation results.
+ * <p>
+ * Entries are keyed by a hash of the source code, the options that change the generated code and the compiler
+ * version. Each entry is one file, written to a temporary file and then atomically moved into place, so several
+ * processes can share the same cache folder. When the folder grows past its size bound, the least recently used
+ * entries are deleted until it is back under {@link #EVICTION_TARGET} of the bound.
+ * <p>
+ * Releases are identified by their implementation version. Development builds are identified by a hash of their
+ * compiled classes, and caching is disabled if those cannot be read.
+ */
+public class CompilationCache {
+
+    private static final CompilerLogger LOG = CompilerLogger.get("cache");
+
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final String TEMP_EXTENSION = ".tmp";
+    // Temporary files older than this were left by a process that died while writing them
+    private static final long TEMP_MAX_AGE_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_MAX_MB = 256;
+    private static final double EVICTION_TARGET = 0.9;
+
+    private static final Map<String, CompilationCache> OPEN_CACHES = new ConcurrentHashMap<>();
+
+    private static final String COMPILER_VERSION = computeCompilerVersion();
+
+    private final Path folder;
+    private final long maxBytes;
+    private final Gson gson;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Size of the folder as seen by this process, entries written by other processes are counted on the next eviction
+    private final AtomicLong knownBytes = new AtomicLong();
+
+    public CompilationCache(File folder, long maxBytes) {
+        this.folder = folder.toPath();
+        this.maxBytes = maxBytes;
+        this.gson = new Gson();
+
+        try {
+            Files.createDirectories(this.folder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cache folder '" + folder + "'", e);
+        }
+
+        knownBytes.set(listEntries().stream().mapToLong(CompilationCache::sizeOf).sum());
+    }
+
+    /**
+     * @return the cache configured with '-c=<dir>' (and optionally '-m=<MB>'), shared by every pipeline of this
+     * process, or empty if caching is disabled or the compiler version is unknown
+     */
+    public static Optional<CompilationCache> fromConfig(Map<String, String> config) {
+        if (COMPILER_VERSION == null) {
+            return Optional.empty();
+        }
+
+        return CompilerConfig.getCacheFolder(config)
+                .map(folder -> OPEN_CACHES.computeIfAbsent(folder.getAbsolutePath(),
+                        path -> new CompilationCache(folder,
+                                CompilerConfig.getCacheMaxMb(config, DEFAULT_MAX_MB) * 1024 * 1024)));
+    }
+
+    /**
+     * Builds the key of a compilation: source code, code generation options and compiler version.
+     */
+    public String key(String code, Map<String, String> config) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(COMPILER_VERSION).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(CompilerConfig.getOptimize(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(CompilerConfig.getRegisterAllocation(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(code.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    public Optional<Entry> get(String key) {
+        var file = entryFile(key);
+
+        try {
+            var json = Files.readString(file, StandardCharsets.UTF_8);
+            var entry = gson.fromJson(json, Entry.class);
+
+            // Mark as recently used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+
+            hits.incrementAndGet();
+            return Optional.of(entry);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        } catch (IOException | JsonSyntaxException e) {
+            // Unreadable entry, e.g. deleted by a concurrent eviction, treat as a miss
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, Entry entry) {
+        var file = entryFile(key);
+
+        long addedBytes;
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(folder, key, TEMP_EXTENSION);
+            Files.writeString(tempFile, gson.toJson(entry), StandardCharsets.UTF_8);
+            addedBytes = Files.size(tempFile) - sizeOf(file);
+
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+
+            stores.incrementAndGet();
+        } catch (IOException e) {
+            // The cache is an optimization, a failed write only means a future miss
+            LOG.warn("Could not write cache entry '{}': {}", file, e.getMessage());
+            return;
+        } finally {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
+
+        if (knownBytes.addAndGet(addedBytes) > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Lists the folder, which may have entries of other processes, and deletes the least recently used entries until
+     * it is under the target size. Old temporary files are deleted too.
+     */
+    private synchronized void evict() {
+        sweepTempFiles();
+
+        var entries = listEntries();
+        long totalBytes = entries.stream().mapToLong(CompilationCache::sizeOf).sum();
+        if (totalBytes <= maxBytes) {
+            knownBytes.set(totalBytes);
+            return;
+        }
+
+        // Least recently used first
+        entries.sort(Comparator.comparingLong(CompilationCache::lastModified));
+
+        long targetBytes = (long) (maxBytes * EVICTION_TARGET);
+        for (var entry : entries) {
+            if (totalBytes <= targetBytes) {
+                break;
+            }
+
+            long size = sizeOf(entry);
+            try {
+                if (Files.deleteIfExists(entry)) {
+                    totalBytes -= size;
+                    evictions.incrementAndGet();
+                }
+            } catch (IOException e) {
+                // Another process may be using it, try the next one
+            }
+        }
+        knownBytes.set(totalBytes);
+    }
+
+    /**
+     * Deletes the temporary files of writes that never finished, e.g. of a process that was killed. Recent ones may
+     * still be written by another process.
+     */
+    private void sweepTempFiles() {
+        long oldest = System.currentTimeMillis() - TEMP_MAX_AGE_MS;
+        try (Stream<Path> files = Files.list(folder)) {
+            files.filter(path -> path.toString().endsWith(TEMP_EXTENSION))
+                    .filter(path -> lastModified(path) < oldest)
+                    .forEach(CompilationCache::deleteQuietly);
+        } catch (IOException e) {
+            // Swept on the next eviction
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Another process may be using it
+        }
+    }
+
+    private List<Path> listEntries() {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(path -> path.toString().endsWith(ENTRY_EXTENSION))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private Path entryFile(String key) {
+        return folder.resolve(key + ENTRY_EXTENSION);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the implementation version, a hash of the jar or of the class files of a development build, or null if
+     * they cannot be read
+     */
+    private static String computeCompilerVersion() {
+        var version = Launcher.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+
+        // Timestamps change on every build even if the classes do not, and do not change if an old build is copied
+        try {
+            var location = Path.of(Launcher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            var digest = MessageDigest.getInstance("SHA-256");
+            if (Files.isDirectory(location)) {
+                List<Path> classFiles;
+                try (Stream<Path> files = Files.walk(location)) {
+                    classFiles = files.filter(path -> path.toString().endsWith(".class")).sorted().toList();
+                }
+                for (var classFile : classFiles) {
+                    digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(Files.readAllBytes(classFile));
+                }
+            } else {
+                digest.update(Files.readAllBytes(location));
+            }
+            return "dev-" + HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            LOG.warn("Could not identify the compiler build, caching is disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getStores() {
+        return stores.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + folder + ": " + getHits() + " hits, " + getMisses() + " misses, " + getStores()
+                + " stores, " + getEvictions() + " evictions";
+    }
+
+    /**
+     * Stored result of a compilation.
+     */
+    public static class Entry {
+
+        private String className;
+        private String ollirCode;
+        private String jasminCode;
+        private List<StoredReport> reports;
+
+        public Entry(String className, String ollirCode, String jasminCode, List<Report> reports) {
+            this.className = className;
+            this.ollirCode = ollirCode;
+            this.jasminCode = jasminCode;
+            this.reports = reports.stream().map(StoredReport::new).collect(Collectors.toList());
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getOllirCode() {
+            return ollirCode;
+        }
+
+        public String getJasminCode() {
+            return jasminCode;
+        }
+
+        public List<Report> getReports() {
+            var restored = new ArrayList<Report>();
+            reports.forEach(report -> restored.add(report.toReport()));
+            return restored;
+        }
+    }
+
+    private static class StoredReport {
+
+        private String type;
+        private String stage;
+        private int line;
+        private int column;
+        private String message;
+
+        private StoredReport(Report report) {
+            this.type = report.getType().name();
+            this.stage = report.getStage().name();
+            this.line = report.getLine();
+            this.column = report.getColumn();
+            this.message = report.getMessage();
+        }
+
+        private Report toReport() {
+            return new Report(ReportType.valueOf(type), Stage.valueOf(stage), line, column, message);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.daemon;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Thin client for the {@link CompileServer}.
+ * <p>
+ * Accepts the same options as the launcher, e.g. 'jmmc -i=File.jmm -o', and prints the OLLIR and Jasmin code returned
+ * by the server. 'jmmc stats' prints the server latency statistics and 'jmmc shutdown' stops the server.
+ */
+public class CompileClient {
+
+    public static void main(String[] args) throws IOException {
+        JsonObject request = new JsonObject();
+        int port;
+        boolean quiet = false;
+
+        if (args.length > 0 && (args[0].equals("stats") || args[0].equals("shutdown"))) {
+            request.addProperty("command", args[0]);
+            var config = CompilerConfig.getDefault();
+            Arrays.stream(args).skip(1)
+                    .filter(arg -> arg.startsWith("-p="))
+                    .forEach(arg -> config.put("port", arg.substring(3)));
+            port = CompilerConfig.getPort(config);
+        } else {
+            Map<String, String> config = CompilerConfig.parseArgs(args);
+            port = CompilerConfig.getPort(config);
+            quiet = CompilerConfig.getQuiet(config);
+
+            // The server reads the file itself, only the options travel over the socket
+            request.addProperty("path", CompilerConfig.getInputFile(config).orElseThrow().getAbsolutePath());
+            var requestConfig = new JsonObject();
+            config.forEach(requestConfig::addProperty);
+            request.add("config", requestConfig);
+        }
+
+        var response = send(request, port);
+
+        if (request.has("command")) {
+            System.out.println(response);
+            return;
+        }
+
+        if (response.has("error")) {
+            System.err.println(response.get("error").getAsString());
+        }
+
+        if (response.has("reports")) {
+            response.getAsJsonArray("reports").forEach(report -> {
+                var json = report.getAsJsonObject();
+                System.err.println(json.get("type").getAsString() + "@" + json.get("stage").getAsString()
+                        + ", line " + json.get("line").getAsInt() + ", col " + json.get("column").getAsInt() + ": "
+                        + json.get("message").getAsString());
+            });
+        }
+
+        if (!quiet && response.has("ollir")) {
+            System.out.println(response.get("ollir").getAsString());
+        }
+
+        if (!quiet && response.has("jasmin")) {
+            System.out.println(response.get("jasmin").getAsString());
+        }
+
+        if (!response.get("ok").getAsBoolean()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sends a single request to the server running on the given loopback port, with the token the server wrote for
+     * its owner.
+     *
+     * @param request
+     * @param port
+     * @return the response of the server
+     */
+    public static JsonObject send(JsonObject request, int port) throws IOException {
+        if (!request.has("token")) {
+            try {
+                request.addProperty("token", ServerToken.read(port));
+            } catch (IOException e) {
+                throw new IOException("Could not read the token of the compile server on port " + port
+                        + " from " + ServerToken.file(port) + ", is it running?", e);
+            }
+        }
+
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            out.write(request.toString());
+            out.newLine();
+            out.flush();
+
+            var line = in.readLine();
+            if (line == null) {
+                throw new IOException("Compile server closed the connection without answering");
+            }
+
+            return JsonParser.parseString(line).getAsJsonObject();
+        }
+    }
+}
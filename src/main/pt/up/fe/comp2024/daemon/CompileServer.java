@@ -0,0 +1,388 @@
+package pt.up.fe.comp2024.daemon;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmPipeline;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.parser.PredictionCache;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived compile server that keeps the compiler pipeline warm between invocations.
+ * <p>
+ * Listens on a loopback TCP port. Each request and each response is a single line of JSON:
+ * <pre>
+ * {"path": "/abs/File.jmm", "config": {"optimize": "true"}}   compiles a file on disk
+ * {"code": "class A {}", "config": {}}                        compiles the given source code
+ * {"command": "stats"}                                        returns the latency statistics
+ * {"command": "clearParserCache"}                             drops the DFA caches of the parser
+ * {"command": "shutdown"}                                     stops the server
+ * </pre>
+ * Every request must also have a "token" field with the secret of the server, see {@link ServerToken}.
+ * <p>
+ * Each connection is read and written by a thread of its own, up to {@value #MAX_CONNECTIONS} open connections. Its
+ * first request must arrive within {@value #AUTH_TIMEOUT_MS} ms and have the right token, otherwise the connection is
+ * closed. An authenticated connection that stays idle for {@value #IDLE_TIMEOUT_MS} ms is closed as well.
+ * <p>
+ * Compilations are queued in a bounded queue and run by a fixed number of workers, one pipeline per worker. A
+ * connection only holds a worker while one of its requests compiles, so idle clients do not block the others.
+ */
+public class CompileServer {
+
+    private static final CompilerLogger LOG = CompilerLogger.get("daemon");
+
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int MAX_CONNECTIONS = 64;
+    private static final int AUTH_TIMEOUT_MS = 5_000;
+    private static final int IDLE_TIMEOUT_MS = 30_000;
+
+    // Fields of a request whose value must be a string
+    private static final List<String> STRING_FIELDS = List.of("token", "command", "code", "path");
+
+    private final int port;
+    private final Map<String, String> defaultConfig;
+    private final ThreadPoolExecutor connections;
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<JmmPipeline> workerPipeline;
+    private final LatencyStats stats;
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private String token;
+
+    public CompileServer(Map<String, String> config) {
+        this.port = CompilerConfig.getPort(config);
+        this.defaultConfig = new HashMap<>(config);
+        int jobs = CompilerConfig.getJobs(config);
+        this.connections = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+        this.workers = new ThreadPoolExecutor(jobs, jobs, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        this.workerPipeline = ThreadLocal.withInitial(JmmPipeline::new);
+        this.stats = new LatencyStats();
+    }
+
+    /**
+     * Accepts connections until a shutdown request is received.
+     */
+    public void run() throws IOException {
+        running = true;
+
+        // The first compilations should not pay for building the DFA of the parser
+        PredictionCache.warmUp();
+
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        token = ServerToken.create(port);
+        System.out.println("Compile server listening on " + serverSocket.getLocalSocketAddress()
+                + " with " + workers.getCorePoolSize() + " worker(s), token in " + ServerToken.file(port));
+
+        try {
+            while (running) {
+                Socket client;
+                try {
+                    client = serverSocket.accept();
+                } catch (IOException e) {
+                    // Socket closed by a shutdown request
+                    if (!running) {
+                        break;
+                    }
+                    throw e;
+                }
+
+                try {
+                    connections.execute(() -> handleConnection(client));
+                } catch (RejectedExecutionException e) {
+                    stats.recordRejected();
+                    reject(client);
+                }
+            }
+        } finally {
+            connections.shutdown();
+            workers.shutdown();
+            serverSocket.close();
+            ServerToken.delete(port);
+        }
+    }
+
+    private static void reject(Socket client) {
+        try (client;
+             var out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            out.write(error("Compile server is busy, " + MAX_CONNECTIONS + " connections already open").toString());
+            out.newLine();
+        } catch (IOException e) {
+            // The client is gone
+        }
+    }
+
+    /**
+     * Serves the requests of a connection on the current connection thread. Compilations run on the workers.
+     */
+    private void handleConnection(Socket client) {
+        try (client;
+             var in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             var out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            // Until it sends the token, a client only gets a short time to send its first request
+            client.setSoTimeout(AUTH_TIMEOUT_MS);
+            boolean authenticated = false;
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                JsonObject request;
+                String invalid;
+                try {
+                    request = JsonParser.parseString(line).getAsJsonObject();
+                    invalid = validate(request);
+                } catch (RuntimeException e) {
+                    request = null;
+                    invalid = "Malformed request: " + e.getMessage();
+                }
+                if (invalid != null) {
+                    write(out, error(invalid));
+                    if (!authenticated) {
+                        break;
+                    }
+                    continue;
+                }
+
+                if (!ServerToken.matches(token, getString(request, "token"))) {
+                    write(out, error("Missing or wrong token, see " + ServerToken.file(port)));
+                    break;
+                }
+
+                if (!authenticated) {
+                    authenticated = true;
+                    client.setSoTimeout(IDLE_TIMEOUT_MS);
+                }
+
+                JsonObject response;
+                try {
+                    response = handleRequest(request);
+                } catch (RuntimeException e) {
+                    response = error("Exception while handling the request: " + e);
+                }
+                write(out, response);
+
+                if (!running) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle or unauthenticated connection, closed to free its thread
+        } catch (IOException e) {
+            LOG.warn("Connection error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return why the request is not valid, or null if it is
+     */
+    private static String validate(JsonObject request) {
+        for (var field : STRING_FIELDS) {
+            if (request.has(field) && !isString(request.get(field))) {
+                return "Field '" + field + "' must be a string";
+            }
+        }
+
+        if (request.has("config")) {
+            if (!request.get("config").isJsonObject()) {
+                return "Field 'config' must be an object";
+            }
+            for (var option : request.getAsJsonObject("config").entrySet()) {
+                if (!option.getValue().isJsonPrimitive()) {
+                    return "Option '" + option.getKey() + "' of 'config' must be a string, number or boolean";
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isString(JsonElement element) {
+        return element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+    }
+
+    /**
+     * @return the value of a string field of a validated request, or null if it does not have the field
+     */
+    private static String getString(JsonObject request, String field) {
+        return request.has(field) ? request.get(field).getAsString() : null;
+    }
+
+    private static void write(BufferedWriter out, JsonObject response) throws IOException {
+        out.write(response.toString());
+        out.newLine();
+        out.flush();
+    }
+
+    private JsonObject handleRequest(JsonObject request) {
+        if (request.has("command")) {
+            return handleCommand(getString(request, "command"));
+        }
+
+        // Waits for a worker, which already has a pipeline
+        Future<JsonObject> compilation;
+        try {
+            compilation = workers.submit(new CompileTask(request, System.nanoTime()));
+        } catch (RejectedExecutionException e) {
+            stats.recordRejected();
+            return error("Compile server is busy, " + QUEUE_CAPACITY + " compilations already queued");
+        }
+
+        try {
+            return compilation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error("Interrupted while waiting for the compilation");
+        } catch (ExecutionException e) {
+            return error("Exception during compilation: " + e.getCause());
+        }
+    }
+
+    private JsonObject handleCommand(String command) {
+        switch (command) {
+            case "stats":
+                var response = stats.toJson();
+                response.addProperty("ok", true);
+                response.addProperty("queued", workers.getQueue().size());
+                CompilationCache.fromConfig(defaultConfig).ifPresent(cache -> {
+                    response.addProperty("cacheHits", cache.getHits());
+                    response.addProperty("cacheMisses", cache.getMisses());
+                    response.addProperty("cacheEvictions", cache.getEvictions());
+                });
+                response.addProperty("dfaStates", PredictionCache.size());
+                return response;
+            case "clearParserCache":
+                PredictionCache.clear();
+                var cleared = new JsonObject();
+                cleared.addProperty("ok", true);
+                return cleared;
+            case "shutdown":
+                running = false;
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    // Already closed
+                }
+                var ok = new JsonObject();
+                ok.addProperty("ok", true);
+                return ok;
+            default:
+                return error("Unknown command '" + command + "'");
+        }
+    }
+
+    private class CompileTask implements Callable<JsonObject> {
+
+        private final JsonObject request;
+        private final long submitted;
+
+        private CompileTask(JsonObject request, long submitted) {
+            this.request = request;
+            this.submitted = submitted;
+        }
+
+        @Override
+        public JsonObject call() {
+            long started = System.nanoTime();
+            var response = new JsonObject();
+
+            try {
+                var config = new HashMap<>(defaultConfig);
+                if (request.has("config")) {
+                    request.getAsJsonObject("config").entrySet()
+                            .forEach(entry -> config.put(entry.getKey(), entry.getValue().getAsString()));
+                }
+
+                JmmPipeline.Result result;
+                if (request.has("code")) {
+                    result = workerPipeline.get().compile(getString(request, "code"), config);
+                } else if (request.has("path")) {
+                    var file = new File(getString(request, "path"));
+                    if (!file.isFile()) {
+                        return error("Could not find input file '" + file + "'");
+                    }
+                    result = workerPipeline.get().compile(file, config);
+                } else {
+                    return error("Expected a 'path', 'code' or 'command' field");
+                }
+
+                response.addProperty("ok", !result.hasErrors());
+                response.addProperty("cached", result.isFromCache());
+                response.add("reports", toJson(result));
+                if (result.getOllirCode() != null) {
+                    response.addProperty("ollir", result.getOllirCode());
+                }
+                if (result.getJasminResult() != null) {
+                    response.addProperty("jasmin", result.getJasminResult().getJasminCode());
+                }
+                if (CompilerConfig.getProfile(config).isPresent() && result.getProfiler().isPresent()) {
+                    response.add("profile", result.getProfiler().get().toJson());
+                }
+            } catch (Throwable e) {
+                // Errors such as a StackOverflowError on a deeply nested input only fail this request
+                response = error("Exception during compilation: " + e);
+            }
+
+            long finished = System.nanoTime();
+            stats.record(started - submitted, finished - started);
+
+            response.addProperty("queueMillis", (started - submitted) / 1_000_000.0);
+            response.addProperty("compileMillis", (finished - started) / 1_000_000.0);
+
+            return response;
+        }
+    }
+
+    private static JsonArray toJson(JmmPipeline.Result result) {
+        var reports = new JsonArray();
+        for (Report report : result.getReports()) {
+            var json = new JsonObject();
+            json.addProperty("type", report.getType().name());
+            json.addProperty("stage", report.getStage().name());
+            json.addProperty("line", report.getLine());
+            json.addProperty("column", report.getColumn());
+            json.addProperty("message", report.getMessage());
+            reports.add(json);
+        }
+        return reports;
+    }
+
+    private static JsonObject error(String message) {
+        var response = new JsonObject();
+        response.addProperty("ok", false);
+        response.addProperty("error", message);
+        return response;
+    }
+}
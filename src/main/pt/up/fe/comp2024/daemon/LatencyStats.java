@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024.daemon;
+
+import com.google.gson.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * Per-request latency statistics of the compile server.
+ * <p>
+ * Percentiles are computed over the most recent requests only, so memory stays constant for long-lived servers.
+ */
+public class LatencyStats {
+
+    private static final int WINDOW = 1024;
+
+    private final long[] recent = new long[WINDOW];
+    private long requests = 0;
+    private long rejected = 0;
+    private long totalQueueNanos = 0;
+    private long totalCompileNanos = 0;
+    private long maxLatencyNanos = 0;
+
+    public synchronized void record(long queueNanos, long compileNanos) {
+        long latency = queueNanos + compileNanos;
+
+        recent[(int) (requests % WINDOW)] = latency;
+        requests++;
+        totalQueueNanos += queueNanos;
+        totalCompileNanos += compileNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+    }
+
+    public synchronized void recordRejected() {
+        rejected++;
+    }
+
+    public synchronized JsonObject toJson() {
+        var json = new JsonObject();
+        json.addProperty("requests", requests);
+        json.addProperty("rejected", rejected);
+
+        if (requests == 0) {
+            return json;
+        }
+
+        var window = Arrays.copyOf(recent, (int) Math.min(requests, WINDOW));
+        Arrays.sort(window);
+
+        json.addProperty("avgQueueMillis", toMillis(totalQueueNanos / requests));
+        json.addProperty("avgCompileMillis", toMillis(totalCompileNanos / requests));
+        json.addProperty("maxMillis", toMillis(maxLatencyNanos));
+        json.addProperty("p50Millis", toMillis(percentile(window, 0.50)));
+        json.addProperty("p95Millis", toMillis(percentile(window, 0.95)));
+        json.addProperty("p99Millis", toMillis(percentile(window, 0.99)));
+
+        return json;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
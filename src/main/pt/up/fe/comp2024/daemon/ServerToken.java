@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.daemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Secret shared by the {@link CompileServer} and its clients, so other users of the machine cannot send requests to
+ * the loopback port.
+ * <p>
+ * The server creates a random token when it starts and writes it to '~/.jmm/server-&lt;port&gt;.token', readable only
+ * by its owner. Clients read the file and send the token with every request.
+ */
+final class ServerToken {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private ServerToken() {
+    }
+
+    static Path file(int port) {
+        return Path.of(System.getProperty("user.home"), ".jmm", "server-" + port + ".token");
+    }
+
+    /**
+     * Creates a new token for the server on the given port, replacing the one of a previous server.
+     */
+    static String create(int port) throws IOException {
+        var bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        var token = HexFormat.of().formatHex(bytes);
+
+        var file = file(port);
+        var folder = file.getParent();
+        boolean posix = folder.getFileSystem().supportedFileAttributeViews().contains("posix");
+
+        if (posix) {
+            try {
+                Files.createDirectory(folder, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rwx------")));
+            } catch (FileAlreadyExistsException e) {
+                // Created by a previous server
+            }
+        } else {
+            Files.createDirectories(folder);
+        }
+
+        // The token is only written once the file is private
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            var created = Files.createFile(file).toFile();
+            created.setReadable(false, false);
+            created.setWritable(false, false);
+            created.setReadable(true, true);
+            created.setWritable(true, true);
+        }
+        Files.writeString(file, token, StandardCharsets.UTF_8);
+
+        return token;
+    }
+
+    /**
+     * @return the token of the server running on the given port
+     */
+    static String read(int port) throws IOException {
+        return Files.readString(file(port), StandardCharsets.UTF_8).trim();
+    }
+
+    static void delete(int port) {
+        try {
+            Files.deleteIfExists(file(port));
+        } catch (IOException e) {
+            // A stale token is replaced by the next server
+        }
+    }
+
+    /**
+     * Compares the tokens in constant time.
+     */
+    static boolean matches(String expected, String actual) {
+        return actual != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                actual.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,434 @@
+package pt.up.fe.comp2024.incremental;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import static pt.up.fe.comp2024.ast.Kind.CLASS_DECL;
+import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
+
+/**
+ * Parsing and semantic analysis of successive versions of a file, reusing the results of the previous version.
+ * <p>
+ * Each new version is compared with the previous one. If the changed characters are all inside the body of one
+ * method (between its first and its last character), only that method is parsed again, with the 'methodDecl' rule,
+ * and its subtree is replaced in the AST. The positions of the new nodes are moved to the position of the method in
+ * the file, and the nodes and reports of the following methods are moved by the number of lines added or removed.
+ * <ul>
+ * <li>If the signature of the method (name, return type, parameters and locals) did not change, the symbol table and
+ * the reports of the other units are kept, and only the method is analysed again ({@link Update#METHOD}).</li>
+ * <li>Otherwise the other units may depend on it, the symbol table is replaced and every unit is analysed again
+ * ({@link Update#SIGNATURE}).</li>
+ * </ul>
+ * Any other change (imports, fields, several methods, or a method that no longer parses on its own) goes through the
+ * whole front end ({@link Update#FULL}), so the results are always the ones of a full compilation.
+ * <p>
+ * An instance keeps the state of one file and must not be shared between threads.
+ */
+public class IncrementalFrontEnd {
+
+    public enum Update {
+        FULL,
+        SIGNATURE,
+        METHOD,
+        UNCHANGED
+    }
+
+    private static final CompilerLogger LOG = CompilerLogger.get("incremental");
+
+    private static final String METHOD_RULE = "methodDecl";
+    private static final String[] LINE_KEYS = {"lineStart", "lineEnd"};
+    private static final long WATCH_INTERVAL_MS = 50;
+
+    private final Map<String, String> config;
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl analysis;
+
+    // State of the last version, parserResult is null if it did not parse
+    private String code;
+    private JmmParserResult parserResult;
+    private JmmNode classDecl;
+    private JmmSymbolTable table;
+    private List<List<Report>> classReports;
+    private final List<Method> methods;
+    private List<Report> reports;
+
+    private Update lastUpdate;
+    private final Map<Update, Long> updateCounts;
+
+    public IncrementalFrontEnd(Map<String, String> config) {
+        this.config = config;
+        this.parser = new JmmParserImpl();
+        this.analysis = new JmmAnalysisImpl();
+        this.methods = new ArrayList<>();
+        this.reports = List.of();
+        this.updateCounts = new EnumMap<>(Update.class);
+    }
+
+    /**
+     * A method of the last version, with its range of characters in the code and its analysis reports.
+     */
+    private static class Method {
+
+        private JmmNode node;
+        private int start;
+        private int end;
+        private List<List<Report>> reports;
+
+        private Method(JmmNode node, int start, int end) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Checks a new version of the code.
+     *
+     * @return the reports of the parser and of the semantic analysis, the same as a full compilation
+     */
+    public List<Report> update(String newCode) {
+        if (parserResult != null && newCode.equals(code)) {
+            setLastUpdate(Update.UNCHANGED);
+            return reports;
+        }
+
+        if (parserResult == null || !updateMethod(newCode)) {
+            updateAll(newCode);
+        }
+
+        code = newCode;
+        return reports;
+    }
+
+    /**
+     * @return the result of the semantic analysis of the last version, or null if it did not parse
+     */
+    public JmmSemanticsResult getSemanticsResult() {
+        if (parserResult == null) {
+            return null;
+        }
+        return new JmmSemanticsResult(parserResult.getRootNode(), table, reports, config);
+    }
+
+    /**
+     * @return how the last version was checked, or null before the first one
+     */
+    public Update getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * @return the number of versions checked with the given kind of update
+     */
+    public long getUpdateCount(Update update) {
+        return updateCounts.getOrDefault(update, 0L);
+    }
+
+    /**
+     * Checks the file every time it changes, printing its reports and the time of each check. Returns when the
+     * thread is interrupted.
+     */
+    public void watch(File file, PrintStream out) {
+        long lastModified = -1;
+        long lastLength = -1;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            if (file.lastModified() != lastModified || file.length() != lastLength) {
+                lastModified = file.lastModified();
+                lastLength = file.length();
+
+                var newCode = SpecsIo.read(file);
+                long start = System.nanoTime();
+                var newReports = update(newCode);
+                long elapsed = System.nanoTime() - start;
+
+                out.println("[" + lastUpdate + "] " + file.getName() + ": " + newReports.size() + " report(s) in "
+                        + String.format("%.3f", elapsed / 1e6) + " ms");
+                newReports.forEach(out::println);
+            }
+
+            try {
+                Thread.sleep(WATCH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void updateAll(String newCode) {
+        setLastUpdate(Update.FULL);
+        methods.clear();
+        classDecl = null;
+        table = null;
+
+        parserResult = parser.parse(newCode, config);
+        if (parserResult.getRootNode() == null || ReportUtils.anyError(parserResult.getReports())) {
+            reports = parserResult.getReports();
+            parserResult = null;
+            return;
+        }
+
+        var root = parserResult.getRootNode();
+        classDecl = root.getChildren(CLASS_DECL).get(0);
+
+        var lineStarts = lineStarts(newCode);
+        for (var child : classDecl.getChildren()) {
+            if (child.isInstance(METHOD_DECL)) {
+                methods.add(new Method(child, startOffset(child, lineStarts), endOffset(child, lineStarts)));
+            }
+        }
+
+        analyzeAll(JmmSymbolTableBuilder.build(root));
+    }
+
+    /**
+     * Parses and analyses only the method that contains every change.
+     *
+     * @return false if the change is not inside a single method, or the method does not parse on its own
+     */
+    private boolean updateMethod(String newCode) {
+        int oldLength = code.length();
+        int newLength = newCode.length();
+        int maxCommon = Math.min(oldLength, newLength);
+
+        int prefix = 0;
+        while (prefix < maxCommon && code.charAt(prefix) == newCode.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && code.charAt(oldLength - 1 - suffix) == newCode.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+
+        // The first and the last character of the method must not change, so the tokens around it stay the same
+        int changedEnd = oldLength - suffix;
+        int index = -1;
+        for (int i = 0; i < methods.size(); i++) {
+            if (methods.get(i).start < prefix && changedEnd < methods.get(i).end) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return false;
+        }
+
+        var method = methods.get(index);
+        int delta = newLength - oldLength;
+        var region = newCode.substring(method.start, method.end + delta);
+
+        var result = parser.parse(region, METHOD_RULE, config);
+        var newNode = result.getRootNode();
+        if (newNode == null || ReportUtils.anyError(result.getReports())) {
+            return false;
+        }
+
+        // The rule does not have to reach the end of the input, the method must span the whole region
+        var regionLineStarts = lineStarts(region);
+        if (startOffset(newNode, regionLineStarts) != 0 || endOffset(newNode, regionLineStarts) != region.length()) {
+            return false;
+        }
+
+        var oldNode = method.node;
+        int baseLine = Integer.parseInt(oldNode.get("lineStart"));
+        int baseColumn = Integer.parseInt(oldNode.get("colStart"));
+        moveToPosition(newNode, baseLine, baseColumn);
+
+        int lineDelta = countLines(region) - countLines(code.substring(method.start, method.end));
+        if (lineDelta != 0) {
+            moveFollowingLines(index, lineDelta);
+        }
+        for (int i = index + 1; i < methods.size(); i++) {
+            methods.get(i).start += delta;
+            methods.get(i).end += delta;
+        }
+        method.end += delta;
+
+        classDecl.setChild(newNode, oldNode.getIndexOfSelf());
+        method.node = newNode;
+
+        var root = parserResult.getRootNode();
+        var newTable = JmmSymbolTableBuilder.build(root);
+        if (!sameSignatures(table, newTable)) {
+            setLastUpdate(Update.SIGNATURE);
+            analyzeAll(newTable);
+            return true;
+        }
+
+        setLastUpdate(Update.METHOD);
+        table.getExprTypes().remove(oldNode);
+        method.reports = analysis.analyzeMethod(root, newNode, table);
+        mergeReports();
+
+        LOG.debug("Reanalysed method {} only", newNode.getOptional("name").orElse(""));
+        return true;
+    }
+
+    private void analyzeAll(JmmSymbolTable newTable) {
+        var root = parserResult.getRootNode();
+        table = newTable;
+
+        classReports = analysis.analyzeClass(root, table);
+        for (var method : methods) {
+            method.reports = analysis.analyzeMethod(root, method.node, table);
+        }
+
+        mergeReports();
+    }
+
+    private void mergeReports() {
+        List<List<List<Report>>> unitReports = new ArrayList<>();
+        unitReports.add(classReports);
+        methods.forEach(method -> unitReports.add(method.reports));
+
+        List<Report> newReports = new ArrayList<>(parserResult.getReports());
+        newReports.addAll(JmmAnalysisImpl.mergeByPass(unitReports));
+        reports = newReports;
+    }
+
+    /**
+     * Compares everything other methods can depend on: the methods and their return types, parameters and locals.
+     */
+    private static boolean sameSignatures(JmmSymbolTable oldTable, JmmSymbolTable newTable) {
+        if (!oldTable.getMethods().equals(newTable.getMethods())) {
+            return false;
+        }
+
+        for (var method : newTable.getMethods()) {
+            if (!Objects.equals(oldTable.getReturnType(method), newTable.getReturnType(method))
+                    || !Objects.equals(oldTable.getParameters(method), newTable.getParameters(method))
+                    || !Objects.equals(oldTable.getLocalVariables(method), newTable.getLocalVariables(method))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the positions of a subtree parsed on its own, starting at line 1 and column 0, to the given position.
+     */
+    private static void moveToPosition(JmmNode subtree, int line, int column) {
+        forEachNode(subtree, node -> {
+            moveColumn(node, "lineStart", "colStart", column);
+            moveColumn(node, "lineEnd", "colEnd", column);
+            moveLines(node, line - 1);
+        });
+    }
+
+    /**
+     * Moves the nodes and the reports of the methods after the given one, and the end of the class and the program.
+     */
+    private void moveFollowingLines(int index, int lineDelta) {
+        for (int i = index + 1; i < methods.size(); i++) {
+            var method = methods.get(i);
+            forEachNode(method.node, node -> moveLines(node, lineDelta));
+
+            List<List<Report>> movedReports = new ArrayList<>();
+            for (var passReports : method.reports) {
+                movedReports.add(passReports.stream().map(report -> moveReport(report, lineDelta)).toList());
+            }
+            method.reports = movedReports;
+        }
+
+        for (var node = classDecl; node != null; node = node.getParent()) {
+            if (node.hasAttribute("lineEnd")) {
+                node.put("lineEnd", Integer.toString(Integer.parseInt(node.get("lineEnd")) + lineDelta));
+            }
+        }
+    }
+
+    private static void moveColumn(JmmNode node, String lineKey, String columnKey, int column) {
+        if (node.hasAttribute(lineKey) && node.hasAttribute(columnKey) && node.get(lineKey).equals("1")) {
+            node.put(columnKey, Integer.toString(Integer.parseInt(node.get(columnKey)) + column));
+        }
+    }
+
+    private static void moveLines(JmmNode node, int lineDelta) {
+        for (var key : LINE_KEYS) {
+            if (node.hasAttribute(key)) {
+                node.put(key, Integer.toString(Integer.parseInt(node.get(key)) + lineDelta));
+            }
+        }
+    }
+
+    private static Report moveReport(Report report, int lineDelta) {
+        if (report.getLine() < 0) {
+            return report;
+        }
+
+        var moved = new Report(report.getType(), report.getStage(), report.getLine() + lineDelta, report.getColumn(),
+                report.getMessage());
+        report.getException().ifPresent(moved::setException);
+        return moved;
+    }
+
+    private static void forEachNode(JmmNode root, Consumer<JmmNode> action) {
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            action.accept(node);
+            node.getChildren().forEach(pending::push);
+        }
+    }
+
+    private void setLastUpdate(Update update) {
+        lastUpdate = update;
+        updateCounts.merge(update, 1L, Long::sum);
+    }
+
+    /**
+     * @return the offset of the first character of each line
+     */
+    private static int[] lineStarts(String code) {
+        var starts = new int[countLines(code) + 1];
+        int line = 1;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static int countLines(String code) {
+        int lines = 0;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static int startOffset(JmmNode node, int[] lineStarts) {
+        return lineStarts[Integer.parseInt(node.get("lineStart")) - 1] + Integer.parseInt(node.get("colStart"));
+    }
+
+    /**
+     * @return the offset after the last character of a method, which ends with a one-character token ('}')
+     */
+    private static int endOffset(JmmNode node, int[] lineStarts) {
+        return lineStarts[Integer.parseInt(node.get("lineEnd")) - 1] + Integer.parseInt(node.get("colEnd")) + 1;
+    }
+}
@@ -0,0 +1,228 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.Types;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodScope;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Constant propagation and constant folding over the AST of each method.
+ * <p>
+ * A forward dataflow over the statements tracks the locals and parameters of type int or boolean that hold a known
+ * constant. Reads of those variables are replaced by literals, and binary and not expressions whose operands are
+ * literals are replaced by their value. Fields are never tracked, as calls can change them.
+ * <ul>
+ * <li>In straight-line code an assignment sets or kills the constant of its variable.</li>
+ * <li>After an IfElse only the constants both branches agree on are kept.</li>
+ * <li>A While is analysed until the state at the head of the loop stops changing, joining the state on entry with
+ * the state at the end of the body, and only then are its condition and body rewritten with that state.</li>
+ * </ul>
+ * Conditions are only folded, branches and loops are kept even if their condition is constant.
+ */
+public class ConstantPropagation {
+
+    private final SymbolTable table;
+
+    private MethodScope scope;
+    private int replaced;
+
+    public ConstantPropagation(SymbolTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Propagates and folds the constants of every method of the program.
+     *
+     * @return the number of expressions replaced by literals
+     */
+    public int apply(JmmNode root) {
+        replaced = 0;
+        for (var method : root.getDescendants(METHOD_DECL)) {
+            scope = MethodScope.of(table, method.get("name"));
+            var state = new HashMap<String, String>();
+            for (var child : method.getChildren()) {
+                visitStmt(child, state, true);
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Updates the state with the effect of a statement, replacing the expressions of the statement if rewrite is
+     * set.
+     */
+    private void visitStmt(JmmNode stmt, Map<String, String> state, boolean rewrite) {
+        switch (stmt.getKind()) {
+            case "Block" -> {
+                for (var child : List.copyOf(stmt.getChildren())) {
+                    visitStmt(child, state, rewrite);
+                }
+            }
+            case "Assign" -> {
+                var value = fold(stmt.getJmmChild(0), state, rewrite);
+                var name = stmt.get("varName");
+                if (!isTracked(name)) {
+                    return;
+                }
+                if (value == null) {
+                    state.remove(name);
+                } else {
+                    state.put(name, value);
+                }
+            }
+            case "IfElse" -> {
+                fold(stmt.getJmmChild(0), state, rewrite);
+                var elseState = new HashMap<>(state);
+                visitStmt(stmt.getJmmChild(1), state, rewrite);
+                visitStmt(stmt.getJmmChild(2), elseState, rewrite);
+                state.entrySet().retainAll(elseState.entrySet());
+            }
+            case "While" -> visitWhile(stmt, state, rewrite);
+            default -> {
+                // Expression, AssignArray and ReturnStmt only read variables, declarations have no expressions
+                for (var child : List.copyOf(stmt.getChildren())) {
+                    fold(child, state, rewrite);
+                }
+            }
+        }
+    }
+
+    private void visitWhile(JmmNode loop, Map<String, String> state, boolean rewrite) {
+        var cond = loop.getJmmChild(0);
+        var body = loop.getJmmChild(1);
+
+        // Each iteration can only remove constants from the head state, so this ends
+        while (true) {
+            var bodyState = new HashMap<>(state);
+            visitStmt(body, bodyState, false);
+            if (!state.entrySet().retainAll(bodyState.entrySet())) {
+                break;
+            }
+        }
+
+        // The condition is evaluated with the head state and is the only way out of the loop
+        fold(cond, state, rewrite);
+        if (rewrite) {
+            visitStmt(body, new HashMap<>(state), true);
+        }
+    }
+
+    /**
+     * @return the constant value of the expression, or null if it is not constant. If rewrite is set, constant
+     * expressions are replaced by literals, and so are the constant subexpressions of the others
+     */
+    private String fold(JmmNode expr, Map<String, String> state, boolean rewrite) {
+        var value = evaluate(expr, state, rewrite);
+        if (value != null && rewrite && !INTEGER_LITERAL.check(expr) && !BOOLEAN.check(expr)) {
+            expr.replace(newLiteral(expr, value));
+            if (table instanceof JmmSymbolTable jmmTable) {
+                jmmTable.getExprTypes().remove(expr);
+            }
+            replaced++;
+        }
+        return value;
+    }
+
+    private String evaluate(JmmNode expr, Map<String, String> state, boolean rewrite) {
+        switch (expr.getKind()) {
+            case "IntegerLiteral", "Boolean" -> {
+                return expr.get("value");
+            }
+            case "VarRefExpr" -> {
+                return state.get(expr.get("name"));
+            }
+            case "Parenthesis" -> {
+                return evaluate(expr.getJmmChild(0), state, rewrite);
+            }
+            case "Not" -> {
+                var operand = fold(expr.getJmmChild(0), state, rewrite);
+                return operand == null ? null : String.valueOf(!Boolean.parseBoolean(operand));
+            }
+            case "BinaryExpr" -> {
+                var left = fold(expr.getJmmChild(0), state, rewrite);
+                var right = fold(expr.getJmmChild(1), state, rewrite);
+                if (left == null || right == null) {
+                    return null;
+                }
+                return evaluateBinary(expr.get("op"), left, right);
+            }
+            default -> {
+                // Calls, arrays and objects are never constant, but their operands can be
+                for (var child : List.copyOf(expr.getChildren())) {
+                    fold(child, state, rewrite);
+                }
+                return null;
+            }
+        }
+    }
+
+    private static String evaluateBinary(String op, String left, String right) {
+        switch (op) {
+            case "&&" -> {
+                return String.valueOf(Boolean.parseBoolean(left) && Boolean.parseBoolean(right));
+            }
+            case "||" -> {
+                return String.valueOf(Boolean.parseBoolean(left) || Boolean.parseBoolean(right));
+            }
+        }
+
+        int a;
+        int b;
+        try {
+            a = Integer.parseInt(left);
+            b = Integer.parseInt(right);
+        } catch (NumberFormatException e) {
+            // Literal out of the int range, left for the backend to report
+            return null;
+        }
+
+        return switch (op) {
+            case "+" -> String.valueOf(a + b);
+            case "-" -> String.valueOf(a - b);
+            case "*" -> String.valueOf(a * b);
+            // Division by zero must still throw when the program runs
+            case "/" -> b == 0 ? null : String.valueOf(a / b);
+            case "<" -> String.valueOf(a < b);
+            case "<=" -> String.valueOf(a <= b);
+            case ">" -> String.valueOf(a > b);
+            case ">=" -> String.valueOf(a >= b);
+            default -> null;
+        };
+    }
+
+    /**
+     * Only int and boolean locals and parameters are tracked.
+     */
+    private boolean isTracked(String name) {
+        var entry = scope.get(name);
+        if (entry == null || entry.kind() == MethodScope.VarKind.FIELD) {
+            return false;
+        }
+
+        var type = entry.getType();
+        return type.equals(Types.INT) || type.equals(Types.BOOLEAN);
+    }
+
+    private static JmmNode newLiteral(JmmNode expr, String value) {
+        var kind = value.equals("true") || value.equals("false") ? BOOLEAN : INTEGER_LITERAL;
+        var literal = new JmmNodeImpl(kind.getNodeName());
+        literal.setHierarchy(List.of(kind.getNodeName(), "Expr"));
+        literal.put("value", value);
+
+        // Reports on the literal point to the expression it replaced
+        for (var attribute : List.of("lineStart", "colStart", "lineEnd", "colEnd")) {
+            if (expr.hasAttribute(attribute)) {
+                literal.put(attribute, expr.get(attribute));
+            }
+        }
+        return literal;
+    }
+}
@@ -0,0 +1,150 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.dataflow.AvailableCopies;
+import pt.up.fe.comp2024.optimization.dataflow.DefUse;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.LiveVariables;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Removes the copies between variables that the OLLIR generator leaves, e.g. 'tmp3 := a; tmp4 := tmp3 + 1; x := tmp4'
+ * becomes 'x := a + 1', until there are none left:
+ * <ul>
+ * <li>a value assigned to a temporary that is only copied by the next instruction is assigned to the destination of
+ * the copy instead, if no label points to the copy;</li>
+ * <li>a variable read where a copy into it is available (see {@link AvailableCopies}) is replaced by the variable it
+ * was copied from;</li>
+ * <li>copies into a variable that is not live after them are removed.</li>
+ * </ul>
+ * The locals left without uses are removed by {@link DeadCodeElimination}.
+ */
+public class CopyPropagation {
+
+    private int propagatedCopies;
+    private int coalescedTemporaries;
+    private int removedCopies;
+
+    /**
+     * Propagates the copies of every method of the class.
+     */
+    public void apply(ClassUnit classUnit) {
+        classUnit.buildCFGs();
+        for (var method : classUnit.getMethods()) {
+            apply(method);
+        }
+
+        var profiler = CompilerProfiler.current();
+        profiler.count("copiesPropagated", propagatedCopies);
+        profiler.count("copiesRemoved", removedCopies);
+        profiler.count("temporariesCoalesced", coalescedTemporaries);
+    }
+
+    private void apply(Method method) {
+        boolean changed = true;
+        while (changed) {
+            // Coalescing first keeps 'tmp := i + 1; i := tmp' from becoming a use of tmp after the copy
+            changed = coalesceTemporaries(method);
+            changed |= propagateCopies(method);
+            changed |= removeDeadCopies(method);
+        }
+    }
+
+    private boolean propagateCopies(Method method) {
+        var graph = new FlowGraph(method);
+        var defUse = new DefUse(graph);
+        var analysis = new AvailableCopies(graph, defUse);
+        if (analysis.getCopyCount() == 0) {
+            return false;
+        }
+
+        var available = analysis.solve();
+        boolean changed = false;
+        for (int i = 0; i < graph.size(); i++) {
+            // The copy into each variable, there is at most one since a copy kills the others into its destination
+            var sources = new HashMap<String, String>();
+            var copies = available.getIn(i);
+            for (int copy = copies.nextSetBit(0); copy >= 0; copy = copies.nextSetBit(copy + 1)) {
+                sources.put(defUse.getVars().get(analysis.getDest(copy)),
+                        defUse.getVars().get(analysis.getSource(copy)));
+            }
+            if (sources.isEmpty()) {
+                continue;
+            }
+
+            for (var operand : DefUse.getUsedOperands(graph.getInstruction(i))) {
+                // Copies of copies are followed to the first variable, there are no cycles since a copy kills the
+                // ones from its destination
+                var source = sources.get(operand.getName());
+                while (source != null) {
+                    operand.setName(source);
+                    propagatedCopies++;
+                    changed = true;
+                    source = sources.get(source);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeDeadCopies(Method method) {
+        var graph = new FlowGraph(method);
+        var defUse = new DefUse(graph);
+        var analysis = new AvailableCopies(graph, defUse);
+        if (analysis.getCopyCount() == 0) {
+            return false;
+        }
+
+        var liveness = new LiveVariables(graph, defUse).solve();
+        var dead = new BitSet();
+        for (int i = 0; i < graph.size(); i++) {
+            if (analysis.getCopy(i) >= 0 && !defUse.getDefs(i).intersects(liveness.getOut(i))) {
+                dead.set(i);
+            }
+        }
+
+        InstructionUtils.removeInstructions(method, dead);
+        removedCopies += dead.cardinality();
+        return !dead.isEmpty();
+    }
+
+    /**
+     * Replaces 'tmp := expr; x := tmp' by 'x := expr' when tmp is not live after the copy.
+     */
+    private boolean coalesceTemporaries(Method method) {
+        var graph = new FlowGraph(method);
+        var defUse = new DefUse(graph);
+        var analysis = new AvailableCopies(graph, defUse);
+        if (analysis.getCopyCount() == 0) {
+            return false;
+        }
+
+        var liveness = new LiveVariables(graph, defUse).solve();
+        var labelled = new IdentityHashMap<Instruction, Boolean>();
+        method.getLabels().values().forEach(inst -> labelled.put(inst, true));
+
+        var removed = new BitSet();
+        for (int i = 0; i + 1 < graph.size(); i++) {
+            int copy = analysis.getCopy(i + 1);
+            if (copy < 0 || removed.get(i) || labelled.containsKey(graph.getInstruction(i + 1))
+                    || !defUse.getDefs(i).get(analysis.getSource(copy))
+                    || liveness.getOut(i + 1).get(analysis.getSource(copy))) {
+                continue;
+            }
+
+            var assign = (AssignInstruction) graph.getInstruction(i);
+            var copyAssign = (AssignInstruction) graph.getInstruction(i + 1);
+            InstructionUtils.replaceInstruction(method, i,
+                    new AssignInstruction(copyAssign.getDest(), assign.getTypeOfAssign(), assign.getRhs()));
+            removed.set(i + 1);
+        }
+
+        InstructionUtils.removeInstructions(method, removed);
+        coalescedTemporaries += removed.cardinality();
+        return !removed.isEmpty();
+    }
+}
@@ -0,0 +1,176 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.dataflow.DefUse;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.LiveVariables;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Removes the instructions of OLLIR methods that have no effect, until there are none left:
+ * <ul>
+ * <li>branches on a constant condition become a goto, or are removed if never taken;</li>
+ * <li>instructions that cannot be reached from the entry of the method;</li>
+ * <li>assignments to a variable that is not live after them (see {@link LiveVariables}), if computing the value has
+ * no side effects. Calls, array accesses, which can throw, and divisions that can divide by zero are kept;</li>
+ * <li>gotos to the next instruction.</li>
+ * </ul>
+ * The locals no instruction uses anymore are then removed from the var table, and the others get consecutive slots
+ * after the parameters.
+ */
+public class DeadCodeElimination {
+
+    private int removedInstructions;
+    private int removedLocals;
+
+    /**
+     * Eliminates the dead code of every method of the class.
+     */
+    public void apply(ClassUnit classUnit) {
+        classUnit.buildCFGs();
+        for (var method : classUnit.getMethods()) {
+            apply(method);
+        }
+
+        var profiler = CompilerProfiler.current();
+        profiler.count("deadInstructions", removedInstructions);
+        profiler.count("deadLocals", removedLocals);
+    }
+
+    private void apply(Method method) {
+        boolean changed = true;
+        while (changed) {
+            changed = foldConstantBranches(method);
+            changed |= remove(method, new FlowGraph(method).unreachable());
+            changed |= remove(method, findDeadStores(method));
+            changed |= remove(method, findJumpsToNext(method));
+        }
+
+        compactLocals(method);
+    }
+
+    private boolean remove(Method method, BitSet removed) {
+        InstructionUtils.removeInstructions(method, removed);
+        removedInstructions += removed.cardinality();
+        return !removed.isEmpty();
+    }
+
+    /**
+     * Replaces 'if (1.bool) goto L' by 'goto L' and removes 'if (0.bool) goto L'.
+     */
+    private boolean foldConstantBranches(Method method) {
+        var instructions = method.getInstructions();
+        var removed = new BitSet();
+        boolean replaced = false;
+        for (int i = 0; i < instructions.size(); i++) {
+            if (!(instructions.get(i) instanceof SingleOpCondInstruction branch)
+                    || !(branch.getCondition().getSingleOperand() instanceof LiteralElement literal)) {
+                continue;
+            }
+
+            if (literal.getLiteral().equals("0")) {
+                removed.set(i);
+            } else {
+                InstructionUtils.replaceInstruction(method, i, new GotoInstruction(branch.getLabel()));
+                replaced = true;
+            }
+        }
+
+        if (replaced) {
+            InstructionUtils.rebuildCfg(method);
+        }
+        return remove(method, removed) || replaced;
+    }
+
+    private BitSet findDeadStores(Method method) {
+        var graph = new FlowGraph(method);
+        var defUse = new DefUse(graph);
+        var liveness = new LiveVariables(graph, defUse).solve();
+
+        var dead = new BitSet();
+        for (int i = 0; i < graph.size(); i++) {
+            var defs = defUse.getDefs(i);
+            if (defs.isEmpty() || defs.intersects(liveness.getOut(i))) {
+                continue;
+            }
+
+            var assign = (AssignInstruction) graph.getInstruction(i);
+            var dest = (Operand) assign.getDest();
+            if (!dest.getName().equals("this") && hasNoSideEffects(assign.getRhs())) {
+                dead.set(i);
+            }
+        }
+        return dead;
+    }
+
+    private static boolean hasNoSideEffects(Instruction rhs) {
+        if (rhs instanceof SingleOpInstruction singleOp) {
+            return !(singleOp.getSingleOperand() instanceof ArrayOperand);
+        }
+        if (rhs instanceof UnaryOpInstruction unaryOp) {
+            return !(unaryOp.getOperand() instanceof ArrayOperand);
+        }
+        if (rhs instanceof BinaryOpInstruction binaryOp) {
+            if (binaryOp.getLeftOperand() instanceof ArrayOperand || binaryOp.getRightOperand() instanceof ArrayOperand) {
+                return false;
+            }
+            // Division by zero throws
+            return binaryOp.getOperation().getOpType() != OperationType.DIV
+                    || binaryOp.getRightOperand() instanceof LiteralElement divisor && !divisor.getLiteral().equals("0");
+        }
+        return rhs instanceof GetFieldInstruction;
+    }
+
+    private static BitSet findJumpsToNext(Method method) {
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+        var jumps = new BitSet();
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            if (instructions.get(i) instanceof GotoInstruction jump
+                    && labels.get(jump.getLabel()) == instructions.get(i + 1)) {
+                jumps.set(i);
+            }
+        }
+        return jumps;
+    }
+
+    /**
+     * Removes the locals no instruction uses, and gives the others consecutive slots, in their previous order.
+     */
+    private void compactLocals(Method method) {
+        var varTable = method.getVarTable();
+        var defUse = new DefUse(new FlowGraph(method));
+        var used = new BitSet();
+        for (int i = 0; i < method.getInstructions().size(); i++) {
+            used.or(defUse.getDefs(i));
+            used.or(defUse.getUses(i));
+        }
+
+        var locals = new ArrayList<Descriptor>();
+        var iterator = varTable.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (InstructionUtils.isFixedSlot(entry.getKey(), entry.getValue())
+                    || entry.getValue().getScope() == VarScope.FIELD) {
+                continue;
+            }
+
+            if (used.get(defUse.indexOf(entry.getKey()))) {
+                locals.add(entry.getValue());
+            } else {
+                iterator.remove();
+                removedLocals++;
+            }
+        }
+
+        locals.sort(Comparator.comparingInt(Descriptor::getVirtualReg));
+        int slot = InstructionUtils.getFirstLocalSlot(method);
+        for (var local : locals) {
+            local.setVirtualReg(slot++);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+/**
+ * Edits of the instructions of OLLIR methods that keep their labels and CFG consistent.
+ * <p>
+ * Labels are kept in the label map of the method, which is updated in place. The map of the labels of each
+ * instruction (Method.getLabels(Instruction)) is built on its first use and is not updated, so it must not be used
+ * before the edits are done.
+ */
+public class InstructionUtils {
+
+    private InstructionUtils() {
+    }
+
+    /**
+     * Removes the instructions with the given indexes. Their labels move to the next instruction that is kept, and the
+     * CFG is rebuilt.
+     */
+    public static void removeInstructions(Method method, BitSet removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        var instructions = method.getInstructions();
+        var indexes = new IdentityHashMap<Instruction, Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        var labels = method.getLabels().entrySet().iterator();
+        while (labels.hasNext()) {
+            var label = labels.next();
+            var index = indexes.get(label.getValue());
+            if (index == null || !removed.get(index)) {
+                continue;
+            }
+
+            int next = removed.nextClearBit(index);
+            if (next < instructions.size()) {
+                label.setValue(instructions.get(next));
+            } else {
+                labels.remove();
+            }
+        }
+
+        for (int i = removed.previousSetBit(instructions.size() - 1); i >= 0; i = removed.previousSetBit(i - 1)) {
+            instructions.remove(i);
+        }
+
+        rebuildCfg(method);
+    }
+
+    /**
+     * Replaces the instruction at the given index, its labels go to the new instruction. The CFG must be rebuilt
+     * after.
+     */
+    public static void replaceInstruction(Method method, int index, Instruction replacement) {
+        var instructions = method.getInstructions();
+        var previous = instructions.get(index);
+        for (var label : method.getLabels().entrySet()) {
+            if (label.getValue() == previous) {
+                label.setValue(replacement);
+            }
+        }
+        instructions.set(index, replacement);
+    }
+
+    /**
+     * Builds the CFG of the method again. {@link Method#buildCFG()} adds to the successors and predecessors of the
+     * nodes, so they are cleared first.
+     */
+    public static void rebuildCfg(Method method) {
+        clearEdges(method.getBeginNode());
+        clearEdges(method.getEndNode());
+        for (var inst : method.getInstructions()) {
+            clearEdges(inst);
+        }
+        method.buildCFG();
+    }
+
+    private static void clearEdges(Node node) {
+        node.getSuccessors().clear();
+        node.getPredecessors().clear();
+    }
+
+    /**
+     * @return the first JVM local variable slot after 'this' and the parameters
+     */
+    public static int getFirstLocalSlot(Method method) {
+        int firstLocal = method.isStaticMethod() ? 0 : 1;
+        for (var entry : method.getVarTable().entrySet()) {
+            if (isFixedSlot(entry.getKey(), entry.getValue())) {
+                firstLocal = Math.max(firstLocal, entry.getValue().getVirtualReg() + 1);
+            }
+        }
+        return firstLocal;
+    }
+
+    /**
+     * @return true for 'this' and the parameters, whose slots are given by the JVM calling convention
+     */
+    public static boolean isFixedSlot(String name, Descriptor descriptor) {
+        return name.equals("this") || descriptor.getScope() == VarScope.PARAMETER;
+    }
+}
@@ -1,8 +1,12 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.Collections;
 
@@ -14,14 +18,60 @@ public class JmmOptimizationImpl implements JmmOptimization {
         var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
+        // How many expression types were read from the table filled by the analysis
+        if (semanticsResult.getSymbolTable() instanceof JmmSymbolTable table) {
+            var profiler = CompilerProfiler.current();
+            profiler.count("exprTypeHits", table.getExprTypes().getHits());
+            profiler.count("exprTypeMisses", table.getExprTypes().getMisses());
+        }
+
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
     }
 
+    /**
+     * With optimizations on, propagates and folds the constants of the AST, see {@link ConstantPropagation}.
+     */
+    @Override
+    public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
+        if (!CompilerConfig.getOptimize(semanticsResult.getConfig())) {
+            return semanticsResult;
+        }
+
+        int folded = new ConstantPropagation(semanticsResult.getSymbolTable()).apply(semanticsResult.getRootNode());
+        CompilerProfiler.current().count("constantsFolded", folded);
+
+        return semanticsResult;
+    }
+
+    /**
+     * With optimizations on, propagates the copies and removes dead code, see {@link CopyPropagation} and
+     * {@link DeadCodeElimination}, and counts the instructions before and after. With register allocation on, rewrites
+     * the registers of the locals, see {@link RegisterAllocator}.
+     * <p>
+     * The OLLIR class is edited in place and the OLLIR code of the result is not updated, use {@link OllirPrinter} to
+     * get the code of the optimized class.
+     */
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
+        if (CompilerConfig.getOptimize(ollirResult.getConfig())) {
+            var classUnit = ollirResult.getOllirClass();
+            var profiler = CompilerProfiler.current();
+            profiler.count("optInstructionsBefore", countInstructions(classUnit));
+            new CopyPropagation().apply(classUnit);
+            new DeadCodeElimination().apply(classUnit);
+            profiler.count("optInstructionsAfter", countInstructions(classUnit));
+        }
 
-        //TODO: Do your OLLIR-based optimizations here
+        int registers = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
+        if (registers >= 0) {
+            var reports = new RegisterAllocator(registers).allocate(ollirResult.getOllirClass());
+            ollirResult.getReports().addAll(reports);
+        }
 
         return ollirResult;
     }
+
+    private static int countInstructions(ClassUnit classUnit) {
+        return classUnit.getMethods().stream().mapToInt(method -> method.getInstructions().size()).sum();
+    }
 }
@@ -5,10 +5,15 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindDispatch;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.ast.Types;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -17,6 +22,9 @@ import static pt.up.fe.comp2024.ast.Kind.*;
  */
 public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
 
+    private static final Set<Kind> COMPUTED_ARGS = EnumSet.of(METHOD_CALL_EXPR, VAR_REF_EXPR, LENGTH, BINARY_EXPR,
+            NEW_OBJECT, NEW_ARRAY_INT, NOT, ARRAY, ARRAY_INIT);
+
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
     private final String END_STMT = ";\n";
@@ -24,8 +32,18 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final OptUtils optUtils;
+
+    // Resolves the visits registered in buildVisitor, which runs before this initializer
+    private final KindDispatch<Void, OllirExprResult> dispatch = new KindDispatch<>(super::getVisit);
+
+    public OllirExprGeneratorVisitor(SymbolTable table, OptUtils optUtils) {
         this.table = table;
+        this.optUtils = optUtils;
+    }
+
+    public OllirExprGeneratorVisitor(SymbolTable table) {
+        this(table, new OptUtils());
     }
 
     @Override
@@ -41,27 +59,59 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         addVisit(ARRAY, this::visitArray);
         addVisit(ARRAY_INIT, this::ArrayInit);
         addVisit(LENGTH, this::visitLenght);
+        addVisit("Parenthesis", this::visitParenthesis);
         setDefaultVisit(this::defaultVisit);
     }
 
+    /**
+     * Arguments whose computation is emitted before the instruction that uses them.
+     */
+    private static boolean isComputedArg(JmmNode node) {
+        var kind = Kind.of(node);
+        return kind != null && COMPUTED_ARGS.contains(kind);
+    }
+
+    /**
+     * @return true if the expression is the condition of an if or a while
+     */
+    private static boolean isCondition(JmmNode node) {
+        var parentKind = Kind.of(node.getParent());
+        return parentKind == IF_ELSE || parentKind == WHILE;
+    }
+
+    @Override
+    protected BiFunction<JmmNode, Void, OllirExprResult> getVisit(JmmNode node) {
+        return dispatch.get(node);
+    }
+
 
     private OllirExprResult visitInteger(JmmNode node, Void unused) {
-        var intType = new Type(TypeUtils.getIntTypeName(), false);
+        var intType = Types.INT;
         String ollirIntType = OptUtils.toOllirType(intType);
         String code = node.get("value") + ollirIntType;
         return new OllirExprResult(code);
     }
 
     private OllirExprResult visitBoolean(JmmNode node, Void unused) {
-        var intType = new Type("boolean", false);
+        var intType = Types.BOOLEAN;
         String ollirIntType = OptUtils.toOllirType(intType);
-        String code = node.get("value") + ollirIntType;
+        // OLLIR reads 'true.bool' as a variable named 'true', booleans are written as 1 and 0
+        String code = (Boolean.parseBoolean(node.get("value")) ? "1" : "0") + ollirIntType;
         return new OllirExprResult(code);
     }
 
 
+    private OllirExprResult visitParenthesis(JmmNode node, Void unused) {
+        return visit(node.getJmmChild(0));
+    }
+
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
 
+        var op = node.get("op");
+        if (op.equals("&&") || op.equals("||")) {
+            return visitShortCircuit(node);
+        }
+
         var lhs = visit(node.getJmmChild(0));
         var rhs = visit(node.getJmmChild(1));
 
@@ -72,43 +122,63 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         Type resType = TypeUtils.getExprType(node, table);
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String operation = lhs.getCode() + SPACE + op + resOllirType + SPACE + rhs.getCode();
 
-        if (node.get("op").equals("&&") || node.get("op").equals("||")) {
+        // The condition of an if or a while is used as is
+        if (isCondition(node)) {
+            return new OllirExprResult(operation, computation);
+        }
 
-            computation.append("if(").append(lhs.getCode()).append(SPACE).append(node.get("op")).append(resOllirType).append(SPACE).append(rhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("true_0");
-            computation.append(END_STMT);
-            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
-            computation.append("0").append(resOllirType);
-            computation.append(END_STMT);
-            computation.append("goto end_0");
-            computation.append(END_STMT);
-            computation.append("if_0");
-            computation.append(":").append(NL);
-            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
-            computation.append("1").append(resOllirType);
-            computation.append(END_STMT);
-            computation.append("end_0").append(":").append(NL);
+        String code = optUtils.getTemp() + resOllirType;
+        computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
+        computation.append(operation).append(END_STMT);
 
-        }
+        return new OllirExprResult(code, computation);
+    }
 
-        else if (!(node.getParent().getKind().equals("IfElse")) && !(node.getParent().getKind().equals("While"))) {
-            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
-        }
+    /**
+     * The right operand of && and || is only computed when the left operand does not decide the result.
+     */
+    private OllirExprResult visitShortCircuit(JmmNode node) {
 
-        if (!(node.get("op").equals("&&") || node.get("op").equals("||"))) {
-            computation.append(lhs.getCode()).append(SPACE);
+        boolean isAnd = node.get("op").equals("&&");
+        var lhs = visit(node.getJmmChild(0));
+        var rhs = visit(node.getJmmChild(1));
 
-            Type type = TypeUtils.getExprType(node, table);
+        String resOllirType = OptUtils.toOllirType(Types.BOOLEAN);
+        String code = optUtils.getTemp() + resOllirType;
+        int label = optUtils.getNextLabelNum();
+        String prefix = isAnd ? "and" : "or";
+        String jumpLabel = prefix + (isAnd ? "rhs_" : "true_") + label;
+        String endLabel = prefix + "end_" + label;
 
-            if (!(node.getParent().getKind().equals("IfElse")) && !(node.getParent().getKind().equals("While"))) {
-                computation.append(node.get("op")).append(OptUtils.toOllirType(type)).append(SPACE).append(rhs.getCode()).append(END_STMT);
-            }
+        StringBuilder computation = new StringBuilder();
+        computation.append(lhs.getComputation());
+        computation.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE)
+                .append(jumpLabel).append(END_STMT);
 
-            else {
-                computation.append(node.get("op")).append(OptUtils.toOllirType(type)).append(SPACE).append(rhs.getCode());
-            }
+        // && is false and || computes the right operand when the left operand is false
+        if (isAnd) {
+            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
+            computation.append("0").append(resOllirType).append(END_STMT);
+        } else {
+            computation.append(rhs.getComputation());
+            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
+            computation.append(rhs.getCode()).append(END_STMT);
         }
+        computation.append("goto").append(SPACE).append(endLabel).append(END_STMT);
+
+        // && computes the right operand and || is true when the left operand is true
+        computation.append(jumpLabel).append(":").append(NL);
+        if (isAnd) {
+            computation.append(rhs.getComputation());
+            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
+            computation.append(rhs.getCode()).append(END_STMT);
+        } else {
+            computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE);
+            computation.append("1").append(resOllirType).append(END_STMT);
+        }
+        computation.append(endLabel).append(":").append(NL);
 
         return new OllirExprResult(code, computation);
     }
@@ -116,8 +186,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitNot(JmmNode node, Void unused) {
         var intType = TypeUtils.getExprType(node, table);
         String ollirIntType = OptUtils.toOllirType(intType);
-        String code = "!" + ollirIntType + SPACE + visit(node.getChild(0)).getCode();
-        return new OllirExprResult(code);
+        var operand = visit(node.getChild(0));
+        String code = "!" + ollirIntType + SPACE + operand.getCode();
+        return new OllirExprResult(code, operand.getComputation());
     }
 
 
@@ -146,47 +217,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         for (int i = 1; i < node.getChildren().size(); i++) {
 
-            if (node.getChildren().get(i).getKind().equals(METHOD_CALL_EXPR.toString())) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Length")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("BinaryExpr")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("NewObject")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("NewArrayInt")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Not")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Array")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("ArrayInit")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("VarRefExpr")) {
+            if (isComputedArg(node.getChildren().get(i))) {
                 a = visit(node.getChildren().get(i));
                 code.append(a.getComputation());
             }
@@ -196,7 +227,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
        if (retType != null) {
 
            varType = OptUtils.toOllirType(retType);
-           computation = OptUtils.getTemp() + varType;
+           computation = optUtils.getTemp() + varType;
 
            code.append(computation);
            code.append(SPACE);
@@ -208,7 +239,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         for (int i = 1; i < node.getChildren().size(); i++) {
 
-            if (node.getChildren().get(i).getKind().equals(METHOD_CALL_EXPR.toString()) || node.getChildren().get(i).getKind().equals(VAR_REF_EXPR.toString()) || node.getChildren().get(i).getKind().equals(LENGTH.toString()) || node.getChildren().get(i).getKind().equals(BINARY_EXPR.toString()) || node.getChildren().get(i).getKind().equals(NEW_OBJECT.toString()) || node.getChildren().get(i).getKind().equals(NEW_ARRAY_INT.toString()) || node.getChildren().get(i).getKind().equals(NOT.toString()) || node.getChildren().get(i).getKind().equals(ARRAY.toString()) || node.getChildren().get(i).getKind().equals(ARRAY_INIT.toString())) {
+            if (isComputedArg(node.getChildren().get(i))) {
                 args.add("," + a.getCode());
             }
 
@@ -256,7 +287,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         StringBuilder computation = new StringBuilder();
         String resOllirType = table.getClassName();
-        String code = OptUtils.getTemp() + "." + resOllirType;
+        String code = optUtils.getTemp() + "." + resOllirType;
 
         computation.append(code);
         computation.append(SPACE);
@@ -281,52 +312,12 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var intType = TypeUtils.getExprType(node, table);
         String ret = OptUtils.toOllirType(intType);
         StringBuilder code = new StringBuilder();
-        String computation = OptUtils.getTemp() + ret;
+        String computation = optUtils.getTemp() + ret;
         var a = OllirExprResult.EMPTY;
 
         for (int i = 1; i < node.getChildren().size(); i++) {
 
-            if (node.getChildren().get(i).getKind().equals(METHOD_CALL_EXPR.toString())) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Length")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("BinaryExpr")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("NewObject")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("NewArrayInt")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Not")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("Array")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("ArrayInit")) {
-                a = visit(node.getChildren().get(i));
-                code.append(a.getComputation());
-            }
-
-            if (node.getChildren().get(i).getKind().equals("VarRefExpr")) {
+            if (isComputedArg(node.getChildren().get(i))) {
                 a = visit(node.getChildren().get(i));
                 code.append(a.getComputation());
             }
@@ -350,7 +341,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computation = new StringBuilder();
         var resOllirType = TypeUtils.getExprType(node, table);
         String type = OptUtils.toOllirType(resOllirType);
-        String code = OptUtils.getTemp() + type;
+        String code = optUtils.getTemp() + type;
 
         computation.append(code);
         computation.append(SPACE);
@@ -371,7 +362,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computation = new StringBuilder();
         var resOllirType = TypeUtils.getExprType(node, table);
         String type = OptUtils.toOllirType(resOllirType);
-        String code = OptUtils.getTemp() + type;
+        String code = optUtils.getTemp() + type;
 
         computation.append(code);
         computation.append(SPACE);
@@ -399,7 +390,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computation = new StringBuilder();
         var resOllirType = TypeUtils.getExprType(node, table);
         String type = OptUtils.toOllirType(resOllirType);
-        String code = OptUtils.getTemp() + type;
+        String code = optUtils.getTemp() + type;
 
         computation.append(code);
         computation.append(SPACE);
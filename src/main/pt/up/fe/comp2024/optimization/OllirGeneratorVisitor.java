@@ -6,13 +6,17 @@ import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ollir.OllirUtils;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindDispatch;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.symboltable.MethodScope;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiFunction;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -31,17 +35,19 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String NL = "\n";
     private final String L_BRACKET = " {\n";
     private final String R_BRACKET = "}\n";
-    private Integer INTI = -1;
-
-    private Integer INTW = -1;
-
     private final SymbolTable table;
 
+    private final OptUtils optUtils;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    // Resolves the visits registered in buildVisitor, which runs before this initializer
+    private final KindDispatch<Void, String> dispatch = new KindDispatch<>(super::getVisit);
+
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        optUtils = new OptUtils();
+        exprVisitor = new OllirExprGeneratorVisitor(table, optUtils);
     }
 
     @Override
@@ -54,7 +60,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit(VAR_REF_EXPR, this::visitVarRefDecl);
         addVisit(METHOD_DECL, this::visitMethodDecl);
         addVisit(EXPRESSION, this::visitExprStmt);
-        addVisit(PARAM, this::visitParam);
+        addVisit("Parameters", this::visitParam);
         addVisit(RETURN_STMT, this::visitReturn);
         addVisit(ASSiGN_ARRAY, this::visitAssignArray);
         addVisit("Main", this::visitMain);
@@ -66,6 +72,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         setDefaultVisit(this::defaultVisit);
     }
 
+    @Override
+    protected BiFunction<JmmNode, Void, String> getVisit(JmmNode node) {
+        return dispatch.get(node);
+    }
+
 
     private String visitAssignStmt(JmmNode node, Void unused) {
 
@@ -122,10 +133,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitParam(JmmNode node, Void unused) {
 
-        var typeCode = OptUtils.toOllirType(node.getJmmChild(0));
+        // The symbol table knows if the parameter is an array, e.g. 'int[] a' or 'int... a'
+        String methodName = node.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow();
         var id = node.get("name");
+        var param = table.getParameters(methodName).stream()
+                .filter(symbol -> symbol.getName().equals(id))
+                .findFirst()
+                .orElseThrow();
 
-        String code = id + typeCode;
+        String code = id + OptUtils.toOllirType(param.getType());
 
         return code;
     }
@@ -149,6 +165,12 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitMethodDecl(JmmNode node, Void unused) {
+        try (var span = CompilerProfiler.current().start("ollir.toOllir", node.get("name"))) {
+            return buildMethodDecl(node);
+        }
+    }
+
+    private String buildMethodDecl(JmmNode node) {
 
         StringBuilder code = new StringBuilder(".method ");
 
@@ -171,7 +193,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         // param
         code.append("(");
-        var itr = node.getChildren(PARAM).iterator();
+        var itr = node.getChildren("Parameters").iterator();
         while (itr.hasNext()){
             param++;
             var child = itr.next();
@@ -252,18 +274,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
     private Type getVarType(String s, String method){
-        if(method != null){
-            for(var lVar : table.getLocalVariables(method))
-                if(lVar.getName().equals(s))
-                    return lVar.getType();
-            for(var lParam : table.getParameters(method))
-                if(lParam.getName().equals(s))
-                    return lParam.getType();
-        }
-        for(var lField : table.getFields())
-            if(lField.getName().equals(s))
-                return lField.getType();
-        return null;
+        return MethodScope.of(table, method).getType(s);
     }
 
     private String visitVarRefDecl(JmmNode varRefExpr, Void unused) {
@@ -313,6 +324,12 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitMain(JmmNode node, Void unused) {
+        try (var span = CompilerProfiler.current().start("ollir.toOllir", node.get("name"))) {
+            return buildMain(node);
+        }
+    }
+
+    private String buildMain(JmmNode node) {
         StringBuilder code = new StringBuilder(".method ");
 
         boolean isPublic = NodeUtils.getBooleanAttribute(node, "isPublic", "false");
@@ -378,7 +395,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         StringBuilder code = new StringBuilder();
 
-        code.append(visit(node.getChild(0)));
+        for (var child : node.getChildren()) {
+            code.append(visit(child));
+        }
         return code.toString();
 
     }
@@ -387,17 +406,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         StringBuilder code = new StringBuilder();
         var lhs = exprVisitor.visit(node.getJmmChild(0));
-        Integer i = INTI;
-        this.INTI = i++;
-
-        if (lhs.getComputation().isEmpty()) {
-            code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("if_").append(i);
-        }
-
-        else {
-            code.append("if(").append(lhs.getComputation()).append(")").append(SPACE).append("goto").append(SPACE).append("if_").append(i);
-        }
+        // Each if gets its own labels
+        int i = optUtils.getNextLabelNum();
 
+        code.append(lhs.getComputation());
+        code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("if_").append(i);
         code.append(END_STMT);
         code.append(visit(node.getJmmChild(2)));
         code.append("goto endif_").append(i);
@@ -413,17 +426,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitWhile(JmmNode node, Void unused) {
         StringBuilder code = new StringBuilder();
         var lhs = exprVisitor.visit(node.getJmmChild(0));
-        Integer w = INTW;
-        this.INTW = w++;
-
-        if (lhs.getComputation().isEmpty()) {
-            code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
-        }
-
-        else {
-            code.append("if(").append(lhs.getComputation()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
-        }
+        int w = optUtils.getNextLabelNum();
 
+        code.append(lhs.getComputation());
+        code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
         code.append(END_STMT);
         code.append("goto endwhile_").append(w);
         code.append(END_STMT);
@@ -431,15 +437,12 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(NL);
         code.append(visit(node.getJmmChild(1)));
 
-        if (lhs.getComputation().isEmpty()) {
-            code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
-        }
-
-        else {
-            code.append("if(").append(lhs.getComputation()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
-        }
-
+        // The condition is generated again after each iteration, with its own temporaries and labels
+        lhs = exprVisitor.visit(node.getJmmChild(0));
+        code.append(lhs.getComputation());
+        code.append("if(").append(lhs.getCode()).append(")").append(SPACE).append("goto").append(SPACE).append("whilebody_").append(w);
         code.append(END_STMT);
+        code.append("endwhile_").append(w).append(":").append(NL);
         return code.toString();
     }
 
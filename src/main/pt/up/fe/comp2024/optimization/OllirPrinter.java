@@ -0,0 +1,228 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Prints an OLLIR class back to OLLIR code.
+ * <p>
+ * The optimizations of {@link JmmOptimizationImpl#optimize(pt.up.fe.comp.jmm.ollir.OllirResult)} edit the class in
+ * place, so the code the class was parsed from no longer matches it. The printed code can be parsed again into an
+ * equivalent class.
+ */
+public class OllirPrinter {
+
+    private static final String NL = "\n";
+    private static final String INDENT = "    ";
+
+    private OllirPrinter() {
+    }
+
+    public static String print(ClassUnit classUnit) {
+        var code = new StringBuilder();
+
+        for (var imported : classUnit.getImports()) {
+            code.append("import ").append(imported).append(";").append(NL);
+        }
+        if (!classUnit.getImports().isEmpty()) {
+            code.append(NL);
+        }
+
+        code.append(modifier(classUnit.getClassAccessModifier()));
+        if (classUnit.isStaticClass()) {
+            code.append("static ");
+        }
+        if (classUnit.isFinalClass()) {
+            code.append("final ");
+        }
+        code.append(classUnit.getClassName());
+        var superClass = classUnit.getSuperClass();
+        if (superClass != null && !superClass.equals("Object")) {
+            code.append(" extends ").append(superClass);
+        }
+        code.append(" {").append(NL).append(NL);
+
+        for (var field : classUnit.getFields()) {
+            code.append(INDENT).append(".field ").append(modifier(field.getFieldAccessModifier()));
+            if (field.isStaticField()) {
+                code.append("static ");
+            }
+            if (field.isFinalField()) {
+                code.append("final ");
+            }
+            code.append(field.getFieldName()).append(type(field.getFieldType()));
+            if (field.isInitialized()) {
+                code.append(" = ").append(field.getInitialValue());
+            }
+            code.append(";").append(NL);
+        }
+        if (!classUnit.getFields().isEmpty()) {
+            code.append(NL);
+        }
+
+        for (var method : classUnit.getMethods()) {
+            printMethod(method, code);
+            code.append(NL);
+        }
+
+        code.append("}").append(NL);
+        return code.toString();
+    }
+
+    private static void printMethod(Method method, StringBuilder code) {
+        code.append(INDENT);
+        if (method.isConstructMethod()) {
+            code.append(".construct ");
+        } else {
+            code.append(".method ").append(modifier(method.getMethodAccessModifier()));
+            if (method.isStaticMethod()) {
+                code.append("static ");
+            }
+            if (method.isFinalMethod()) {
+                code.append("final ");
+            }
+            if (method.isVarargs()) {
+                code.append("varargs ");
+            }
+        }
+
+        var params = method.getParams().stream().map(OllirPrinter::element).collect(Collectors.joining(", "));
+        code.append(method.getMethodName()).append("(").append(params).append(")");
+        code.append(type(method.getReturnType())).append(" {").append(NL);
+
+        // The map of the labels of each instruction kept by the method is not updated by the optimizations
+        var labels = new IdentityHashMap<Instruction, List<String>>();
+        method.getLabels().forEach((label, inst) -> labels.computeIfAbsent(inst, key -> new ArrayList<>()).add(label));
+
+        for (var inst : method.getInstructions()) {
+            var instLabels = labels.getOrDefault(inst, List.of());
+            instLabels.stream().sorted().forEach(label -> code.append(INDENT).append(label).append(":").append(NL));
+            code.append(INDENT).append(INDENT).append(instruction(inst)).append(";").append(NL);
+        }
+
+        code.append(INDENT).append("}").append(NL);
+    }
+
+    private static String instruction(Instruction inst) {
+        return switch (inst.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) inst;
+                var type = type(assign.getTypeOfAssign());
+                yield element(assign.getDest()) + " :=" + type + " " + instruction(assign.getRhs());
+            }
+            case CALL -> call((CallInstruction) inst);
+            case GOTO -> "goto " + ((GotoInstruction) inst).getLabel();
+            case BRANCH -> {
+                var branch = (CondBranchInstruction) inst;
+                yield "if (" + instruction(branch.getCondition()) + ") goto " + branch.getLabel();
+            }
+            case RETURN -> {
+                var ret = (ReturnInstruction) inst;
+                var code = "ret" + type(ret.getReturnType());
+                yield ret.hasReturnValue() ? code + " " + element(ret.getOperand()) : code;
+            }
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) inst;
+                yield "putfield(" + element(putField.getObject()) + ", " + element(putField.getField()) + ", "
+                        + element(putField.getValue()) + ").V";
+            }
+            case GETFIELD -> {
+                var getField = (GetFieldInstruction) inst;
+                yield "getfield(" + element(getField.getObject()) + ", " + element(getField.getField()) + ")"
+                        + type(getField.getFieldType());
+            }
+            case UNARYOPER -> {
+                var unary = (UnaryOpInstruction) inst;
+                yield operation(unary.getOperation()) + " " + element(unary.getOperand());
+            }
+            case BINARYOPER -> {
+                var binary = (BinaryOpInstruction) inst;
+                yield element(binary.getLeftOperand()) + " " + operation(binary.getOperation()) + " "
+                        + element(binary.getRightOperand());
+            }
+            case NOPER -> element(((SingleOpInstruction) inst).getSingleOperand());
+        };
+    }
+
+    private static String call(CallInstruction call) {
+        var args = new ArrayList<String>();
+        var callType = call.getInvocationType();
+
+        // The class of 'new' and 'invokestatic' and the 'array' of a new array are written without a type
+        var caller = call.getCaller();
+        if (callType == CallType.NEW || callType == CallType.invokestatic) {
+            args.add(((Operand) caller).getName());
+        } else {
+            args.add(element(caller));
+        }
+        call.getMethodNameTry().ifPresent(name -> args.add(((LiteralElement) name).getLiteral()));
+        call.getArguments().forEach(arg -> args.add(element(arg)));
+
+        var name = callType == CallType.NEW ? "new" : callType.name();
+        return name + "(" + String.join(", ", args) + ")" + type(call.getReturnType());
+    }
+
+    private static String element(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral() + type(literal.getType());
+        }
+
+        if (element instanceof ArrayOperand arrayOperand) {
+            var indexes = arrayOperand.getIndexOperands().stream()
+                    .map(OllirPrinter::element)
+                    .collect(Collectors.joining(", "));
+            return arrayOperand.getName() + "[" + indexes + "]" + type(arrayOperand.getType());
+        }
+
+        var operand = (Operand) element;
+        return operand.getName() + type(operand.getType());
+    }
+
+    private static String type(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+            case ARRAYREF -> {
+                var arrayType = (ArrayType) type;
+                yield ".array".repeat(Math.max(1, arrayType.getNumDimensions())) + type(arrayType.getElementType());
+            }
+            case OBJECTREF, CLASS, THIS -> "." + ((ClassType) type).getName();
+        };
+    }
+
+    private static String operation(Operation operation) {
+        var operator = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case SHR -> ">>";
+            case SHL -> "<<";
+            case SHRR -> ">>>";
+            case XOR -> "^";
+            case AND -> "&";
+            case OR -> "|";
+            case LTH -> "<";
+            case GTH -> ">";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            case NOT -> "~";
+        };
+        return operator + type(operation.getTypeInfo());
+    }
+
+    private static String modifier(AccessModifier modifier) {
+        return modifier == AccessModifier.DEFAULT ? "" : modifier.name().toLowerCase() + " ";
+    }
+}
@@ -2,28 +2,45 @@ package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Types;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
 
-    public static String getTemp() {
+    private static final Map<Type, String> OLLIR_TYPES = new ConcurrentHashMap<>();
+
+    // Temporaries are numbered per generated unit, so that units compiled in parallel never share a counter
+    private int tempNumber = -1;
+
+    // Labels of ifs, whiles and short-circuit operators share one counter, so that their labels never collide
+    private int labelNumber = -1;
+
+    public String getTemp() {
 
         return getTemp("tmp");
     }
 
-    public static String getTemp(String prefix) {
+    public String getTemp(String prefix) {
 
         return prefix + getNextTempNum();
     }
 
-    public static int getNextTempNum() {
+    public int getNextTempNum() {
 
         tempNumber += 1;
         return tempNumber;
     }
 
+    public int getNextLabelNum() {
+
+        labelNumber += 1;
+        return labelNumber;
+    }
+
     public static String toOllirType(JmmNode typeNode) {
 
         TYPE.checkOrThrow(typeNode);
@@ -34,12 +51,26 @@ public class OptUtils {
     }
 
     public static String toOllirType(Type type) {
-        StringBuilder code = new StringBuilder();
-
         if (type == null) {
             throw new IllegalArgumentException("Type is null");
         }
 
+        // Only the few built-in types are cached, class types would grow the cache with every compiled program
+        if (!Types.isCanonical(type)) {
+            return buildOllirType(type);
+        }
+
+        var ollirType = OLLIR_TYPES.get(type);
+        if (ollirType == null) {
+            ollirType = buildOllirType(type);
+            OLLIR_TYPES.put(type, ollirType);
+        }
+        return ollirType;
+    }
+
+    private static String buildOllirType(Type type) {
+        StringBuilder code = new StringBuilder();
+
         if (type.isArray()) {
             code.append(".array");
         }
@@ -53,7 +84,7 @@ public class OptUtils {
             case "int" -> "i32";
             case "boolean" -> "bool";
             case "void", "IMPORTED_TYPE" -> "V";
-            case "String" -> getTemp("String") + '.' + typeName;
+            case "String" -> typeName;
             default -> typeName;
         };
 
@@ -0,0 +1,219 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowResult;
+import pt.up.fe.comp2024.optimization.dataflow.DefUse;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.LiveVariables;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+
+import java.util.*;
+
+/**
+ * Assigns the locals of each OLLIR method to as few JVM local variable slots as possible, rewriting the virtual
+ * registers of the var table.
+ * <p>
+ * Two locals interfere if one is defined while the other is live (see {@link LiveVariables}), except for the source of a
+ * copy, which holds the same value. The interference graph is coloured Chaitin/Briggs style: nodes with fewer
+ * neighbours than colours are removed first, then the one with most neighbours is removed optimistically, and the
+ * nodes get the lowest colour their neighbours do not use in reverse removal order. The number of colours is raised
+ * from one until the colouring succeeds.
+ * <p>
+ * 'this' and the parameters keep their slots, the locals get the slots after them.
+ */
+public class RegisterAllocator {
+
+    private static final CompilerLogger LOG = CompilerLogger.get("optimization.regalloc");
+
+    private final int maxLocals;
+
+    /**
+     * @param maxLocals the maximum number of JVM local variable slots of a method, or 0 to use as few as possible
+     */
+    public RegisterAllocator(int maxLocals) {
+        if (maxLocals < 0) {
+            throw new RuntimeException("Expected a non-negative number of registers, got '" + maxLocals + "'");
+        }
+        this.maxLocals = maxLocals;
+    }
+
+    /**
+     * Allocates the registers of every method of the class.
+     *
+     * @return an error for each method that needs more slots than allowed, whose registers are left as they were
+     */
+    public List<Report> allocate(ClassUnit classUnit) {
+        classUnit.buildCFGs();
+
+        var reports = new ArrayList<Report>();
+        for (var method : classUnit.getMethods()) {
+            allocate(method).ifPresent(reports::add);
+        }
+        return reports;
+    }
+
+    private Optional<Report> allocate(Method method) {
+        var varTable = method.getVarTable();
+
+        // Slots that are not reallocated: 'this' and the parameters
+        int firstLocal = InstructionUtils.getFirstLocalSlot(method);
+
+        var graph = new FlowGraph(method);
+        var defUse = new DefUse(graph);
+        var liveness = new LiveVariables(graph, defUse).solve();
+        var vars = defUse.getVars();
+        var locals = new BitSet();
+        for (int i = 0; i < vars.size(); i++) {
+            if (!InstructionUtils.isFixedSlot(vars.get(i), varTable.get(vars.get(i)))) {
+                locals.set(i);
+            }
+        }
+
+        var interference = buildInterferenceGraph(graph, defUse, liveness, locals);
+        int[] colours = null;
+        int numColours = locals.isEmpty() ? 0 : 1;
+        while (colours == null) {
+            colours = colour(interference, locals, numColours);
+            if (colours == null) {
+                numColours++;
+            }
+        }
+
+        int needed = firstLocal + numColours;
+        if (maxLocals > 0 && needed > maxLocals) {
+            return Optional.of(Report.newError(Stage.OPTIMIZATION, -1, -1, "Method '" + method.getMethodName()
+                    + "' needs " + needed + " local variable slots (" + firstLocal + " for 'this' and parameters, "
+                    + numColours + " for locals), but register allocation only allows " + maxLocals, null));
+        }
+
+        int before = Math.max(firstLocal,
+                varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(-1) + 1);
+        for (int var = locals.nextSetBit(0); var >= 0; var = locals.nextSetBit(var + 1)) {
+            varTable.get(vars.get(var)).setVirtualReg(firstLocal + colours[var]);
+        }
+
+        LOG.debug("Method {} uses {} local variable slots", method.getMethodName(), needed);
+        var profiler = CompilerProfiler.current();
+        profiler.count("jvmLocalsBefore", before);
+        profiler.count("jvmLocalsAfter", needed);
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return the neighbours of each local, by index of the variable
+     */
+    private static BitSet[] buildInterferenceGraph(FlowGraph flowGraph, DefUse defUse, DataflowResult liveness,
+                                                   BitSet locals) {
+        var graph = new BitSet[defUse.getVars().size()];
+        for (int i = 0; i < graph.length; i++) {
+            graph[i] = new BitSet();
+        }
+
+        for (int i = 0; i < flowGraph.size(); i++) {
+            int copySource = copySource(flowGraph.getInstruction(i), defUse);
+            var defs = defUse.getDefs(i);
+            var liveOut = liveness.getOut(i);
+            for (int def = defs.nextSetBit(0); def >= 0; def = defs.nextSetBit(def + 1)) {
+                for (int live = liveOut.nextSetBit(0); live >= 0; live = liveOut.nextSetBit(live + 1)) {
+                    if (live != def && live != copySource) {
+                        addEdge(graph, def, live);
+                    }
+                }
+            }
+        }
+
+        // Variables live on entry all hold a value at the same time
+        if (flowGraph.size() > 0) {
+            var liveIn = liveness.getIn(0);
+            for (int a = liveIn.nextSetBit(0); a >= 0; a = liveIn.nextSetBit(a + 1)) {
+                for (int b = liveIn.nextSetBit(a + 1); b >= 0; b = liveIn.nextSetBit(b + 1)) {
+                    addEdge(graph, a, b);
+                }
+            }
+        }
+
+        // Only the edges between locals matter for the colouring
+        for (var neighbours : graph) {
+            neighbours.and(locals);
+        }
+        return graph;
+    }
+
+    private static void addEdge(BitSet[] graph, int a, int b) {
+        graph[a].set(b);
+        graph[b].set(a);
+    }
+
+    /**
+     * @return the variable copied by the instruction, if it is a copy of a variable, or -1
+     */
+    private static int copySource(Instruction inst, DefUse defUse) {
+        if (inst instanceof AssignInstruction assign
+                && !(assign.getDest() instanceof ArrayOperand)
+                && assign.getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand source
+                && !(source instanceof ArrayOperand)
+                && !source.isLiteral()) {
+            return defUse.indexOf(source.getName());
+        }
+        return -1;
+    }
+
+    /**
+     * @return the colour of each local, or null if the graph could not be coloured with the given number of colours
+     */
+    private static int[] colour(BitSet[] graph, BitSet locals, int numColours) {
+        var remaining = (BitSet) locals.clone();
+        var degrees = new int[graph.length];
+        for (int var = locals.nextSetBit(0); var >= 0; var = locals.nextSetBit(var + 1)) {
+            degrees[var] = graph[var].cardinality();
+        }
+
+        // Simplify
+        var stack = new ArrayDeque<Integer>();
+        while (!remaining.isEmpty()) {
+            int next = -1;
+            for (int var = remaining.nextSetBit(0); var >= 0; var = remaining.nextSetBit(var + 1)) {
+                if (degrees[var] < numColours) {
+                    next = var;
+                    break;
+                }
+                if (next == -1 || degrees[var] > degrees[next]) {
+                    next = var;
+                }
+            }
+
+            stack.push(next);
+            remaining.clear(next);
+            var neighbours = graph[next];
+            for (int n = neighbours.nextSetBit(0); n >= 0; n = neighbours.nextSetBit(n + 1)) {
+                degrees[n]--;
+            }
+        }
+
+        // Select
+        var colours = new int[graph.length];
+        Arrays.fill(colours, -1);
+        while (!stack.isEmpty()) {
+            int var = stack.pop();
+            var used = new BitSet(numColours);
+            var neighbours = graph[var];
+            for (int n = neighbours.nextSetBit(0); n >= 0; n = neighbours.nextSetBit(n + 1)) {
+                if (colours[n] >= 0) {
+                    used.set(colours[n]);
+                }
+            }
+
+            int colour = used.nextClearBit(0);
+            if (colour >= numColours) {
+                return null;
+            }
+            colours[var] = colour;
+        }
+        return colours;
+    }
+}
@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Copies 'x := y' between tracked variables that were made on every path and whose variables were not redefined since,
+ * forwards with intersection. The bits are the indexes of the copies, in the order of their instructions.
+ */
+public class AvailableCopies extends BitVectorAnalysis {
+
+    private final DefUse defUse;
+    private final List<Integer> copies;
+
+    // Copy made by each instruction, or -1
+    private final int[] copyOf;
+
+    // Copies from or into each variable
+    private final List<BitSet> involving;
+
+    public AvailableCopies(FlowGraph graph, DefUse defUse) {
+        super(graph, Direction.FORWARD, Meet.INTERSECTION);
+        this.defUse = defUse;
+
+        copies = new ArrayList<>();
+        copyOf = new int[graph.size()];
+        involving = new ArrayList<>();
+        for (int var = 0; var < defUse.getVars().size(); var++) {
+            involving.add(new BitSet());
+        }
+
+        for (int inst = 0; inst < graph.size(); inst++) {
+            copyOf[inst] = -1;
+            int dest = getCopyDest(inst);
+            int source = getCopySource(inst);
+            if (dest < 0 || source < 0 || dest == source) {
+                continue;
+            }
+
+            copyOf[inst] = copies.size();
+            involving.get(dest).set(copies.size());
+            involving.get(source).set(copies.size());
+            copies.add(inst);
+        }
+    }
+
+    private int getCopyDest(int inst) {
+        if (!(graph.getInstruction(inst) instanceof AssignInstruction assign)
+                || assign.getDest() instanceof ArrayOperand
+                || !(assign.getDest() instanceof Operand dest)) {
+            return -1;
+        }
+        return defUse.indexOf(dest.getName());
+    }
+
+    private int getCopySource(int inst) {
+        if (!(graph.getInstruction(inst) instanceof AssignInstruction assign)
+                || !(assign.getRhs() instanceof SingleOpInstruction singleOp)
+                || singleOp.getSingleOperand().isLiteral()
+                || singleOp.getSingleOperand() instanceof ArrayOperand
+                || !(singleOp.getSingleOperand() instanceof Operand source)
+                || source.getName().equals("this")) {
+            return -1;
+        }
+        return defUse.indexOf(source.getName());
+    }
+
+    /**
+     * @return the number of copies in the method
+     */
+    public int getCopyCount() {
+        return copies.size();
+    }
+
+    /**
+     * @return the index of the copy made by the instruction, or -1 if it is not a copy
+     */
+    public int getCopy(int inst) {
+        return copyOf[inst];
+    }
+
+    /**
+     * @return the instruction that makes the copy
+     */
+    public int getInstruction(int copy) {
+        return copies.get(copy);
+    }
+
+    /**
+     * @return the variable the copy assigns
+     */
+    public int getDest(int copy) {
+        return getCopyDest(copies.get(copy));
+    }
+
+    /**
+     * @return the variable the copy reads
+     */
+    public int getSource(int copy) {
+        return getCopySource(copies.get(copy));
+    }
+
+    @Override
+    protected int domainSize() {
+        return copies.size();
+    }
+
+    @Override
+    protected BitSet gen(int inst) {
+        var gen = new BitSet();
+        if (copyOf[inst] >= 0) {
+            gen.set(copyOf[inst]);
+        }
+        return gen;
+    }
+
+    @Override
+    protected BitSet kill(int inst) {
+        var kill = new BitSet();
+        var defs = defUse.getDefs(inst);
+        for (int var = defs.nextSetBit(0); var >= 0; var = defs.nextSetBit(var + 1)) {
+            kill.or(involving.get(var));
+        }
+        return kill;
+    }
+}
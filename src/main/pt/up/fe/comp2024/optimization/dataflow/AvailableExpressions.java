@@ -0,0 +1,141 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Binary expressions whose value was computed on every path and whose operands were not redefined since, forwards
+ * with intersection. The bits are the indexes of the distinct expressions assigned in the method, e.g. 'a + 1'.
+ * <p>
+ * Array elements are keyed by the array and their indexes, e.g. 'a[i] + 1'. Arrays may alias each other, so an
+ * expression that reads an element is killed by any store into an array element and by any call, as well as by the
+ * definitions of the array and of the index variables.
+ */
+public class AvailableExpressions extends BitVectorAnalysis {
+
+    private final DefUse defUse;
+    private final List<String> expressions;
+
+    // Expression assigned by each instruction, or -1
+    private final int[] assigned;
+
+    // Expressions that read each variable
+    private final List<BitSet> readers;
+
+    // Expressions that read an array element
+    private final BitSet arrayReaders;
+
+    public AvailableExpressions(FlowGraph graph, DefUse defUse) {
+        super(graph, Direction.FORWARD, Meet.INTERSECTION);
+        this.defUse = defUse;
+
+        expressions = new ArrayList<>();
+        assigned = new int[graph.size()];
+        readers = new ArrayList<>();
+        arrayReaders = new BitSet();
+        for (int var = 0; var < defUse.getVars().size(); var++) {
+            readers.add(new BitSet());
+        }
+
+        var indexes = new HashMap<String, Integer>();
+        for (int inst = 0; inst < graph.size(); inst++) {
+            assigned[inst] = -1;
+            if (!(graph.getInstruction(inst) instanceof AssignInstruction assign)
+                    || !(assign.getRhs() instanceof BinaryOpInstruction binaryOp)) {
+                continue;
+            }
+
+            var key = toKey(binaryOp);
+            var index = indexes.get(key);
+            if (index == null) {
+                index = expressions.size();
+                indexes.put(key, index);
+                expressions.add(key);
+                // The arrays and the indexes of the elements are read too
+                for (var operand : DefUse.getUsedOperands(binaryOp)) {
+                    int var = defUse.indexOf(operand.getName());
+                    if (var >= 0) {
+                        readers.get(var).set(index);
+                    }
+                    if (operand instanceof ArrayOperand) {
+                        arrayReaders.set(index);
+                    }
+                }
+            }
+            assigned[inst] = index;
+        }
+    }
+
+    private static String toKey(BinaryOpInstruction binaryOp) {
+        return toKey(binaryOp.getLeftOperand()) + " " + binaryOp.getOperation().getOpType() + " "
+                + toKey(binaryOp.getRightOperand());
+    }
+
+    private static String toKey(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral();
+        }
+        if (element instanceof ArrayOperand array) {
+            return array.getName() + array.getIndexOperands().stream()
+                    .map(AvailableExpressions::toKey)
+                    .collect(Collectors.joining(", ", "[", "]"));
+        }
+        if (element instanceof Operand operand) {
+            return operand.getName();
+        }
+        return element.toString();
+    }
+
+    /**
+     * @return the expressions, in the order of their indexes
+     */
+    public List<String> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * @return the index of the expression assigned by the instruction, or -1 if it does not assign a binary expression
+     */
+    public int getAssigned(int inst) {
+        return assigned[inst];
+    }
+
+    @Override
+    protected int domainSize() {
+        return expressions.size();
+    }
+
+    @Override
+    protected BitSet gen(int inst) {
+        var gen = new BitSet();
+        if (assigned[inst] >= 0) {
+            gen.set(assigned[inst]);
+        }
+
+        // 'a = a + 1' computes the expression but changes its operand
+        gen.andNot(kill(inst));
+        return gen;
+    }
+
+    @Override
+    protected BitSet kill(int inst) {
+        var kill = new BitSet();
+        var defs = defUse.getDefs(inst);
+        for (int var = defs.nextSetBit(0); var >= 0; var = defs.nextSetBit(var + 1)) {
+            kill.or(readers.get(var));
+        }
+        if (mayStoreArrayElement(graph.getInstruction(inst))) {
+            kill.or(arrayReaders);
+        }
+        return kill;
+    }
+
+    private static boolean mayStoreArrayElement(Instruction inst) {
+        if (inst instanceof AssignInstruction assign) {
+            return assign.getDest() instanceof ArrayOperand || assign.getRhs() instanceof CallInstruction;
+        }
+        return inst instanceof CallInstruction;
+    }
+}
@@ -0,0 +1,157 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Dataflow analysis whose facts are bit vectors and whose transfer functions have the gen/kill form
+ * {@code out = gen | (in & ~kill)}, solved with a worklist over a {@link FlowGraph}.
+ * <p>
+ * Subclasses give the size of the domain, the gen and kill sets of each instruction, the direction and the meet:
+ * <ul>
+ * <li>forward analyses meet the facts after the predecessors of an instruction, backward analyses the facts before
+ * its successors;</li>
+ * <li>union analyses start from the empty set (facts that hold on some path), intersection analyses from the full
+ * domain (facts that hold on every path).</li>
+ * </ul>
+ * The worklist starts with every instruction, in reverse postorder for forward analyses and in postorder for backward
+ * ones, and an instruction goes back to it when the facts of one of the instructions it depends on change.
+ */
+public abstract class BitVectorAnalysis {
+
+    public enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    public enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    protected final FlowGraph graph;
+    private final Direction direction;
+    private final Meet meet;
+
+    protected BitVectorAnalysis(FlowGraph graph, Direction direction, Meet meet) {
+        this.graph = graph;
+        this.direction = direction;
+        this.meet = meet;
+    }
+
+    /**
+     * @return the number of facts, the bits of the vectors
+     */
+    protected abstract int domainSize();
+
+    /**
+     * @return the facts the instruction makes true
+     */
+    protected abstract BitSet gen(int inst);
+
+    /**
+     * @return the facts the instruction makes false
+     */
+    protected abstract BitSet kill(int inst);
+
+    /**
+     * @return the facts on entry of the method for forward analyses, or on exit for backward analyses. Empty by
+     * default
+     */
+    protected BitSet boundary() {
+        return new BitSet();
+    }
+
+    public FlowGraph getGraph() {
+        return graph;
+    }
+
+    public DataflowResult solve() {
+        long start = System.nanoTime();
+        int size = graph.size();
+        boolean forward = direction == Direction.FORWARD;
+
+        var gens = new BitSet[size];
+        var kills = new BitSet[size];
+        for (int inst = 0; inst < size; inst++) {
+            gens[inst] = gen(inst);
+            kills[inst] = kill(inst);
+        }
+
+        var top = new BitSet();
+        if (meet == Meet.INTERSECTION) {
+            top.set(0, domainSize());
+        }
+
+        // The facts flow from input to output, which are the in and out sets of forward analyses, and the reverse
+        var input = new BitSet[size];
+        var output = new BitSet[size];
+        for (int inst = 0; inst < size; inst++) {
+            input[inst] = new BitSet();
+            output[inst] = (BitSet) top.clone();
+        }
+
+        var order = graph.reversePostorder();
+        var worklist = new ArrayDeque<Integer>(size);
+        var queued = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            int inst = forward ? order[i] : order[size - 1 - i];
+            worklist.add(inst);
+            queued.set(inst);
+        }
+
+        int visits = 0;
+        int updates = 0;
+        while (!worklist.isEmpty()) {
+            int inst = worklist.poll();
+            queued.clear(inst);
+            visits++;
+
+            BitSet value = null;
+            if (forward ? graph.isEntry(inst) : graph.isExit(inst)) {
+                value = boundary();
+            }
+            for (int source : forward ? graph.getPredecessors(inst) : graph.getSuccessors(inst)) {
+                if (value == null) {
+                    value = (BitSet) output[source].clone();
+                } else if (meet == Meet.UNION) {
+                    value.or(output[source]);
+                } else {
+                    value.and(output[source]);
+                }
+            }
+            if (value == null) {
+                // Unreachable, nothing flows into it
+                value = (BitSet) top.clone();
+            }
+            input[inst] = value;
+
+            var result = (BitSet) value.clone();
+            result.andNot(kills[inst]);
+            result.or(gens[inst]);
+            if (result.equals(output[inst])) {
+                continue;
+            }
+
+            output[inst] = result;
+            updates++;
+            for (int dependent : forward ? graph.getSuccessors(inst) : graph.getPredecessors(inst)) {
+                if (!queued.get(dependent)) {
+                    queued.set(dependent);
+                    worklist.add(dependent);
+                }
+            }
+        }
+
+        var profiler = CompilerProfiler.current();
+        profiler.count("dataflowVisits", visits);
+        profiler.count("dataflowUpdates", updates);
+
+        long nanos = System.nanoTime() - start;
+        return forward
+                ? new DataflowResult(input, output, visits, updates, nanos)
+                : new DataflowResult(output, input, visits, updates, nanos);
+    }
+}
@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * Facts before and after each instruction found by a {@link BitVectorAnalysis}, with statistics of how the solver
+ * converged.
+ */
+public class DataflowResult {
+
+    private final BitSet[] in;
+    private final BitSet[] out;
+    private final int visits;
+    private final int updates;
+    private final long nanos;
+
+    DataflowResult(BitSet[] in, BitSet[] out, int visits, int updates, long nanos) {
+        this.in = in;
+        this.out = out;
+        this.visits = visits;
+        this.updates = updates;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return the facts that hold before the instruction runs
+     */
+    public BitSet getIn(int inst) {
+        return in[inst];
+    }
+
+    /**
+     * @return the facts that hold after the instruction runs
+     */
+    public BitSet getOut(int inst) {
+        return out[inst];
+    }
+
+    /**
+     * @return the number of instructions taken from the worklist
+     */
+    public int getVisits() {
+        return visits;
+    }
+
+    /**
+     * @return the number of visits that changed the facts of the instruction
+     */
+    public int getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return the average number of visits of each instruction, 1 if the solver never had to revisit one
+     */
+    public double getVisitsPerInstruction() {
+        return in.length == 0 ? 0 : (double) visits / in.length;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
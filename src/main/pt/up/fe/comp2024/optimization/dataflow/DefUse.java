@@ -0,0 +1,126 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * Variables defined and used by each instruction of a {@link FlowGraph}.
+ * <p>
+ * Only the locals and parameters of the var table are tracked, each one gets an index and the sets are {@link BitSet}s
+ * over those indexes. A store into an array element uses the array and the index, it does not define a variable.
+ */
+public class DefUse {
+
+    private final List<String> vars;
+    private final Map<String, Integer> varIndexes;
+    private final BitSet[] defs;
+    private final BitSet[] uses;
+
+    public DefUse(FlowGraph graph) {
+        vars = new ArrayList<>();
+        varIndexes = new HashMap<>();
+        for (var entry : graph.getMethod().getVarTable().entrySet()) {
+            if (entry.getValue().getScope() != VarScope.FIELD) {
+                varIndexes.put(entry.getKey(), vars.size());
+                vars.add(entry.getKey());
+            }
+        }
+
+        defs = new BitSet[graph.size()];
+        uses = new BitSet[graph.size()];
+        for (int i = 0; i < graph.size(); i++) {
+            defs[i] = new BitSet();
+            uses[i] = new BitSet();
+            collect(graph.getInstruction(i), defs[i], uses[i]);
+        }
+    }
+
+    private void collect(Instruction inst, BitSet def, BitSet use) {
+        if (inst instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)
+                && assign.getDest() instanceof Operand dest) {
+            int index = indexOf(dest.getName());
+            if (index >= 0) {
+                def.set(index);
+            }
+        }
+
+        for (var operand : getUsedOperands(inst)) {
+            int index = indexOf(operand.getName());
+            if (index >= 0) {
+                use.set(index);
+            }
+        }
+    }
+
+    /**
+     * @return the operands the instruction reads, in order, including the array and the indexes of an array element
+     * it stores into. Fields and 'this' are included, they are not filtered by the tracked variables
+     */
+    public static List<Operand> getUsedOperands(Instruction inst) {
+        var operands = new ArrayList<Operand>();
+        addUsedOperands(inst, operands);
+        return operands;
+    }
+
+    private static void addUsedOperands(Instruction inst, List<Operand> operands) {
+        if (inst instanceof AssignInstruction assign) {
+            addUsedOperands(assign.getRhs(), operands);
+            if (assign.getDest() instanceof ArrayOperand array) {
+                addUse(array, operands);
+            }
+        } else if (inst instanceof CallInstruction call) {
+            addUse(call.getCaller(), operands);
+            call.getArguments().forEach(arg -> addUse(arg, operands));
+        } else if (inst instanceof PutFieldInstruction putField) {
+            addUse(putField.getObject(), operands);
+            addUse(putField.getValue(), operands);
+        } else if (inst instanceof GetFieldInstruction getField) {
+            addUse(getField.getObject(), operands);
+        } else if (inst instanceof OpInstruction op) {
+            op.getOperands().forEach(operand -> addUse(operand, operands));
+        } else if (inst instanceof SingleOpInstruction singleOp) {
+            addUse(singleOp.getSingleOperand(), operands);
+        } else if (inst instanceof CondBranchInstruction branch) {
+            addUsedOperands(branch.getCondition(), operands);
+        } else if (inst instanceof ReturnInstruction ret && ret.hasReturnValue()) {
+            addUse(ret.getOperand(), operands);
+        }
+    }
+
+    private static void addUse(Element element, List<Operand> operands) {
+        if (element == null || element.isLiteral() || !(element instanceof Operand operand)) {
+            return;
+        }
+
+        operands.add(operand);
+        if (operand instanceof ArrayOperand array) {
+            array.getIndexOperands().forEach(indexOperand -> addUse(indexOperand, operands));
+        }
+    }
+
+    /**
+     * @return the tracked variables, in the order of their indexes
+     */
+    public List<String> getVars() {
+        return vars;
+    }
+
+    /**
+     * @return the index of the variable, or -1 if it is not tracked
+     */
+    public int indexOf(String var) {
+        return varIndexes.getOrDefault(var, -1);
+    }
+
+    /**
+     * @return the variables defined by the instruction, at most one
+     */
+    public BitSet getDefs(int inst) {
+        return defs[inst];
+    }
+
+    public BitSet getUses(int inst) {
+        return uses[inst];
+    }
+}
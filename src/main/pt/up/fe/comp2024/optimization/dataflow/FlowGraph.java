@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.NodeType;
+
+import java.util.*;
+
+/**
+ * Control-flow graph of an OLLIR method, with the instructions numbered by their position in the method.
+ * <p>
+ * Built from the successors of the instructions, so {@link Method#buildCFG()} (or the buildCFGs of the class) must
+ * have been called before. Instruction 0 is the entry, and the instructions that go to the end node of the method are
+ * its exits.
+ */
+public class FlowGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final Method method;
+    private final List<Instruction> instructions;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final BitSet exits;
+
+    public FlowGraph(Method method) {
+        this.method = method;
+        this.instructions = method.getInstructions();
+
+        var indexes = new IdentityHashMap<Instruction, Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        int size = instructions.size();
+        successors = new int[size][];
+        exits = new BitSet(size);
+        var predecessorLists = new ArrayList<List<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            predecessorLists.add(new ArrayList<>(2));
+        }
+
+        for (int i = 0; i < size; i++) {
+            var succs = new ArrayList<Integer>(2);
+            for (var succ : instructions.get(i).getSuccessors()) {
+                if (succ.getNodeType() != NodeType.INSTRUCTION) {
+                    exits.set(i);
+                    continue;
+                }
+
+                var index = indexes.get(succ.toInstruction());
+                if (index != null && !succs.contains(index)) {
+                    succs.add(index);
+                    predecessorLists.get(index).add(i);
+                }
+            }
+            if (succs.isEmpty()) {
+                exits.set(i);
+            }
+            successors[i] = toArray(succs);
+        }
+
+        predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            predecessors[i] = toArray(predecessorLists.get(i));
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.isEmpty() ? NONE : list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the number of instructions
+     */
+    public int size() {
+        return instructions.size();
+    }
+
+    public Instruction getInstruction(int inst) {
+        return instructions.get(inst);
+    }
+
+    public int[] getSuccessors(int inst) {
+        return successors[inst];
+    }
+
+    public int[] getPredecessors(int inst) {
+        return predecessors[inst];
+    }
+
+    public boolean isEntry(int inst) {
+        return inst == 0;
+    }
+
+    /**
+     * @return true if the method can end after the instruction
+     */
+    public boolean isExit(int inst) {
+        return exits.get(inst);
+    }
+
+    /**
+     * @return the instructions reachable from the entry in reverse postorder, followed by the unreachable ones
+     */
+    public int[] reversePostorder() {
+        int size = size();
+        var order = new int[size];
+        int next = size;
+
+        var visited = new BitSet(size);
+        if (size > 0) {
+            // Iterative DFS, each frame is an instruction and the index of its next successor
+            var stack = new ArrayDeque<int[]>();
+            stack.push(new int[]{0, 0});
+            visited.set(0);
+            while (!stack.isEmpty()) {
+                var frame = stack.peek();
+                var succs = successors[frame[0]];
+                if (frame[1] < succs.length) {
+                    int succ = succs[frame[1]++];
+                    if (!visited.get(succ)) {
+                        visited.set(succ);
+                        stack.push(new int[]{succ, 0});
+                    }
+                } else {
+                    stack.pop();
+                    order[--next] = frame[0];
+                }
+            }
+        }
+
+        // Unreachable instructions go after the reachable ones, in method order
+        int reachable = size - next;
+        System.arraycopy(order, next, order, 0, reachable);
+        int position = reachable;
+        for (int inst = visited.nextClearBit(0); inst < size; inst = visited.nextClearBit(inst + 1)) {
+            order[position++] = inst;
+        }
+        return order;
+    }
+
+    /**
+     * @return the instructions that are not reachable from the entry
+     */
+    public BitSet unreachable() {
+        var reachable = new BitSet(size());
+        var pending = new ArrayDeque<Integer>();
+        if (size() > 0) {
+            pending.push(0);
+            reachable.set(0);
+        }
+        while (!pending.isEmpty()) {
+            for (int succ : successors[pending.pop()]) {
+                if (!reachable.get(succ)) {
+                    reachable.set(succ);
+                    pending.push(succ);
+                }
+            }
+        }
+
+        var unreachable = new BitSet(size());
+        unreachable.set(0, size());
+        unreachable.andNot(reachable);
+        return unreachable;
+    }
+}
@@ -0,0 +1,32 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * Variables whose value may still be read, backwards with union: an instruction uses its operands and kills the
+ * variable it defines. The bits are the indexes of the {@link DefUse}.
+ */
+public class LiveVariables extends BitVectorAnalysis {
+
+    private final DefUse defUse;
+
+    public LiveVariables(FlowGraph graph, DefUse defUse) {
+        super(graph, Direction.BACKWARD, Meet.UNION);
+        this.defUse = defUse;
+    }
+
+    @Override
+    protected int domainSize() {
+        return defUse.getVars().size();
+    }
+
+    @Override
+    protected BitSet gen(int inst) {
+        return defUse.getUses(inst);
+    }
+
+    @Override
+    protected BitSet kill(int inst) {
+        return defUse.getDefs(inst);
+    }
+}
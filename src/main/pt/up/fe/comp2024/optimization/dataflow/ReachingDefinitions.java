@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Definitions that may reach each instruction without being overwritten, forwards with union. The bits are the
+ * indexes of the instructions that define a variable. Parameters, defined on entry, have no bit.
+ */
+public class ReachingDefinitions extends BitVectorAnalysis {
+
+    private final DefUse defUse;
+
+    // Instructions that define each variable
+    private final List<BitSet> definitions;
+
+    public ReachingDefinitions(FlowGraph graph, DefUse defUse) {
+        super(graph, Direction.FORWARD, Meet.UNION);
+        this.defUse = defUse;
+
+        definitions = new ArrayList<>();
+        for (int var = 0; var < defUse.getVars().size(); var++) {
+            definitions.add(new BitSet());
+        }
+        for (int inst = 0; inst < graph.size(); inst++) {
+            var defs = defUse.getDefs(inst);
+            for (int var = defs.nextSetBit(0); var >= 0; var = defs.nextSetBit(var + 1)) {
+                definitions.get(var).set(inst);
+            }
+        }
+    }
+
+    /**
+     * @return the instructions that define the variable with the given index
+     */
+    public BitSet getDefinitions(int var) {
+        return definitions.get(var);
+    }
+
+    @Override
+    protected int domainSize() {
+        return graph.size();
+    }
+
+    @Override
+    protected BitSet gen(int inst) {
+        var gen = new BitSet();
+        if (!defUse.getDefs(inst).isEmpty()) {
+            gen.set(inst);
+        }
+        return gen;
+    }
+
+    @Override
+    protected BitSet kill(int inst) {
+        var kill = new BitSet();
+        var defs = defUse.getDefs(inst);
+        for (int var = defs.nextSetBit(0); var >= 0; var = defs.nextSetBit(var + 1)) {
+            kill.or(definitions.get(var));
+        }
+        kill.clear(inst);
+        return kill;
+    }
+}
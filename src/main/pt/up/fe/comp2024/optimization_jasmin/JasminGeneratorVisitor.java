@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.optimization_jasmin;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.MethodScope;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.utilities.StringLines;
 
@@ -90,19 +91,19 @@ public class JasminGeneratorVisitor extends AJmmVisitor<Void, String> {
         // set method
         currentMethod = methodName;
 
-        // set next register that can be used
-        // if method is static, then can start at 0
-        // if method is not static, 0 contains 'this', and must start at 1
-        // for the initial language, there are no static methods
-        nextRegister = 1;
-
-        // initialize register map and set parameters
+        // initialize register map with the slots of the parameters and locals
+        // 0 contains 'this', parameters and locals come next
+        var scope = MethodScope.of(table, methodName);
         currentRegisters = new HashMap<>();
-        for (var param : methodDecl.getChildren("Param")) {
-            currentRegisters.put(param.get("name"), nextRegister);
-            nextRegister++;
+        for (var entry : scope.getEntries().entrySet()) {
+            if (entry.getValue().slot() >= 0) {
+                currentRegisters.put(entry.getKey(), entry.getValue().slot());
+            }
         }
 
+        // set next register that can be used
+        nextRegister = scope.getNumSlots();
+
         exprGenerator = new JasminExprGeneratorVisitor(currentRegisters);
 
         var code = new StringBuilder();
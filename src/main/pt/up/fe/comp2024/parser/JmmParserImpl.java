@@ -1,15 +1,22 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+import pt.up.fe.comp2024.utils.ReportUtils;
 
-import java.util.Collections;
+import java.io.File;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Copyright 2022 SPeCS.
@@ -24,8 +31,40 @@ import java.util.Map;
  * specific language governing permissions and limitations under the License. under the License.
  */
 
+/**
+ * Parses in two stages. The first stage uses SLL prediction, which is much faster than the default LL prediction,
+ * and a {@link BailErrorStrategy}, which stops at the first syntax error. Every valid program is accepted by SLL except
+ * for rare ambiguous inputs, so the second stage, a full LL parse with the default error recovery, only runs when the
+ * first one fails: for programs with errors, which get the same reports as before, and for the inputs SLL cannot
+ * decide.
+ * <p>
+ * Both stages share the DFA caches of {@link PredictionCache}.
+ */
 public class JmmParserImpl implements JmmParser {
 
+    private static final CompilerLogger LOG = CompilerLogger.get("parser");
+
+    // Totals of the process, the profiler has the counts of each compilation
+    private static final AtomicLong SLL_PARSES = new AtomicLong();
+    private static final AtomicLong LL_FALLBACKS = new AtomicLong();
+
+    private final boolean sllFirst;
+
+    // Counts of the parses of this instance, which may be shared between threads
+    private final AtomicLong sllParses = new AtomicLong();
+    private final AtomicLong llFallbacks = new AtomicLong();
+
+    public JmmParserImpl() {
+        this(true);
+    }
+
+    /**
+     * @param sllFirst if false, parses with LL prediction only, as a single stage
+     */
+    public JmmParserImpl(boolean sllFirst) {
+        this.sllFirst = sllFirst;
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -33,16 +72,44 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
+    /**
+     * Parses a source file, memory-mapped if it is large, see {@link MappedCharStream}.
+     */
+    public JmmParserResult parse(File file, Map<String, String> config) {
+        CharStream input;
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
+            input = MappedCharStream.open(file);
+        } catch (RuntimeException e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        }
+
+        return parse(input, getDefaultRule(), config);
+    }
+
+    /**
+     * Parses the characters of the given stream.
+     */
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+
+        try {
+            if (sllFirst) {
+                var result = parseSll(input, startingRule, config);
+                if (result != null) {
+                    return result;
+                }
+                input.seek(0);
+            }
+
             // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
+            var lex = PredictionCache.newLexer(input);
             // Wrap lexer around a token stream
             var tokens = new CommonTokenStream(lex);
             // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            var parser = PredictionCache.newParser(tokens);
 
 
             // Convert ANTLR CST to JmmNode AST
@@ -51,6 +118,67 @@ public class JmmParserImpl implements JmmParser {
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        } finally {
+            PredictionCache.trim();
         }
     }
+
+    /**
+     * @return the result of the SLL parse, or null if it failed and the code must be parsed again with LL
+     */
+    private JmmParserResult parseSll(CharStream input, String startingRule, Map<String, String> config) {
+        var lex = PredictionCache.newLexer(input);
+        var parser = PredictionCache.newParser(new CommonTokenStream(lex));
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+
+        var profiler = CompilerProfiler.current();
+        try {
+            var result = AntlrParser.parse(lex, parser, startingRule, config);
+
+            // Lexical errors do not stop the parse, the LL stage reports them again
+            if (!ReportUtils.anyError(result.getReports())) {
+                SLL_PARSES.incrementAndGet();
+                sllParses.incrementAndGet();
+                profiler.count("parseSll", 1);
+                return result;
+            }
+        } catch (RuntimeException e) {
+            // The bail strategy cancels the parse at the first syntax error
+            LOG.debug("SLL parse failed, parsing again with LL: {}", e.getMessage());
+        }
+
+        LL_FALLBACKS.incrementAndGet();
+        llFallbacks.incrementAndGet();
+        profiler.count("parseLlFallbacks", 1);
+        return null;
+    }
+
+    /**
+     * @return the number of parses of this parser the SLL stage completed
+     */
+    public long getSllParses() {
+        return sllParses.get();
+    }
+
+    /**
+     * @return the number of parses of this parser that fell back to LL
+     */
+    public long getLlFallbacks() {
+        return llFallbacks.get();
+    }
+
+    /**
+     * @return the number of parses the SLL stage completed, since the start of the process
+     */
+    public static long getTotalSllParses() {
+        return SLL_PARSES.get();
+    }
+
+    /**
+     * @return the number of parses that fell back to LL, since the start of the process
+     */
+    public static long getTotalLlFallbacks() {
+        return LL_FALLBACKS.get();
+    }
 }
@@ -0,0 +1,154 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link CharStream} over a memory-mapped source file.
+ * <p>
+ * {@link ANTLRInputStream} needs the whole file as a String and then copies it into its own char array. This stream
+ * reads the characters directly from the mapped file, so the lexer runs without a copy of the source in the heap.
+ * Only the text of each token is copied, when it is requested. Each byte is one character, so this only works for
+ * ASCII sources: see {@link #open(File)}, which falls back to an {@link ANTLRInputStream} for other files.
+ * <p>
+ * The lexer tracks lines and columns from the characters it consumes, so reports have the same positions as with an
+ * {@link ANTLRInputStream}.
+ */
+public class MappedCharStream implements CharStream {
+
+    // Below this size reading the file is cheaper than mapping it
+    private static final long MIN_MAPPED_BYTES = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String sourceName;
+
+    // Index of the next character to consume
+    private int p;
+
+    private MappedCharStream(ByteBuffer buffer, String sourceName) {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+        this.sourceName = sourceName;
+        this.p = 0;
+    }
+
+    /**
+     * Opens a source file. Large ASCII files are memory-mapped, other files are read into an {@link ANTLRInputStream}.
+     */
+    public static CharStream open(File file) {
+        try {
+            try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (length > Integer.MAX_VALUE) {
+                    throw new RuntimeException("Source file '" + file + "' is too large, " + length + " bytes");
+                }
+
+                if (length >= MIN_MAPPED_BYTES) {
+                    // The mapping stays valid after the channel is closed
+                    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                    if (isAscii(buffer)) {
+                        return new MappedCharStream(buffer, file.getPath());
+                    }
+                }
+            }
+
+            var stream = new ANTLRInputStream(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            stream.name = file.getPath();
+            return stream;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read source file '" + file + "'", e);
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void consume() {
+        if (p >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        p++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // Undefined
+            return 0;
+        }
+
+        // LA(-1) is the last consumed character
+        int index = i < 0 ? p + i : p + i - 1;
+        if (index < 0 || index >= size) {
+            return IntStream.EOF;
+        }
+        return buffer.get(index);
+    }
+
+    @Override
+    public int mark() {
+        // The whole file is always available
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.min(Math.max(index, 0), size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+        if (start >= size || stop < start) {
+            return "";
+        }
+
+        var bytes = new byte[stop - start + 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
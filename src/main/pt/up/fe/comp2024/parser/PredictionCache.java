@@ -0,0 +1,178 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.utils.CompilerLogger;
+
+/**
+ * DFA and prediction context caches of the lexer and the parser, shared by every parse of the process.
+ * <p>
+ * ANTLR builds the DFA of each decision lazily, while parsing, so the first files of a process pay for building it.
+ * Lexers and parsers created here share one set of caches, owned by this class instead of the static fields of the
+ * generated classes, so that:
+ * <ul>
+ * <li>{@link #warmUp()} can fill them at startup, by parsing an embedded program that uses every construct of the
+ * language;</li>
+ * <li>{@link #clear()} can drop them, and they are dropped after a parse when they grow past a number of DFA states
+ * (the 'jmm.dfaMaxStates' system property, see {@link #setMaxStates(int)}).</li>
+ * </ul>
+ * The caches are thread-safe, as ANTLR synchronizes the updates of a shared DFA. Clearing replaces them, parses in
+ * progress finish with the previous ones.
+ */
+public final class PredictionCache {
+
+    private static final CompilerLogger LOG = CompilerLogger.get("parser.cache");
+
+    private static final int DEFAULT_MAX_STATES = 100_000;
+
+    // Uses every declaration, statement and expression of the grammar
+    static final String WARM_UP_PROGRAM = """
+            import io;
+            import java.util.List;
+
+            class WarmUp extends Base {
+                int count;
+                int[] values;
+                boolean done;
+                WarmUp other;
+
+                public int sum(int[] array, int n, boolean reverse) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < array.length && !done) {
+                        if (reverse || n <= i) {
+                            total = total - array[array.length - i - 1];
+                        } else {
+                            total = total + array[i] * 2 / 1;
+                        }
+                        i = i + 1;
+                    }
+                    values = new int[n];
+                    values[0] = total;
+                    return total;
+                }
+
+                public boolean check(int a, int... rest) {
+                    boolean result;
+                    result = a >= 1 && a > 0 || false;
+                    other = new WarmUp();
+                    io.println(other.sum([1, 2, 3], a, true));
+                    { this.count(); }
+                    return !result;
+                }
+
+                public static void main(String[] args) {
+                    WarmUp warmUp;
+                    warmUp = new WarmUp();
+                    warmUp.check((1 + 2) * 3, 4, 5);
+                }
+            }
+            """;
+
+    private static volatile Caches caches = new Caches();
+    private static volatile int maxStates = Integer.getInteger("jmm.dfaMaxStates", DEFAULT_MAX_STATES);
+
+    private PredictionCache() {
+    }
+
+    /**
+     * @return a lexer that uses the shared caches
+     */
+    public static JavammLexer newLexer(CharStream input) {
+        var current = caches;
+        var lexer = new JavammLexer(input);
+        lexer.setInterpreter(new LexerATNSimulator(lexer, JavammLexer._ATN, current.lexerDfas, current.lexerContexts));
+        return lexer;
+    }
+
+    /**
+     * @return a parser that uses the shared caches
+     */
+    public static JavammParser newParser(TokenStream tokens) {
+        var current = caches;
+        var parser = new JavammParser(tokens);
+        parser.setInterpreter(new ParserATNSimulator(parser, JavammParser._ATN, current.parserDfas,
+                current.parserContexts));
+        return parser;
+    }
+
+    /**
+     * Fills the caches by parsing an embedded program, with both stages of the parser.
+     */
+    public static void warmUp() {
+        var config = CompilerConfig.getDefault();
+        new JmmParserImpl().parse(WARM_UP_PROGRAM, config);
+        new JmmParserImpl(false).parse(WARM_UP_PROGRAM, config);
+        LOG.debug("Prediction caches warmed up with {} DFA states", size());
+    }
+
+    /**
+     * Drops every cached DFA state. Later parses start from empty caches.
+     */
+    public static void clear() {
+        caches = new Caches();
+    }
+
+    /**
+     * Sets the number of DFA states above which the caches are cleared after a parse.
+     */
+    public static void setMaxStates(int maxStates) {
+        if (maxStates < 1) {
+            throw new RuntimeException("Expected a positive number of DFA states, got '" + maxStates + "'");
+        }
+        PredictionCache.maxStates = maxStates;
+    }
+
+    /**
+     * @return the number of DFA states in the caches, of the lexer and the parser
+     */
+    public static int size() {
+        var current = caches;
+        return countStates(current.lexerDfas) + countStates(current.parserDfas);
+    }
+
+    /**
+     * Clears the caches if they are over the maximum size. Called after each parse.
+     */
+    static void trim() {
+        int size = size();
+        if (size > maxStates) {
+            LOG.debug("Clearing prediction caches with {} DFA states", size);
+            clear();
+        }
+    }
+
+    private static int countStates(DFA[] dfas) {
+        int states = 0;
+        for (var dfa : dfas) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    private static final class Caches {
+
+        private final DFA[] lexerDfas = newDfas(JavammLexer._ATN);
+        private final DFA[] parserDfas = newDfas(JavammParser._ATN);
+        private final PredictionContextCache lexerContexts = new PredictionContextCache();
+        private final PredictionContextCache parserContexts = new PredictionContextCache();
+
+        private static DFA[] newDfas(ATN atn) {
+            var dfas = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < dfas.length; i++) {
+                dfas[i] = new DFA(atn.getDecisionState(i), i);
+            }
+            return dfas;
+        }
+    }
+}
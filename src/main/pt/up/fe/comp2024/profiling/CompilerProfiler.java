@@ -0,0 +1,232 @@
+package pt.up.fe.comp2024.profiling;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of each compiler stage and of each method of the compiled class.
+ * <p>
+ * Stages open a {@link Span} with {@link #start(String)} and close it when they finish. Code that has no direct access
+ * to the profiler (e.g. the OLLIR and Jasmin generators, which are created by the framework interfaces) uses
+ * {@link #current()}, the profiler installed on the current thread. When profiling is disabled only the wall time is
+ * measured, so the same spans can be used to fill the per-stage times of the pipeline.
+ */
+public class CompilerProfiler {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean SUN_THREADS =
+            THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) THREADS : null;
+
+    private static final CompilerProfiler DISABLED = new CompilerProfiler(false);
+    private static final ThreadLocal<CompilerProfiler> CURRENT = ThreadLocal.withInitial(() -> DISABLED);
+
+    private final boolean enabled;
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+    private final List<Span> stages = new ArrayList<>();
+    private final List<Span> methods = new ArrayList<>();
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+
+    public CompilerProfiler(boolean enabled) {
+        this.enabled = enabled;
+        this.cpuTimeSupported = enabled && THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+        this.allocationSupported = enabled && SUN_THREADS != null && SUN_THREADS.isThreadAllocatedMemorySupported()
+                && SUN_THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * @return the profiler installed on the current thread, or a disabled profiler if there is none
+     */
+    public static CompilerProfiler current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Installs this profiler on the current thread, until {@link #uninstall()} is called.
+     */
+    public void install() {
+        CURRENT.set(this);
+    }
+
+    public void uninstall() {
+        CURRENT.remove();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts measuring a compiler stage.
+     *
+     * @param stage name of the stage, e.g. "parse" or "analysis.symbolTable"
+     * @return the span to close when the stage finishes
+     */
+    public Span start(String stage) {
+        return new Span(stage, null);
+    }
+
+    /**
+     * Starts measuring the work done by a stage on a single method.
+     *
+     * @param stage  name of the stage
+     * @param method name of the method
+     * @return the span to close when the method is done
+     */
+    public Span start(String stage, String method) {
+        return new Span(stage, method);
+    }
+
+    /**
+     * Adds the given value to a counter of the compilation unit, e.g. the number of AST nodes. Can be called from
+     * worker threads of the compilation.
+     */
+    public synchronized void count(String counter, long value) {
+        if (enabled) {
+            counts.merge(counter, value, Long::sum);
+        }
+    }
+
+    public List<Span> getStages() {
+        return stages;
+    }
+
+    public List<Span> getMethods() {
+        return methods;
+    }
+
+    public synchronized Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return the stages, methods and counters recorded so far, with times in milliseconds
+     */
+    public JsonObject toJson() {
+        var json = new JsonObject();
+
+        var stagesJson = new JsonArray();
+        stages.forEach(span -> stagesJson.add(span.toJson()));
+        json.add("stages", stagesJson);
+
+        var methodsJson = new JsonArray();
+        methods.forEach(span -> methodsJson.add(span.toJson()));
+        json.add("methods", methodsJson);
+
+        var countsJson = new JsonObject();
+        counts.forEach(countsJson::addProperty);
+        json.add("counts", countsJson);
+
+        return json;
+    }
+
+    private long cpuNanos() {
+        return cpuTimeSupported ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long allocatedBytes() {
+        return allocationSupported ? SUN_THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * A measurement of a stage, or of a stage on a single method. Must be closed on the thread that started it.
+     */
+    public class Span implements AutoCloseable {
+
+        private final String stage;
+        private final String method;
+        private final Map<String, Long> spanCounts = new LinkedHashMap<>();
+
+        private final long startWall;
+        private final long startCpu;
+        private final long startAllocated;
+
+        private long wallNanos = -1;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        private Span(String stage, String method) {
+            this.stage = stage;
+            this.method = method;
+
+            // Listed in the order they were started, so enclosing stages come before their sub-stages
+            if (enabled) {
+                (method == null ? stages : methods).add(this);
+            }
+
+            this.startAllocated = allocatedBytes();
+            this.startCpu = cpuNanos();
+            this.startWall = System.nanoTime();
+        }
+
+        /**
+         * Adds the given value to a counter of this span, e.g. the number of instructions of a method.
+         */
+        public void count(String counter, long value) {
+            if (enabled) {
+                spanCounts.merge(counter, value, Long::sum);
+            }
+        }
+
+        @Override
+        public void close() {
+            // Already closed
+            if (wallNanos >= 0) {
+                return;
+            }
+
+            wallNanos = System.nanoTime() - startWall;
+
+            if (!enabled) {
+                return;
+            }
+
+            cpuNanos = cpuNanos() - startCpu;
+            allocatedBytes = allocatedBytes() - startAllocated;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        private JsonObject toJson() {
+            var json = new JsonObject();
+            json.addProperty("stage", stage);
+            if (method != null) {
+                json.addProperty("method", method);
+            }
+            json.addProperty("wallMillis", wallNanos / 1_000_000.0);
+            if (cpuTimeSupported) {
+                json.addProperty("cpuMillis", cpuNanos / 1_000_000.0);
+            }
+            if (allocationSupported) {
+                json.addProperty("allocatedBytes", allocatedBytes);
+            }
+            spanCounts.forEach(json::addProperty);
+            return json;
+        }
+    }
+}
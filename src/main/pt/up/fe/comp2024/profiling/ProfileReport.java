@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.profiling;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmPipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * JSON report with the profile of every compilation unit, written when profiling is enabled with '-t'.
+ * <p>
+ * Format:
+ * <pre>
+ * {"units": [{"file": "A.jmm", "cached": false,
+ *             "stages": [{"stage": "parse", "wallMillis": .., "cpuMillis": .., "allocatedBytes": ..}, ...],
+ *             "methods": [{"stage": "jasmin", "method": "foo", ..., "jasminLines": ..}, ...],
+ *             "counts": {"astNodes": .., "ollirInstructions": .., "jasminLines": ..}}]}
+ * </pre>
+ */
+public class ProfileReport {
+
+    private final JsonArray units = new JsonArray();
+
+    public void add(File input, JmmPipeline.Result result) {
+        var unit = new JsonObject();
+        unit.addProperty("file", input.getPath());
+        unit.addProperty("cached", result.isFromCache());
+        result.getProfiler().ifPresent(profiler -> profiler.toJson().entrySet()
+                .forEach(entry -> unit.add(entry.getKey(), entry.getValue())));
+        units.add(unit);
+    }
+
+    public JsonObject toJson() {
+        var json = new JsonObject();
+        json.add("units", units);
+        return json;
+    }
+
+    /**
+     * Writes the report to the file given with '-t=<FILE>', or to stdout for '-t' alone. Does nothing if profiling
+     * is disabled.
+     */
+    public void write(Map<String, String> config) {
+        var destination = CompilerConfig.getProfile(config);
+        if (destination.isEmpty()) {
+            return;
+        }
+
+        var text = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+
+        if (destination.get().equals("true")) {
+            System.out.println(text);
+            return;
+        }
+
+        var file = new File(destination.get());
+        try {
+            Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write profiling report to '" + file + "'", e);
+        }
+    }
+}
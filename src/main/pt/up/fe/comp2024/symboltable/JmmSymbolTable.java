@@ -3,35 +3,67 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.ExprTypeTable;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.*;
 
+/**
+ * Symbol table of a class. The symbols are immutable once built, so the table can be shared by passes running in
+ * parallel. It also carries the {@link ExprTypeTable} of the class, where semantic analysis records the type of each
+ * expression for the later stages. Each compilation builds its own table.
+ */
 public class JmmSymbolTable implements SymbolTable {
 
     private final String className;
     private final List<String> methods;
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
+    // Methods whose last parameter is varargs, e.g. 'int... a'
+    private final Set<String> varargs;
     private final Map<String, List<Symbol>> locals;
     private final List<String> imports;
     private final String superClass;
 
+    // Variables visible in each method, and outside methods (only the fields)
+    private final Map<String, MethodScope> scopes;
+    private final MethodScope fieldScope;
+
+    private final ExprTypeTable exprTypes;
+
     public JmmSymbolTable(String className,
                           List<String> methods,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
+                          Set<String> varargs,
                           Map<String, List<Symbol>> locals,
                           List<String> imports,
                           String superClass) {
         this.className = className;
-        this.methods = methods;
-        this.returnTypes = returnTypes;
-        this.params = params;
-        this.locals = locals;
-        this.imports = imports;
+        this.methods = List.copyOf(methods);
+        this.returnTypes = Collections.unmodifiableMap(new HashMap<>(returnTypes));
+        this.params = copyOf(params);
+        this.varargs = Set.copyOf(varargs);
+        this.locals = copyOf(locals);
+        this.imports = List.copyOf(imports);
         this.superClass = superClass;
+
+        this.fieldScope = MethodScope.build(getFields(), List.of(), List.of());
+        var methodScopes = new HashMap<String, MethodScope>();
+        for (var method : this.methods) {
+            methodScopes.put(method, MethodScope.build(getFields(),
+                    this.params.getOrDefault(method, List.of()),
+                    this.locals.getOrDefault(method, List.of())));
+        }
+        this.scopes = Collections.unmodifiableMap(methodScopes);
+        this.exprTypes = new ExprTypeTable();
+    }
+
+    private static Map<String, List<Symbol>> copyOf(Map<String, List<Symbol>> symbols) {
+        var copy = new HashMap<String, List<Symbol>>();
+        symbols.forEach((scope, scopeSymbols) -> copy.put(scope, List.copyOf(scopeSymbols)));
+        return Collections.unmodifiableMap(copy);
     }
 
     @Override
@@ -51,12 +83,12 @@ public class JmmSymbolTable implements SymbolTable {
 
     @Override
     public List<Symbol> getFields() {
-        return Collections.unmodifiableList(locals.getOrDefault(className, Collections.emptyList()));
+        return locals.getOrDefault(className, Collections.emptyList());
     }
 
     @Override
     public List<String> getMethods() {
-        return Collections.unmodifiableList(methods);
+        return methods;
     }
 
     @Override
@@ -69,32 +101,40 @@ public class JmmSymbolTable implements SymbolTable {
         return params.get(methodSignature);
     }
 
+    /**
+     * @return true if the last parameter of the method takes a variable number of arguments, e.g. 'int... a'. An
+     * 'int[] a' parameter only takes an array.
+     */
+    public boolean isVarargs(String methodSignature) {
+        return varargs.contains(methodSignature);
+    }
+
     @Override
     public List<Symbol> getLocalVariables(String methodSignature) {
-        return Collections.unmodifiableList(locals.getOrDefault(methodSignature, Collections.emptyList()));
+        return locals.getOrDefault(methodSignature, Collections.emptyList());
     }
 
 
-    public Type getVariableType(String variableName, String scope) {
-        // First check local variables in the given scope (method)
-        List<Symbol> localVariables = locals.get(scope);
-        if (localVariables != null) {
-            for (Symbol symbol : localVariables) {
-                if (symbol.getName().equals(variableName)) {
-                    return symbol.getType();
-                }
-            }
+    /**
+     * @return the variables visible in the given method, or only the fields if the method is null or unknown
+     */
+    public MethodScope getScope(String methodSignature) {
+        if (methodSignature == null) {
+            return fieldScope;
         }
+        return scopes.getOrDefault(methodSignature, fieldScope);
+    }
 
-        // Check global fields if not found in local scope
-        List<Symbol> fields = getFields();
-        for (Symbol field : fields) {
-            if (field.getName().equals(variableName)) {
-                return field.getType();
-            }
-        }
+    /**
+     * @return the types of the expressions of the class, see {@link TypeUtils#getExprType}
+     */
+    public ExprTypeTable getExprTypes() {
+        return exprTypes;
+    }
 
-        return null;  // Variable not found
+    public Type getVariableType(String variableName, String scope) {
+        // Locals, then parameters, then fields
+        return getScope(scope).getType(variableName);
     }
 
 
@@ -113,11 +153,6 @@ public class JmmSymbolTable implements SymbolTable {
         return null;
     }
 
-    public void addLocalVariable(String method, String name, String type) {
-        boolean isArray = type.endsWith("[]");
-        Symbol newLocal = new Symbol(new Type(type.replace("[]", ""), isArray), name);
-        locals.computeIfAbsent(method, k -> new ArrayList<>()).add(newLocal);
-    }
 
 
 }
@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.Types;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.*;
@@ -18,12 +20,12 @@ public class JmmSymbolTableBuilder {
         String className = classDecl.get("name");
         String superClass = classDecl.getOptional("extendName").orElse(null);
 
-        return new JmmSymbolTable(className, buildMethods(classDecl), buildReturnTypes(classDecl), buildParams(classDecl), buildLocals(classDecl), buildImports(root), superClass);
+        return new JmmSymbolTable(className, buildMethods(classDecl), buildReturnTypes(classDecl), buildParams(classDecl), buildVarargs(classDecl), buildLocals(classDecl), buildImports(root), superClass);
     }
 
     private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
         Map<String, Type> map = new HashMap<>();
-        classDecl.getChildren(METHOD_DECL).forEach(method -> map.put(method.get("name"), new Type(method.getChildren(TYPE).get(0).get("name"), Boolean.parseBoolean(method.getChildren(TYPE).get(0).getOptional("isArray").orElse("false")))));
+        classDecl.getChildren(METHOD_DECL).forEach(method -> map.put(method.get("name"), Types.of(method.getChildren(TYPE).get(0).get("name"), Boolean.parseBoolean(method.getChildren(TYPE).get(0).getOptional("isArray").orElse("false")))));
         return map;
     }
 
@@ -33,15 +35,27 @@ public class JmmSymbolTableBuilder {
             List<Symbol> paramsList = new ArrayList<>();
             for (JmmNode paramNode : method.getChildren("Parameters")) {
                 String type = paramNode.getChild(0).get("name");
-                boolean isArray = paramNode.getOptional("isArray").orElse("false").equals("true");
+                boolean isArray = paramNode.getChild(0).getOptional("isArray").orElse("false").equals("true");
                 String parameter = paramNode.get("name");
-                paramsList.add(new Symbol(new Type(type, isArray), parameter));
+                paramsList.add(new Symbol(Types.of(type, isArray), parameter));
             }
             map.put(method.get("name"), paramsList);
         });
         return map;
     }
 
+    private static Set<String> buildVarargs(JmmNode classDecl) {
+        Set<String> varargs = new HashSet<>();
+        classDecl.getChildren(METHOD_DECL).forEach(method -> {
+            var params = method.getChildren("Parameters");
+            // Only the last parameter can take a variable number of arguments
+            if (!params.isEmpty() && NodeUtils.getBooleanAttribute(params.get(params.size() - 1).getChild(0), "isVarargs", "false")) {
+                varargs.add(method.get("name"));
+            }
+        });
+        return varargs;
+    }
+
     private static Map<String, List<Symbol>> buildLocals(JmmNode classDecl) {
         Map<String, List<Symbol>> map = new HashMap<>();
         classDecl.getChildren(METHOD_DECL).forEach(methodNode -> {
@@ -49,7 +63,7 @@ public class JmmSymbolTableBuilder {
             methodNode.getChildren(VAR_DECL).forEach(varNode -> {
                 String varName = varNode.get("name");
                 JmmNode typeNode = varNode.getChildren("Type").get(0);
-                localsList.add(new Symbol(new Type(
+                localsList.add(new Symbol(Types.of(
                         typeNode.get("name"),
                         Boolean.parseBoolean(typeNode.get("isArray"))), varName
                 ));
@@ -69,7 +83,7 @@ public class JmmSymbolTableBuilder {
         methodDecl.getChildren(VAR_DECL).forEach(varNode -> {
             String varName = varNode.get("name");
             JmmNode typeNode = varNode.getChildren("Type").get(0);
-            localsList.add(new Symbol(new Type(
+            localsList.add(new Symbol(Types.of(
                     typeNode.get("name"),
                     Boolean.parseBoolean(typeNode.get("isArray"))), varName
             ));
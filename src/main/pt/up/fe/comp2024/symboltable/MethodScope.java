@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the variables visible in a method, so each identifier is resolved with a single hash lookup.
+ * <p>
+ * Locals shadow parameters, which shadow fields. Parameters and locals also get the JVM local variable slot they are
+ * stored in: slot 0 holds 'this' (or 'args' in main), parameters come next, in declaration order, and then the
+ * locals. Fields have no slot.
+ * <p>
+ * The scopes of a {@link JmmSymbolTable} are built once with the table and shared by the analysis, OLLIR generation
+ * and the backend. {@link #of(SymbolTable, String)} also works with other tables, building the scope on each call.
+ */
+public class MethodScope {
+
+    public enum VarKind {
+        LOCAL,
+        PARAM,
+        FIELD
+    }
+
+    /**
+     * A variable visible in the method.
+     *
+     * @param symbol
+     * @param kind
+     * @param slot   JVM local variable slot, or -1 for fields
+     */
+    public record Entry(Symbol symbol, VarKind kind, int slot) {
+
+        public Type getType() {
+            return symbol.getType();
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    private final int numSlots;
+
+    private MethodScope(Map<String, Entry> entries, int numSlots) {
+        this.entries = entries;
+        this.numSlots = numSlots;
+    }
+
+    /**
+     * Builds the scope of a method with the given fields, parameters and locals.
+     */
+    static MethodScope build(List<Symbol> fields, List<Symbol> params, List<Symbol> locals) {
+        var entries = new HashMap<String, Entry>();
+
+        // Fields first, parameters and locals replace the fields they shadow
+        for (var field : fields) {
+            entries.putIfAbsent(field.getName(), new Entry(field, VarKind.FIELD, -1));
+        }
+
+        int slot = 1;
+        var declared = new HashMap<String, Entry>();
+        for (var param : params) {
+            declared.putIfAbsent(param.getName(), new Entry(param, VarKind.PARAM, slot));
+            slot++;
+        }
+        for (var local : locals) {
+            // A local shadows a parameter with the same name, but still gets its own slot
+            var previous = declared.get(local.getName());
+            if (previous == null || previous.kind() == VarKind.PARAM) {
+                declared.put(local.getName(), new Entry(local, VarKind.LOCAL, slot));
+            }
+            slot++;
+        }
+        entries.putAll(declared);
+
+        return new MethodScope(Collections.unmodifiableMap(entries), slot);
+    }
+
+    /**
+     * @return the scope of the given method, or of the fields only if the method is null or unknown
+     */
+    public static MethodScope of(SymbolTable table, String method) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.getScope(method);
+        }
+
+        var params = method == null ? null : table.getParameters(method);
+        var locals = method == null ? null : table.getLocalVariables(method);
+        return build(table.getFields(),
+                params == null ? List.of() : params,
+                locals == null ? List.of() : locals);
+    }
+
+    /**
+     * @return the variable with the given name, or null if there is none
+     */
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return the type of the variable with the given name, or null if there is none
+     */
+    public Type getType(String name) {
+        var entry = entries.get(name);
+        return entry == null ? null : entry.getType();
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * @return the variables of the scope, keyed by name
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the number of local variable slots used by the method, including slot 0
+     */
+    public int getNumSlots() {
+        return numSlots;
+    }
+}
@@ -0,0 +1,218 @@
+package pt.up.fe.comp2024.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Levelled logger for the compiler passes, printing only warnings and errors by default.
+ * <p>
+ * Each pass gets a logger for its category with {@link #get(String)}. The categories are "analysis",
+ * "analysis.types", "analysis.undeclared", "ast.types", "cache", "daemon", "incremental", "optimization.regalloc",
+ * "parser" and "parser.cache". Levels are configured with the '-l' option, either globally ('-l=debug') or per category
+ * ('-l=analysis=trace,optimization=debug'). A category setting also applies to its sub-categories, the most specific
+ * setting wins, and '-l=off' silences every logger.
+ * <p>
+ * A disabled log call only reads one field: the message is formatted only if the level is enabled, and the
+ * overloads with up to three arguments avoid allocating a varargs array. Messages that are expensive to build (e.g.
+ * a whole tree) should be guarded with {@link #isTraceEnabled()}.
+ */
+public class CompilerLogger {
+
+    public enum Level {
+        OFF,
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG,
+        TRACE
+    }
+
+    private static final Map<String, CompilerLogger> LOGGERS = new ConcurrentHashMap<>();
+
+    private static final Level DEFAULT_LEVEL = Level.WARN;
+
+    private static Map<String, Level> configuredLevels = new HashMap<>();
+
+    private final String category;
+    private volatile int level;
+
+    private CompilerLogger(String category) {
+        this.category = category;
+        this.level = resolveLevel(category).ordinal();
+    }
+
+    /**
+     * @return the logger of the given category, shared by every caller
+     */
+    public static CompilerLogger get(String category) {
+        return LOGGERS.computeIfAbsent(category, CompilerLogger::new);
+    }
+
+    /**
+     * Sets the levels from a '-l' specification: a level for every category ("debug"), or a comma-separated list of
+     * category=level pairs ("analysis=trace,optimization=debug"). An empty specification restores the default level.
+     */
+    public static synchronized void configure(String spec) {
+        var levels = new HashMap<String, Level>();
+
+        for (var entry : spec.split(",")) {
+            entry = entry.strip();
+            if (entry.isEmpty()) {
+                continue;
+            }
+
+            int equals = entry.lastIndexOf('=');
+            if (equals < 0) {
+                levels.put("", parseLevel(entry));
+            } else {
+                levels.put(entry.substring(0, equals).strip(), parseLevel(entry.substring(equals + 1)));
+            }
+        }
+
+        configuredLevels = levels;
+        LOGGERS.values().forEach(logger -> logger.level = resolveLevel(logger.category).ordinal());
+    }
+
+    private static Level parseLevel(String level) {
+        // '-l' alone enables debug messages everywhere
+        if (level.strip().equals("true")) {
+            return Level.DEBUG;
+        }
+
+        try {
+            return Level.valueOf(level.strip().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown log level '" + level + "', expected one of off, error, warn, info, "
+                    + "debug, trace");
+        }
+    }
+
+    private static synchronized Level resolveLevel(String category) {
+        // Most specific configured prefix of the category, "" is the global level
+        String prefix = category;
+        while (true) {
+            var level = configuredLevels.get(prefix);
+            if (level != null) {
+                return level;
+            }
+            if (prefix.isEmpty()) {
+                return DEFAULT_LEVEL;
+            }
+
+            int dot = prefix.lastIndexOf('.');
+            prefix = dot < 0 ? "" : prefix.substring(0, dot);
+        }
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() <= this.level;
+    }
+
+    public boolean isTraceEnabled() {
+        return Level.TRACE.ordinal() <= level;
+    }
+
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() <= level;
+    }
+
+    public void trace(String message) {
+        if (Level.TRACE.ordinal() <= level) {
+            write(Level.TRACE, message);
+        }
+    }
+
+    public void trace(String format, Object arg) {
+        if (Level.TRACE.ordinal() <= level) {
+            write(Level.TRACE, format(format, arg, null, null));
+        }
+    }
+
+    public void trace(String format, Object arg1, Object arg2) {
+        if (Level.TRACE.ordinal() <= level) {
+            write(Level.TRACE, format(format, arg1, arg2, null));
+        }
+    }
+
+    public void trace(String format, Object arg1, Object arg2, Object arg3) {
+        if (Level.TRACE.ordinal() <= level) {
+            write(Level.TRACE, format(format, arg1, arg2, arg3));
+        }
+    }
+
+    public void debug(String message) {
+        if (Level.DEBUG.ordinal() <= level) {
+            write(Level.DEBUG, message);
+        }
+    }
+
+    public void debug(String format, Object arg) {
+        if (Level.DEBUG.ordinal() <= level) {
+            write(Level.DEBUG, format(format, arg, null, null));
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (Level.DEBUG.ordinal() <= level) {
+            write(Level.DEBUG, format(format, arg1, arg2, null));
+        }
+    }
+
+    public void info(String message) {
+        if (Level.INFO.ordinal() <= level) {
+            write(Level.INFO, message);
+        }
+    }
+
+    public void warn(String message) {
+        if (Level.WARN.ordinal() <= level) {
+            write(Level.WARN, message);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (Level.WARN.ordinal() <= level) {
+            write(Level.WARN, format(format, arg, null, null));
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (Level.WARN.ordinal() <= level) {
+            write(Level.WARN, format(format, arg1, arg2, null));
+        }
+    }
+
+    public void error(String message) {
+        if (Level.ERROR.ordinal() <= level) {
+            write(Level.ERROR, message);
+        }
+    }
+
+    /**
+     * Replaces the first three '{}' of the format with the given arguments.
+     */
+    private static String format(String format, Object arg1, Object arg2, Object arg3) {
+        var message = new StringBuilder(format.length() + 32);
+        int start = 0;
+        int argIndex = 0;
+
+        while (argIndex < 3) {
+            int placeholder = format.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+
+            message.append(format, start, placeholder).append(argIndex == 0 ? arg1 : argIndex == 1 ? arg2 : arg3);
+            start = placeholder + 2;
+            argIndex++;
+        }
+
+        return message.append(format, start, format.length()).toString();
+    }
+
+    private void write(Level level, String message) {
+        // Logs go to stderr, stdout is used for the compiler output
+        System.err.println("[" + level + " " + category + "] " + message);
+    }
+}
@@ -5,6 +5,8 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.comp2024.utils.*;
 
+import static org.junit.Assert.assertTrue;
+
 
 public class SemanticAnalysisTest {
 
@@ -21,6 +23,18 @@ public class SemanticAnalysisTest {
         TestUtils.mustFail(result);
     }
 
+    @Test
+    public void mainLocalsDeclared() {
+        var result = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/MainLocalsDeclared.jmm"));
+        TestUtils.noErrors(result);
+    }
+
+    @Test
+    public void importedCallTarget() {
+        var result = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ImportedCallTarget.jmm"));
+        TestUtils.noErrors(result);
+    }
+
     @Test
     public void classNotImported() {
         var result = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ClassNotImported.jmm"));
@@ -153,6 +167,14 @@ public class SemanticAnalysisTest {
         System.out.println(result.getReports());
     }
 
+    @Test
+    public void arrayNotVarargs() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ArrayNotVarargs.jmm"));
+        TestUtils.mustFail(result);
+        System.out.println(result.getReports());
+    }
+
     @Test
     public void arrayInit() {
         var result = TestUtils
@@ -175,4 +197,97 @@ public class SemanticAnalysisTest {
         TestUtils.mustFail(result);
         System.out.println(result.getReports());
     }
+
+    @Test
+    public void notOnInt() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/NotOnInt.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Cannot negate int")));
+    }
+
+    @Test
+    public void intInWhileCondition() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/IntInWhileCondition.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Condition must be boolean")));
+    }
+
+    @Test
+    public void logicalOnInt() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/LogicalOnInt.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Operator && expects boolean")));
+    }
+
+    @Test
+    public void relationalOnBoolean() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/RelationalOnBoolean.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Operator < expects int")));
+    }
+
+    @Test
+    public void conditionsAndOperators() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ConditionsAndOperators.jmm"));
+        TestUtils.noErrors(result);
+    }
+
+    @Test
+    public void intAssignedToArray() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/IntAssignedToArray.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Type mismatch")));
+    }
+
+    @Test
+    public void arrayReturnedAsInt() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ArrayReturnedAsInt.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Incompatible return type")));
+    }
+
+    @Test
+    public void returnSubclass() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/ReturnSubclass.jmm"));
+        TestUtils.noErrors(result);
+    }
+
+    @Test
+    public void varargsCalls() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/VarargsCalls.jmm"));
+        TestUtils.noErrors(result);
+    }
+
+    @Test
+    public void varargsWrongType() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/VarargsWrongType.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Method 'sum' cannot be called")));
+    }
+
+    @Test
+    public void missingArguments() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/MissingArguments.jmm"));
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Method 'bar' cannot be called")));
+    }
 }
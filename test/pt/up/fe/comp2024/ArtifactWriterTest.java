@@ -0,0 +1,88 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which artifacts the '-q', '-e' and '-d' options write, and where.
+ */
+public class ArtifactWriterTest {
+
+    private static final String CODE = "class A { public int foo(int a) { return a + 1; } }";
+
+    private static final EnumSet<ArtifactWriter.Artifact> DEFAULTS = EnumSet.of(ArtifactWriter.Artifact.AST,
+            ArtifactWriter.Artifact.OLLIR, ArtifactWriter.Artifact.JASMIN);
+
+    private Path outputDir;
+    private JmmPipeline.Result result;
+
+    @Before
+    public void compile() throws IOException {
+        outputDir = Files.createTempDirectory("jmmartifacts");
+        result = new JmmPipeline().compile(CODE, CompilerConfig.getDefault());
+    }
+
+    private String write(String... args) throws IOException {
+        Map<String, String> config = CompilerConfig.getDefault();
+        for (var arg : args) {
+            var keyValue = arg.split("=", 2);
+            config.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+        }
+
+        var out = new StringWriter();
+        ArtifactWriter.fromConfig(config, DEFAULTS).write(result, "Input", out);
+        return out.toString();
+    }
+
+    private List<String> outputFiles() throws IOException {
+        try (Stream<Path> files = Files.list(outputDir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    public void quietWritesNothing() throws IOException {
+        assertEquals("", write("quiet"));
+
+        // Even the artifacts asked for with '-e' and '-d'
+        assertEquals("", write("quiet", "emit=ollir,jasmin,class", "outputDir=" + outputDir));
+        assertEquals(List.of(), outputFiles());
+    }
+
+    @Test
+    public void defaultsWithoutEmit() throws IOException {
+        var output = write();
+
+        assertTrue(output, output.contains("ClassDecl"));
+        assertTrue(output, output.contains(".method public foo(a.i32).i32"));
+        assertTrue(output, output.contains(".method public foo(I)I"));
+    }
+
+    @Test
+    public void emitOnlySelectedFiles() throws IOException {
+        assertEquals("", write("emit=jasmin", "outputDir=" + outputDir));
+        assertEquals(List.of("A.j"), outputFiles());
+
+        var jasminCode = Files.readString(outputDir.resolve("A.j"));
+        assertEquals(result.getJasminResult().getJasminCode(), jasminCode);
+    }
+
+    @Test
+    public void emitToWriter() throws IOException {
+        var output = write("emit=ollir");
+
+        assertEquals(result.getOllirCode() + "\n", output);
+    }
+}
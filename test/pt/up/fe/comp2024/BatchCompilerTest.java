@@ -0,0 +1,112 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles a folder of units with several jobs and checks the order of the printed results, and that a unit that
+ * fails or throws does not stop the others.
+ */
+public class BatchCompilerTest {
+
+    private static final int UNITS = 12;
+
+    private Path folder;
+
+    @Before
+    public void writeUnits() throws IOException {
+        folder = Files.createTempDirectory("jmmbatch");
+
+        // The first units are the largest, so with several jobs the later ones tend to finish first
+        for (int i = 0; i < UNITS; i++) {
+            var code = new StringBuilder("class C").append(i).append(" {\n");
+            for (int m = 0; m < (UNITS - i) * 20; m++) {
+                code.append("    public int m").append(m).append("(int a) { int b; b = a * ").append(m)
+                        .append(" + 1; return b; }\n");
+            }
+            code.append("}\n");
+            Files.writeString(folder.resolve(String.format("u%02d.jmm", i)), code);
+        }
+    }
+
+    private static String compile(List<File> inputs, Map<String, String> config, int[] failed) {
+        var stdout = System.out;
+        var captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            failed[0] = new BatchCompiler().compileAll(inputs, config);
+        } finally {
+            System.setOut(stdout);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> unitLines(String output) {
+        return output.lines().filter(line -> line.startsWith("[ OK ]") || line.startsWith("[FAIL]")).toList();
+    }
+
+    @Test
+    public void parallelResultsInInputOrder() throws IOException {
+        // Undeclared variable
+        Files.writeString(folder.resolve("u03.jmm"), "class C3 { public int foo() { return b; } }");
+
+        var inputs = BatchCompiler.resolveInputs(folder.toString());
+        var config = CompilerConfig.getDefault();
+        config.put("jobs", "4");
+        var failed = new int[1];
+        var output = compile(inputs, config, failed);
+
+        var lines = unitLines(output);
+        assertEquals(output, UNITS, lines.size());
+        for (int i = 0; i < UNITS; i++) {
+            var expected = (i == 3 ? "[FAIL] " : "[ OK ] ") + inputs.get(i).getPath() + " |";
+            assertTrue(lines.get(i), lines.get(i).startsWith(expected));
+        }
+        assertEquals(1, failed[0]);
+        assertTrue(output, output.contains("Compiled 11/12 files"));
+        assertTrue(output, output.contains("using 4 jobs"));
+    }
+
+    @Test
+    public void throwingUnitOnlyFailsItself() throws IOException {
+        // The OLLIR file of C5 cannot be written over a folder
+        var outputDir = Files.createTempDirectory("jmmbatchout");
+        Files.createDirectories(outputDir.resolve("C5.ollir"));
+
+        var inputs = BatchCompiler.resolveInputs(folder.toString());
+        var config = CompilerConfig.getDefault();
+        config.put("jobs", "4");
+        config.put("emit", "ollir");
+        config.put("outputDir", outputDir.toString());
+        var failed = new int[1];
+        var output = compile(inputs, config, failed);
+
+        assertEquals(1, failed[0]);
+        var lines = output.lines().toList();
+        int failLine = lines.indexOf(unitLines(output).get(5));
+        assertTrue(lines.get(failLine), lines.get(failLine).startsWith("[FAIL] " + inputs.get(5).getPath()));
+        assertTrue(lines.get(failLine + 1), lines.get(failLine + 1).contains("C5.ollir"));
+        assertTrue(output, output.contains("Failed: " + inputs.get(5)));
+
+        for (int i = 0; i < UNITS; i++) {
+            if (i != 5) {
+                assertTrue("C" + i, Files.isRegularFile(outputDir.resolve("C" + i + ".ollir")));
+            }
+        }
+        assertFalse(Files.isRegularFile(outputDir.resolve("C5.ollir")));
+    }
+}
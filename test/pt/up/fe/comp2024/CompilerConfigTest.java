@@ -0,0 +1,94 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the options of the command line that batch compilation accepts, and that a batch compiles with them.
+ */
+public class CompilerConfigTest {
+
+    private Path folder;
+
+    @Before
+    public void writeUnits() throws IOException {
+        folder = Files.createTempDirectory("jmmconfig");
+        Files.writeString(folder.resolve("A.jmm"), "class A { public int foo() { return 1; } }");
+        Files.writeString(folder.resolve("B.jmm"), "class B { public int foo() { return 2; } }");
+    }
+
+    private static void assertRejected(String expectedMessage, String... args) {
+        try {
+            CompilerConfig.parseArgs(args);
+            fail("Expected the arguments to be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    @Test
+    public void batchDoesNotNeedInputFile() {
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + folder, "-j=3", "-o"});
+
+        assertEquals(folder.toString(), CompilerConfig.getBatchInput(config).orElseThrow());
+        assertEquals(3, CompilerConfig.getJobs(config));
+        assertTrue(CompilerConfig.getOptimize(config));
+        assertFalse(CompilerConfig.getInputFile(config).isPresent());
+    }
+
+    @Test
+    public void jobs() {
+        var single = CompilerConfig.parseArgs(new String[]{"-b=" + folder});
+        assertEquals(1, CompilerConfig.getJobs(single));
+
+        // '-j' alone uses every processor
+        var all = CompilerConfig.parseArgs(new String[]{"-b=" + folder, "-j"});
+        assertEquals(Runtime.getRuntime().availableProcessors(), CompilerConfig.getJobs(all));
+
+        assertRejected("'-j' expects a positive number", "-b=" + folder, "-j=0");
+    }
+
+    @Test
+    public void inputFileOrBatchRequired() {
+        assertRejected("use '-i=<PATH_TO_FILE>' or '-b=<DIR|GLOB|LIST_FILE>'", "-o");
+        assertRejected("Could not find input file", "-i=" + folder.resolve("C.jmm"));
+    }
+
+    @Test
+    public void batchCompilesWithParsedOptions() {
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + folder, "-j=2"});
+        var inputs = BatchCompiler.resolveInputs(CompilerConfig.getBatchInput(config).orElseThrow());
+
+        var stdout = System.out;
+        var captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        int failed;
+        try {
+            failed = new BatchCompiler().compileAll(inputs, config);
+        } finally {
+            System.setOut(stdout);
+        }
+        var output = captured.toString(StandardCharsets.UTF_8);
+
+        assertEquals(0, failed);
+        var lines = output.lines().toList();
+        assertTrue(output, lines.get(0).startsWith("[ OK ] " + folder.resolve("A.jmm") + " |"));
+        assertTrue(output, lines.get(1).startsWith("[ OK ] " + folder.resolve("B.jmm") + " |"));
+        assertTrue(output, lines.get(2).startsWith("Compiled 2/2 files in "));
+        assertTrue(output, lines.get(2).contains("using 2 jobs"));
+        // Batches print no artifacts unless asked to
+        assertFalse(output, output.contains(".method"));
+    }
+}
@@ -0,0 +1,85 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import utils.JmmProgramGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the programs of the {@link JmmProgramGenerator}, which the front end scaling benchmark uses as inputs: they
+ * are deterministic and go through parsing and semantic analysis without errors. The time per statement is measured
+ * by FrontEndScalingBenchmark in the jmh source set; this test only checks, with a generous bound, that the front end
+ * does not grow quadratically with the size of the methods.
+ */
+public class FrontEndScalingTest {
+
+    private static final long SEED = 2024;
+    private static final int METHODS = 4;
+    private static final int[] STATEMENTS = {250, 500, 1000, 2000};
+
+    // A linear front end takes about 4 times as long on 4 times the statements, a quadratic one about 16 times
+    private static final double MAX_RATIO = 12;
+
+    // Runs of both sizes before timing, so neither is timed before the parser and the passes are compiled
+    private static final int WARM_UP_RUNS = 3;
+    private static final int TIMED_RUNS = 5;
+
+    private static long frontEndTime(String code) {
+        long start = System.nanoTime();
+        TestUtils.analyse(code);
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void generatorIsDeterministic() {
+        var first = new JmmProgramGenerator(SEED).methods(5).statements(50).generate();
+        var second = new JmmProgramGenerator(SEED).methods(5).statements(50).generate();
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void generatedProgramsAreValid() {
+        for (int seed = 0; seed < 10; seed++) {
+            var code = new JmmProgramGenerator(seed)
+                    .fields(20)
+                    .methods(5)
+                    .statements(30)
+                    .expressionDepth(6)
+                    .nestingDepth(3)
+                    .generate();
+            TestUtils.noErrors(TestUtils.analyse(code));
+        }
+    }
+
+    @Test
+    public void scalingInputsAreValid() {
+        for (int statements : STATEMENTS) {
+            var code = new JmmProgramGenerator(SEED).methods(METHODS).statements(statements).generate();
+            TestUtils.noErrors(TestUtils.analyse(code));
+        }
+    }
+
+    @Test
+    public void frontEndScalesLinearly() {
+        var small = new JmmProgramGenerator(SEED).methods(METHODS).statements(100).generate();
+        var large = new JmmProgramGenerator(SEED).methods(METHODS).statements(400).generate();
+
+        for (int run = 0; run < WARM_UP_RUNS; run++) {
+            frontEndTime(small);
+            frontEndTime(large);
+        }
+
+        // The best of the runs of each size, they are interleaved so a slower phase of the machine affects both
+        long smallTime = Long.MAX_VALUE;
+        long largeTime = Long.MAX_VALUE;
+        for (int run = 0; run < TIMED_RUNS; run++) {
+            smallTime = Math.min(smallTime, frontEndTime(small));
+            largeTime = Math.min(largeTime, frontEndTime(large));
+        }
+
+        double ratio = (double) largeTime / smallTime;
+        assertTrue("time(4N) / time(N) = " + ratio, ratio < MAX_RATIO);
+    }
+}
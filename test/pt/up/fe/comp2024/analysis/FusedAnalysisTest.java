@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.passes.Analysispasses;
+import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that running the analysis passes in a single traversal, sequentially or with several jobs, reports the same
+ * errors in the same order as running each pass on its own.
+ */
+public class FusedAnalysisTest {
+
+    // Every fixture of the semantic analysis tests that parses
+    private static final List<String> FIXTURES = List.of("ArrayAccessOnInt", "ArrayInWhileCondition",
+            "ArrayIndexNotInt", "ArrayInit", "ArrayInitWrong1", "ArrayInitWrong2", "ArrayNotVarargs", "ArrayPlusInt",
+            "ArrayReturnedAsInt", "AssignIntToBool", "AssumeArguments", "BoolTimesInt", "CallToMethodAssumedInExtends",
+            "CallToMethodAssumedInImport", "CallToUndeclaredMethod", "ClassNotImported", "ConditionsAndOperators",
+            "ImportedCallTarget", "IncompatibleArguments", "IncompatibleReturn", "IntAssignedToArray",
+            "IntInWhileCondition", "IntPlusObject", "LogicalOnInt", "MainLocalsDeclared", "MissingArguments",
+            "NotOnInt", "ObjectAssignmentFail", "ObjectAssignmentPassExtends", "ObjectAssignmentPassImports",
+            "RelationalOnBoolean", "ReturnSubclass", "SymbolTable", "VarNotDeclared", "Varargs", "VarargsCalls",
+            "VarargsWrong", "VarargsWrongType");
+
+    private static String getFixture(String name) {
+        return SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/" + name + ".jmm");
+    }
+
+    /**
+     * @return the reports of each pass run on its own over the whole tree, in the order of the passes
+     */
+    private static List<String> perPassReports(JmmNode root, SymbolTable table, List<AnalysisPass> passes) {
+        List<String> reports = new ArrayList<>();
+        for (var pass : passes) {
+            pass.analyze(root, table).forEach(report -> reports.add(report.toString()));
+        }
+        return reports;
+    }
+
+    private static List<String> fusedReports(String code, String analysisJobs) {
+        var config = CompilerConfig.getDefault();
+        config.put("analysisJobs", analysisJobs);
+        var result = new JmmAnalysisImpl().semanticAnalysis(TestUtils.parse(code, config));
+        return result.getReports().stream().map(Report::toString).toList();
+    }
+
+    @Test
+    public void sameReportsAsPerPass() {
+        int failing = 0;
+        for (var fixture : FIXTURES) {
+            var code = getFixture(fixture);
+            var root = TestUtils.parse(code).getRootNode();
+            var table = JmmSymbolTableBuilder.build(root);
+
+            var expected = perPassReports(root, table, List.of(new Analysispasses(), new UndeclaredVariable()));
+            assertEquals(fixture, expected, fusedReports(code, "1"));
+            assertEquals(fixture, expected, fusedReports(code, "4"));
+
+            if (!expected.isEmpty()) {
+                failing++;
+            }
+        }
+
+        // The fixtures cover programs with and without errors
+        assertFalse(failing == 0 || failing == FIXTURES.size());
+    }
+
+    @Test
+    public void sameReportsForMethodUnits() {
+        var code = getFixture("IncompatibleArguments");
+        var root = TestUtils.parse(code).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        var analysis = new JmmAnalysisImpl();
+
+        // The class-level declarations and then each method, merged pass by pass
+        List<List<List<Report>>> unitReports = new ArrayList<>();
+        unitReports.add(analysis.analyzeClass(root, table));
+        for (var method : root.getDescendants("MethodDecl")) {
+            unitReports.add(analysis.analyzeMethod(root, method, table));
+        }
+        var merged = JmmAnalysisImpl.mergeByPass(unitReports).stream().map(Report::toString).toList();
+
+        assertEquals(perPassReports(root, table, List.of(new Analysispasses(), new UndeclaredVariable())), merged);
+    }
+}
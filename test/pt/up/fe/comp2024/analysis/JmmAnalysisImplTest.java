@@ -0,0 +1,76 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that analysing the methods in parallel gives the reports of the sequential analysis, and that the job counts
+ * do not add threads.
+ */
+public class JmmAnalysisImplTest {
+
+    private static final int METHODS = 16;
+
+    private static String program() {
+        var code = new StringBuilder("class A {\n");
+        for (int i = 0; i < METHODS; i++) {
+            // Every third method uses an undeclared variable
+            var value = i % 3 == 0 ? "undeclared" + i : "a + " + i;
+            code.append("    public int m").append(i).append("(int a) { int b; b = ").append(value)
+                    .append("; return b; }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    private static List<String> analyse(String code, int jobs) {
+        var config = CompilerConfig.getDefault();
+        config.put("analysisJobs", Integer.toString(jobs));
+        var result = new JmmAnalysisImpl().semanticAnalysis(TestUtils.parse(code, config));
+        return result.getReports().stream().map(Report::toString).toList();
+    }
+
+    private static Set<String> forkJoinPools() {
+        // Worker threads are named 'ForkJoinPool-<pool>-worker-<worker>'
+        return Thread.getAllStackTraces().keySet().stream()
+                .map(Thread::getName)
+                .filter(name -> name.startsWith("ForkJoinPool-") && name.contains("-worker-"))
+                .map(name -> name.substring(0, name.indexOf("-worker-")))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void parallelReportsInSourceOrder() {
+        var code = program();
+        var expected = analyse(code, 1);
+        // Both passes report the methods with an undeclared variable
+        assertEquals(expected.toString(), 2 * ((METHODS + 2) / 3), expected.size());
+
+        for (int jobs = 2; jobs <= 8; jobs++) {
+            assertEquals("jobs " + jobs, expected, analyse(code, jobs));
+        }
+    }
+
+    @Test
+    public void jobCountsShareOnePool() {
+        var code = program();
+        var before = forkJoinPools();
+
+        // Job counts the other tests do not use
+        for (int jobs = 9; jobs <= 16; jobs++) {
+            analyse(code, jobs);
+        }
+
+        var created = forkJoinPools();
+        created.removeAll(before);
+        assertTrue(created.toString(), created.size() <= 1);
+    }
+}
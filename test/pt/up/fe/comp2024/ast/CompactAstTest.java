@@ -0,0 +1,162 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the compact copy of an AST has the same nodes, order, structure, kinds and attributes as the tree it was
+ * built from.
+ */
+public class CompactAstTest {
+
+    private static final String CODE = """
+            import io;
+            class A extends B {
+                int f;
+                public int foo(int a, int[] b) {
+                    int x;
+                    x = a + b[0] * 2;
+                    if (x < 3) { x = 1; } else { x = 2; }
+                    return x;
+                }
+            }
+            """;
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, CompilerConfig.getDefault()).getRootNode();
+    }
+
+    private static List<JmmNode> preorder(JmmNode root) {
+        var nodes = new ArrayList<JmmNode>();
+        nodes.add(root);
+        root.getChildren().forEach(child -> nodes.addAll(preorder(child)));
+        return nodes;
+    }
+
+    @Test
+    public void numbersNodesInPreorder() {
+        var root = parse(CODE);
+        var nodes = preorder(root);
+        var ast = CompactAst.of(root);
+
+        assertEquals(nodes.size(), ast.size());
+        for (int i = 0; i < ast.size(); i++) {
+            assertSame(nodes.get(i), ast.source(i));
+            assertEquals(nodes.get(i).getKind(), ast.kindName(i));
+        }
+    }
+
+    @Test
+    public void keepsStructure() {
+        var root = parse(CODE);
+        var nodes = preorder(root);
+        var ast = CompactAst.of(root);
+
+        assertEquals(-1, ast.parent(0));
+        for (int i = 0; i < ast.size(); i++) {
+            var node = nodes.get(i);
+            assertEquals(preorder(node).size(), ast.end(i) - i);
+            assertEquals(node.getNumChildren(), ast.numChildren(i));
+            for (int c = 0; c < ast.numChildren(i); c++) {
+                int child = ast.child(i, c);
+                assertSame(node.getChildren().get(c), ast.source(child));
+                assertEquals(i, ast.parent(child));
+            }
+        }
+    }
+
+    @Test
+    public void keepsKindsAndAttributes() {
+        var root = parse(CODE);
+        var ast = CompactAst.of(root);
+
+        int method = -1;
+        for (int i = 0; i < ast.size(); i++) {
+            var source = ast.source(i);
+            for (var attribute : source.getAttributes()) {
+                assertEquals(source.get(attribute), ast.get(i, attribute));
+            }
+            for (var kind : Kind.values()) {
+                assertEquals(source.isInstance(kind.getNodeName()), ast.isInstance(i, kind));
+            }
+            if (ast.kind(i) == Kind.METHOD_DECL) {
+                method = i;
+            }
+        }
+
+        assertTrue(method >= 0);
+        assertEquals("foo", ast.get(method, "name"));
+        assertNull(ast.get(method, "missing"));
+        assertEquals(-1, ast.nameId("missing"));
+        assertEquals(ast.kindNameId(method), ast.nameId(ast.kindName(method)));
+    }
+
+    @Test
+    public void kindOfNodesOutsideKind() {
+        var root = new JmmNodeImpl("Unknown");
+        root.setHierarchy(List.of("Unknown"));
+        var ast = CompactAst.of(root);
+
+        assertNull(ast.kind(0));
+        for (var kind : Kind.values()) {
+            assertFalse(ast.isInstance(0, kind));
+        }
+    }
+
+    @Test
+    public void nodeViews() {
+        var root = parse(CODE);
+        var ast = CompactAst.of(root);
+
+        var view = ast.node(1);
+        assertSame(view, ast.node(1));
+        assertSame(ast.node(0), view.getParent());
+        assertEquals(ast.source(1).toTree(), view.toTree());
+        assertEquals(ast.source(1).getHierarchy(), view.getHierarchy());
+
+        var copy = view.copyNode();
+        assertEquals(ast.source(1).getKind(), copy.getKind());
+        assertEquals(0, copy.getNumChildren());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void nodeViewsAreReadOnly() {
+        CompactAst.of(parse(CODE)).node(1).put("name", "B");
+    }
+
+    @Test
+    public void largeTree() {
+        // Deep enough to grow the builder buffers several times
+        var root = new JmmNodeImpl("Block");
+        root.setHierarchy(List.of("Block", "Stmt"));
+        var parent = root;
+        for (int i = 0; i < 1000; i++) {
+            var child = new JmmNodeImpl("IntegerLiteral");
+            child.setHierarchy(List.of("IntegerLiteral", "Expr"));
+            child.put("value", Integer.toString(i % 10));
+            parent.add(child);
+            parent = child;
+        }
+        var ast = CompactAst.of(root);
+
+        assertEquals(1001, ast.size());
+        assertEquals(1001, ast.end(0));
+        for (int i = 1; i < ast.size(); i++) {
+            assertEquals(i - 1, ast.parent(i));
+            assertEquals(Kind.INTEGER_LITERAL, ast.kind(i));
+            assertEquals(Integer.toString((i - 1) % 10), ast.get(i, "value"));
+        }
+    }
+}
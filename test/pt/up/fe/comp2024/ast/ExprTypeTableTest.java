@@ -0,0 +1,193 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the types semantic analysis records in the table of expression types, the lookups the table answers, and the
+ * ones computed after nodes are added, removed or replaced.
+ */
+public class ExprTypeTableTest {
+
+    private static final String CODE = """
+            class A {
+                int f;
+                public int foo(int a, boolean b) {
+                    int x;
+                    x = a + 2 * 3;
+                    b = a < x && b;
+                    return x;
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult analyse(String code, int jobs) {
+        var config = CompilerConfig.getDefault();
+        config.put("analysisJobs", Integer.toString(jobs));
+        return new JmmAnalysisImpl().semanticAnalysis(new JmmParserImpl().parse(code, config));
+    }
+
+    private static JmmSemanticsResult analyse(String code) {
+        return analyse(code, 1);
+    }
+
+    private static ExprTypeTable getExprTypes(JmmSemanticsResult semanticsResult) {
+        return ((JmmSymbolTable) semanticsResult.getSymbolTable()).getExprTypes();
+    }
+
+    private static JmmNode getBinaryExpr(JmmNode root, String op) {
+        return root.getDescendants(Kind.BINARY_EXPR.getNodeName()).stream()
+                .filter(node -> node.get("op").equals(op))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void analysedExpressionsHit() {
+        var semanticsResult = analyse(CODE);
+        var root = semanticsResult.getRootNode();
+        var table = semanticsResult.getSymbolTable();
+        var exprTypes = getExprTypes(semanticsResult);
+
+        // The passes record the types they compute, they do not look them up
+        assertEquals(0, exprTypes.getHits() + exprTypes.getMisses());
+
+        assertEquals(Types.INT, exprTypes.get(getBinaryExpr(root, "*"), table));
+        assertEquals(Types.BOOLEAN, exprTypes.get(getBinaryExpr(root, "&&"), table));
+        var exprs = root.getDescendants(Kind.VAR_REF_EXPR.getNodeName());
+        assertTrue(exprs.stream().allMatch(expr -> TypeUtils.getExprType(expr, table) != null));
+        assertEquals(2 + exprs.size(), exprTypes.getHits());
+        assertEquals(0, exprTypes.getMisses());
+    }
+
+    @Test
+    public void recordsTypesOfAnalysis() {
+        var semanticsResult = analyse("""
+                class A {
+                    public int foo(int[] a, A b) {
+                        A c;
+                        c = b;
+                        return a[0] + c.foo(a, b);
+                    }
+                }
+                """);
+        var root = semanticsResult.getRootNode();
+        var table = semanticsResult.getSymbolTable();
+
+        var vars = root.getDescendants(Kind.VAR_REF_EXPR.getNodeName());
+        assertEquals(Types.of("A"), TypeUtils.getExprType(vars.get(0), table));
+        assertEquals(Types.INT_ARRAY, TypeUtils.getExprType(vars.get(1), table));
+        assertEquals(Types.INT, TypeUtils.getExprType(root.getDescendants(Kind.ARRAY.getNodeName()).get(0), table));
+        assertEquals(Types.INT, TypeUtils.getExprType(root.getDescendants(Kind.METHOD_CALL_EXPR.getNodeName()).get(0),
+                table));
+        assertEquals(0, getExprTypes(semanticsResult).getMisses());
+    }
+
+    @Test
+    public void parallelAnalysisRecordsSameTypes() {
+        var code = new StringBuilder("class A {\n");
+        for (int i = 0; i < 8; i++) {
+            code.append("    public boolean m").append(i).append("(int a, int[] b) { return a < b[")
+                    .append(i).append("] && !(a * 2 > b.length); }\n");
+        }
+        code.append("}\n");
+
+        var sequential = analyse(code.toString(), 1);
+        var parallel = analyse(code.toString(), 4);
+        assertEquals(getExprTypes(sequential).size(), getExprTypes(parallel).size());
+
+        var sequentialNodes = sequential.getRootNode().getDescendants();
+        var parallelNodes = parallel.getRootNode().getDescendants();
+        for (int i = 0; i < sequentialNodes.size(); i++) {
+            if (Kind.TYPE.check(sequentialNodes.get(i)) || !sequentialNodes.get(i).getHierarchy().contains("Expr")) {
+                continue;
+            }
+            assertEquals(sequentialNodes.get(i).toString(),
+                    TypeUtils.getExprType(sequentialNodes.get(i), sequential.getSymbolTable()),
+                    TypeUtils.getExprType(parallelNodes.get(i), parallel.getSymbolTable()));
+        }
+        assertEquals(getExprTypes(sequential).getMisses(), getExprTypes(parallel).getMisses());
+    }
+
+    @Test
+    public void newExpressionMissesOnce() {
+        var semanticsResult = analyse(CODE);
+        var table = semanticsResult.getSymbolTable();
+        var exprTypes = getExprTypes(semanticsResult);
+        int size = exprTypes.size();
+
+        var literal = new JmmNodeImpl(Kind.INTEGER_LITERAL.getNodeName());
+        literal.setHierarchy(List.of(Kind.INTEGER_LITERAL.getNodeName(), "Expr"));
+        literal.put("value", "1");
+
+        assertEquals(Types.INT, exprTypes.get(literal, table));
+        assertEquals(Types.INT, exprTypes.get(literal, table));
+        assertEquals(1, exprTypes.getMisses());
+        assertEquals(1, exprTypes.getHits());
+        assertEquals(size + 1, exprTypes.size());
+    }
+
+    @Test
+    public void removeDropsSubtree() {
+        var semanticsResult = analyse(CODE);
+        var root = semanticsResult.getRootNode();
+        var table = semanticsResult.getSymbolTable();
+        var exprTypes = getExprTypes(semanticsResult);
+
+        // x = a + 2 * 3 has five typed expressions
+        var sum = getBinaryExpr(root, "+");
+        int size = exprTypes.size();
+        exprTypes.remove(sum);
+        assertEquals(size - 5, exprTypes.size());
+
+        assertEquals(Types.INT, exprTypes.get(getBinaryExpr(root, "*"), table));
+        assertEquals(1, exprTypes.getMisses());
+    }
+
+    @Test
+    public void expressionWithoutTypeComputedOnce() {
+        // The called method is not declared, the analysis assumes its type
+        var semanticsResult = analyse("class A { public int foo() { return this.bar(); } }");
+        var table = semanticsResult.getSymbolTable();
+        var exprTypes = getExprTypes(semanticsResult);
+
+        var call = semanticsResult.getRootNode().getDescendants(Kind.METHOD_CALL_EXPR.getNodeName()).get(0);
+        assertNull(exprTypes.get(call, table));
+        assertNull(exprTypes.get(call, table));
+        assertEquals(1, exprTypes.getHits());
+        assertEquals(1, exprTypes.getMisses());
+    }
+
+    @Test
+    public void constantPropagationRemovesReplacedExpressions() {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("optimize", "true");
+        var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(new JmmParserImpl().parse(CODE, config));
+        var table = (JmmSymbolTable) semanticsResult.getSymbolTable();
+        var exprTypes = table.getExprTypes();
+
+        var product = getBinaryExpr(semanticsResult.getRootNode(), "*");
+        new JmmOptimizationImpl().optimize(semanticsResult);
+
+        // 2 * 3 is now a literal, its old node is computed again if it is looked up
+        assertFalse(semanticsResult.getRootNode().getDescendants(Kind.BINARY_EXPR.getNodeName()).contains(product));
+        long misses = exprTypes.getMisses();
+        exprTypes.get(product, table);
+        assertEquals(misses + 1, exprTypes.getMisses());
+    }
+}
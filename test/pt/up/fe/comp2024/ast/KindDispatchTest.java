@@ -0,0 +1,124 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.passes.Analysispasses;
+import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2024.optimization.OllirExprGeneratorVisitor;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the visitors that dispatch through a {@link KindDispatch} pick the same visit methods, and report the
+ * same errors, as the string-keyed lookup of {@link AJmmVisitor}.
+ */
+public class KindDispatchTest {
+
+    // Semantic analysis fixtures with statements, expressions and errors of every kind the visitors handle
+    private static final List<String> FIXTURES = List.of("ArrayInit", "ArrayInWhileCondition", "ArrayNotVarargs",
+            "ConditionsAndOperators", "IncompatibleArguments", "ObjectAssignmentPassExtends", "SymbolTable",
+            "VarargsCalls", "VarNotDeclared");
+
+    // AJmmVisitor.getVisit, without the overrides of the visitors
+    private static final MethodHandle STRING_KEYED_VISIT;
+
+    // getVisit of the visitor
+    private static final MethodHandle VISIT;
+
+    static {
+        try {
+            var lookup = MethodHandles.privateLookupIn(AJmmVisitor.class, MethodHandles.lookup());
+            var type = MethodType.methodType(BiFunction.class, JmmNode.class);
+            STRING_KEYED_VISIT = lookup.findSpecial(AJmmVisitor.class, "getVisit", type, AJmmVisitor.class);
+            VISIT = lookup.findVirtual(AJmmVisitor.class, "getVisit", type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D, R> BiFunction<JmmNode, D, R> invoke(MethodHandle getVisit, AJmmVisitor<D, R> visitor,
+                                                           JmmNode node) {
+        try {
+            return (BiFunction<JmmNode, D, R>) getVisit.invoke(visitor, node);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getFixture(String name) {
+        return SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/" + name + ".jmm");
+    }
+
+    private static List<String> reports(JmmNode root, SymbolTable table, List<AnalysisPass> passes) {
+        List<String> reports = new ArrayList<>();
+        for (var pass : passes) {
+            pass.analyze(root, table).forEach(report -> reports.add(report.toString()));
+        }
+        return reports;
+    }
+
+    private static List<JmmNode> preorder(JmmNode root) {
+        List<JmmNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        nodes.addAll(root.getDescendants());
+        return nodes;
+    }
+
+    @Test
+    public void sameVisitsAsStringKeyed() {
+        // Shared by every fixture, so the cache of each visitor is filled in the order the kinds are first seen.
+        // getVisit does not use the symbol table
+        List<AJmmVisitor<?, ?>> visitors = List.of(new Analysispasses(), new UndeclaredVariable(),
+                new OllirGeneratorVisitor(null), new OllirExprGeneratorVisitor(null));
+
+        for (var fixture : FIXTURES) {
+            for (var node : preorder(TestUtils.parse(getFixture(fixture)).getRootNode())) {
+                for (var visitor : visitors) {
+                    var message = fixture + ": " + visitor.getClass().getSimpleName() + " on " + node.getKind();
+                    assertSame(message, invoke(STRING_KEYED_VISIT, visitor, node), invoke(VISIT, visitor, node));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameReportsAsStringKeyed() {
+        for (var fixture : FIXTURES) {
+            var root = TestUtils.parse(getFixture(fixture)).getRootNode();
+            var table = JmmSymbolTableBuilder.build(root);
+
+            var stringKeyed = reports(root, table, List.of(
+                    new Analysispasses() {
+                        @Override
+                        protected BiFunction<JmmNode, SymbolTable, Void> getVisit(JmmNode node) {
+                            return invoke(STRING_KEYED_VISIT, this, node);
+                        }
+                    },
+                    new UndeclaredVariable() {
+                        @Override
+                        protected BiFunction<JmmNode, SymbolTable, Void> getVisit(JmmNode node) {
+                            return invoke(STRING_KEYED_VISIT, this, node);
+                        }
+                    }));
+
+            var reports = reports(root, table, List.of(new Analysispasses(), new UndeclaredVariable()));
+            assertEquals(fixture, stringKeyed, reports);
+        }
+    }
+}
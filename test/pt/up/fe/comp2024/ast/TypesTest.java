@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that built-in types are shared instances and that class types are not kept by the registry.
+ */
+public class TypesTest {
+
+    @Test
+    public void builtInTypesAreCanonical() {
+        assertSame(Types.INT, Types.of("int"));
+        assertSame(Types.INT_ARRAY, Types.of("int", true));
+        assertSame(Types.STRING_ARRAY, Types.of("String", true));
+        assertSame(Types.BOOLEAN, Types.intern(new Type("boolean", false)));
+        assertTrue(Types.isCanonical(Types.VOID));
+        assertFalse(Types.isCanonical(new Type("int", false)));
+    }
+
+    @Test
+    public void classTypesAreNotInterned() {
+        var first = Types.of("A");
+        var second = Types.of("A");
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertFalse(Types.isCanonical(first));
+        assertEquals(new Type("A", true), Types.of("A", true));
+    }
+}
@@ -0,0 +1,91 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the Jasmin generated for branches, labels and loads of references, by running the assembled class.
+ */
+public class JasminGeneratorTest {
+
+    /**
+     * Assembles the class of the Jasmin result, which the JVM verifies when it is loaded, and calls the given method on
+     * a new instance.
+     */
+    private static Object run(JasminResult jasminResult, String methodName, Object... args) throws Exception {
+        var outputDir = Files.createTempDirectory("jasmin").toFile();
+        jasminResult.compile(outputDir);
+        try (var loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, null)) {
+            var aClass = loader.loadClass(jasminResult.getClassName());
+            var method = Arrays.stream(aClass.getMethods())
+                    .filter(candidate -> candidate.getName().equals(methodName))
+                    .findFirst()
+                    .orElseThrow();
+            // The generated class is not public
+            var constructor = aClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            method.setAccessible(true);
+            return method.invoke(constructor.newInstance(), args);
+        }
+    }
+
+    @Test
+    public void branchesAndLabels() throws Exception {
+        var code = """
+                class A {
+                    public int foo(int a, int b) {
+                        int r;
+                        boolean c;
+                        r = 0;
+                        c = a < b;
+                        if (c) {
+                            r = r + 1;
+                            r = r * 10;
+                        } else {
+                            r = (a - b) * 2;
+                        }
+                        while (0 < a) {
+                            a = a - 1;
+                            r = r + 1;
+                        }
+                        return r;
+                    }
+                }
+                """;
+
+        var jasminResult = TestUtils.backend(code);
+        TestUtils.noErrors(jasminResult);
+        // Both statements of the then block run before the loop
+        assertEquals(12, run(jasminResult, "foo", 2, 3));
+        assertEquals(5, run(jasminResult, "foo", 3, 2));
+        assertEquals(10, run(jasminResult, "foo", 0, 1));
+    }
+
+    @Test
+    public void referenceLoads() throws Exception {
+        var code = """
+                class A {
+                    public int keep(int[] v) {
+                        int[] w;
+                        w = v;
+                        return 1;
+                    }
+                }
+                """;
+
+        var jasminResult = TestUtils.backend(code);
+        TestUtils.noErrors(jasminResult);
+        var jasmin = jasminResult.getJasminCode();
+        assertTrue(jasmin, jasmin.contains("aload 1"));
+        assertEquals(1, run(jasminResult, "keep", (Object) new int[]{1}));
+    }
+}
@@ -0,0 +1,164 @@
+package pt.up.fe.comp2024.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmPipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the keys of the compilation cache, the entries it evicts and the files it leaves in its folder.
+ */
+public class CompilationCacheTest {
+
+    private static final String CODE = "class A { public int foo(int a) { int b; b = a; return b + 1; } }";
+
+    private Path folder;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("jmmcache");
+    }
+
+    private static CompilationCache.Entry entry(int size) {
+        return new CompilationCache.Entry("A", "o".repeat(size), "j", List.of());
+    }
+
+    private Path entryFile(String key) {
+        return folder.resolve(key + ".entry");
+    }
+
+    private long folderBytes() throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private List<Path> tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(file -> file.toString().endsWith(".tmp")).toList();
+        }
+    }
+
+    @Test
+    public void keyDependsOnCodeAndOptions() {
+        var cache = new CompilationCache(folder.toFile(), 1024 * 1024);
+        var config = CompilerConfig.getDefault();
+        var key = cache.key(CODE, config);
+
+        assertEquals(key, cache.key(CODE, CompilerConfig.getDefault()));
+        assertNotEquals(key, cache.key(CODE + " ", config));
+
+        var optimized = CompilerConfig.getDefault();
+        optimized.put("optimize", "true");
+        assertNotEquals(key, cache.key(CODE, optimized));
+
+        var allocated = CompilerConfig.getDefault();
+        allocated.put("registerAllocation", "0");
+        assertNotEquals(key, cache.key(CODE, allocated));
+        assertNotEquals(cache.key(CODE, optimized), cache.key(CODE, allocated));
+
+        // Options that do not change the generated code share the entry
+        var quiet = CompilerConfig.getDefault();
+        quiet.put("quiet", "true");
+        assertEquals(key, cache.key(CODE, quiet));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedToTarget() throws IOException {
+        long maxBytes = 10_000;
+        var cache = new CompilationCache(folder.toFile(), maxBytes);
+
+        // k0 is the oldest entry, k8 the newest
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 9; i++) {
+            cache.put("k" + i, entry(900));
+            Files.setLastModifiedTime(entryFile("k" + i), FileTime.fromMillis(now - (10 - i) * 60_000L));
+        }
+        assertTrue(folderBytes() < maxBytes);
+
+        // Reading k0 makes it the most recently used
+        assertTrue(cache.get("k0").isPresent());
+        cache.put("k9", entry(900));
+        cache.put("k10", entry(900));
+
+        assertTrue(folderBytes() <= maxBytes * 0.9);
+        assertEquals(2, cache.getEvictions());
+        assertFalse(Files.exists(entryFile("k1")));
+        assertFalse(Files.exists(entryFile("k2")));
+        for (var key : List.of("k0", "k3", "k8", "k9", "k10")) {
+            assertTrue(key, Files.exists(entryFile(key)));
+        }
+    }
+
+    @Test
+    public void failedWriteLeavesNoTempFile() throws IOException {
+        var cache = new CompilationCache(folder.toFile(), 1024 * 1024);
+
+        // The entry cannot replace a folder that is not empty
+        Files.createDirectories(entryFile("k"));
+        Files.writeString(entryFile("k").resolve("file"), "");
+
+        // The failure is only a warning, the compilation goes on without the cache
+        var stderr = System.err;
+        var captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            cache.put("k", entry(10));
+        } finally {
+            System.setErr(stderr);
+        }
+
+        var warning = captured.toString(StandardCharsets.UTF_8);
+        assertTrue(warning, warning.startsWith("[WARN cache] Could not write cache entry '" + entryFile("k") + "'"));
+        assertEquals(0, cache.getStores());
+        assertTrue(tempFiles().isEmpty());
+    }
+
+    @Test
+    public void evictionSweepsOldTempFiles() throws IOException {
+        var cache = new CompilationCache(folder.toFile(), 100);
+
+        var stale = Files.createFile(folder.resolve("k0123.tmp"));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 60 * 60_000L));
+        var writing = Files.createFile(folder.resolve("k4567.tmp"));
+
+        // Larger than the cache, so it is evicted right away
+        cache.put("k", entry(200));
+
+        assertEquals(List.of(writing), tempFiles());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void hitReturnsSameArtifacts() {
+        var config = CompilerConfig.getDefault();
+        config.put("cacheFolder", folder.toString());
+        config.put("optimize", "true");
+
+        var compiled = new JmmPipeline().compile(CODE, config);
+        var cached = new JmmPipeline().compile(CODE, config);
+
+        assertFalse(compiled.isFromCache());
+        assertTrue(cached.isFromCache());
+        assertEquals(compiled.getOllirCode(), cached.getOllirCode());
+        assertEquals(compiled.getJasminResult().getClassName(), cached.getJasminResult().getClassName());
+        assertEquals(compiled.getJasminResult().getJasminCode(), cached.getJasminResult().getJasminCode());
+        assertEquals(compiled.getReports().toString(), cached.getReports().toString());
+        assertEquals(compiled.hasErrors(), cached.hasErrors());
+    }
+}
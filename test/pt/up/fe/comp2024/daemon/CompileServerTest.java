@@ -0,0 +1,202 @@
+package pt.up.fe.comp2024.daemon;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts a compile server with a single worker and checks its answers to the requests of a client.
+ */
+public class CompileServerTest {
+
+    private String userHome;
+    private int port;
+    private Thread server;
+
+    @Before
+    public void startServer() throws Exception {
+        // The token is written to the home folder of the user
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", Files.createTempDirectory("jmmserver").toString());
+
+        try (var socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+
+        var config = CompilerConfig.getDefault();
+        config.put("port", Integer.toString(port));
+        config.put("jobs", "1");
+        server = new Thread(() -> {
+            try {
+                new CompileServer(config).run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.start();
+
+        // The token file is written once the server listens
+        var tokenFile = ServerToken.file(port);
+        for (int i = 0; i < 500 && !Files.exists(tokenFile); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue("Compile server did not start", Files.exists(tokenFile));
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        try {
+            CompileClient.send(command("shutdown"), port);
+            server.join(10_000);
+        } finally {
+            System.setProperty("user.home", userHome);
+        }
+    }
+
+    private static JsonObject command(String command) {
+        var request = new JsonObject();
+        request.addProperty("command", command);
+        return request;
+    }
+
+    private static JsonObject compile(String code) {
+        var request = new JsonObject();
+        request.addProperty("code", code);
+        return request;
+    }
+
+    /**
+     * Sends the raw lines on a single connection.
+     *
+     * @return the response of the server to each line, null once it closed the connection
+     */
+    private String[] sendLines(String... lines) throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            var responses = new String[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                out.write(lines[i]);
+                out.newLine();
+                out.flush();
+                responses[i] = in.readLine();
+                if (responses[i] == null) {
+                    return responses;
+                }
+            }
+            return responses;
+        }
+    }
+
+    private static JsonObject parse(String response) {
+        return JsonParser.parseString(response).getAsJsonObject();
+    }
+
+    private JsonObject withToken(JsonObject request) throws IOException {
+        request.addProperty("token", ServerToken.read(port));
+        return request;
+    }
+
+    @Test
+    public void compilesCode() throws Exception {
+        var response = CompileClient.send(compile("class A { public int foo() { return 1; } }"), port);
+
+        assertTrue(response.toString(), response.get("ok").getAsBoolean());
+        assertTrue(response.toString(), response.get("ollir").getAsString().contains(".method public foo().i32"));
+        assertTrue(response.toString(), response.get("jasmin").getAsString().contains(".method public foo()I"));
+    }
+
+    @Test
+    public void reportsErrors() throws Exception {
+        var response = CompileClient.send(compile("class A { public int foo() { return b; } }"), port);
+
+        assertFalse(response.toString(), response.get("ok").getAsBoolean());
+        assertTrue(response.toString(), response.getAsJsonArray("reports").size() > 0);
+    }
+
+    @Test
+    public void idleConnectionDoesNotBlockCompilations() throws Exception {
+        // Holds a connection open without sending anything, with the only worker free
+        try (var idle = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            long start = System.nanoTime();
+            var response = CompileClient.send(compile("class A { }"), port);
+
+            assertTrue(response.toString(), response.get("ok").getAsBoolean());
+            assertTrue("Compilation waited for the idle connection",
+                    System.nanoTime() - start < 4_000_000_000L);
+        }
+    }
+
+    @Test
+    public void wrongTokenClosesConnection() throws Exception {
+        var request = compile("class A { }");
+        request.addProperty("token", "0123");
+
+        // The second request is not read
+        var responses = sendLines(request.toString(), withToken(command("stats")).toString());
+        var response = parse(responses[0]);
+        assertFalse(response.get("ok").getAsBoolean());
+        assertTrue(response.get("error").getAsString(), response.get("error").getAsString().contains("token"));
+        assertNull(responses[1]);
+    }
+
+    @Test
+    public void malformedRequests() throws Exception {
+        var malformed = parse(sendLines("{\"code\": ")[0]);
+        assertFalse(malformed.get("ok").getAsBoolean());
+        assertTrue(malformed.get("error").getAsString().startsWith("Malformed request"));
+
+        var notObject = parse(sendLines("[1, 2]")[0]);
+        assertFalse(notObject.get("ok").getAsBoolean());
+
+        // Fields of the wrong type are answered, not dropped
+        var numberToken = compile("class A { }");
+        numberToken.addProperty("token", 42);
+        assertEquals("Field 'token' must be a string", parse(sendLines(numberToken.toString())[0]).get("error")
+                .getAsString());
+
+        var objectCommand = withToken(new JsonObject());
+        objectCommand.add("command", new JsonObject());
+        assertEquals("Field 'command' must be a string", parse(sendLines(objectCommand.toString())[0]).get("error")
+                .getAsString());
+
+        var arrayConfig = withToken(compile("class A { }"));
+        arrayConfig.add("config", new JsonArray());
+        assertEquals("Field 'config' must be an object", parse(sendLines(arrayConfig.toString())[0]).get("error")
+                .getAsString());
+
+        // The server still compiles
+        assertTrue(CompileClient.send(compile("class A { }"), port).get("ok").getAsBoolean());
+    }
+
+    @Test
+    public void invalidRequestOfAuthenticatedClientKeepsConnection() throws Exception {
+        var responses = sendLines(withToken(command("stats")).toString(), "not json",
+                withToken(command("stats")).toString());
+
+        assertTrue(parse(responses[0]).get("ok").getAsBoolean());
+        assertFalse(parse(responses[1]).get("ok").getAsBoolean());
+        assertTrue(parse(responses[2]).get("ok").getAsBoolean());
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.comp2024.incremental;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.incremental.IncrementalFrontEnd.Update;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that each kind of update gives the same tree and reports as checking the new version from scratch.
+ */
+public class IncrementalFrontEndTest {
+
+    private static final String CODE = """
+            import io;
+            class A {
+                int f;
+                public int a(int x) {
+                    int y;
+                    y = x + 1;
+                    return y;
+                }
+                public int b(int x) {
+                    return x;
+                }
+                public int c(int x) {
+                    return z;
+                }
+            }
+            """;
+
+    @Test
+    public void editInsideMethodBody() {
+        var frontEnd = new IncrementalFrontEnd(CompilerConfig.getDefault());
+        check(frontEnd, CODE, Update.FULL);
+
+        check(frontEnd, CODE.replace("y = x + 1;", "y = x + 2;"), Update.METHOD);
+        check(frontEnd, CODE.replace("y = x + 1;", "y = x + 2;"), Update.UNCHANGED);
+
+        // Moves the nodes and the reports of the following methods one line down
+        check(frontEnd, CODE.replace("y = x + 1;", "y = x + 2;\n        y = y + w;"), Update.METHOD);
+        check(frontEnd, CODE, Update.METHOD);
+    }
+
+    @Test
+    public void editSignature() {
+        var frontEnd = new IncrementalFrontEnd(CompilerConfig.getDefault());
+        check(frontEnd, CODE, Update.FULL);
+
+        // Each edit changes a single method of the previous version
+        var headerEdit = CODE.replace("int b(int x)", "int b(boolean x)");
+        check(frontEnd, headerEdit, Update.SIGNATURE);
+        check(frontEnd, headerEdit.replace("int y;", "int y;\n        int w;"), Update.SIGNATURE);
+
+        // The header and a body changed since the previous version
+        check(frontEnd, CODE, Update.FULL);
+    }
+
+    @Test
+    public void editOutsideMethods() {
+        var frontEnd = new IncrementalFrontEnd(CompilerConfig.getDefault());
+        check(frontEnd, CODE, Update.FULL);
+
+        check(frontEnd, CODE.replace("int f;", "int f;\n    boolean g;"), Update.FULL);
+        check(frontEnd, CODE.replace("return x;\n    }", "return x;\n    }\n    public int d() {\n        return 1;\n    }"),
+                Update.FULL);
+    }
+
+    @Test
+    public void syntaxErrorInsideMethod() {
+        var frontEnd = new IncrementalFrontEnd(CompilerConfig.getDefault());
+        check(frontEnd, CODE, Update.FULL);
+
+        frontEnd.update(CODE.replace("y = x + 1;", "y = x + ;"));
+        assertEquals(Update.FULL, frontEnd.getLastUpdate());
+        assertNull(frontEnd.getSemanticsResult());
+
+        check(frontEnd, CODE, Update.FULL);
+    }
+
+    /**
+     * Updates the front end and compares the results with a new front end that checks the code from scratch.
+     */
+    private static void check(IncrementalFrontEnd frontEnd, String code, Update expectedUpdate) {
+        var reports = frontEnd.update(code);
+        assertEquals(expectedUpdate, frontEnd.getLastUpdate());
+
+        var fresh = new IncrementalFrontEnd(CompilerConfig.getDefault());
+        var expectedReports = fresh.update(code);
+
+        assertEquals(expectedReports.toString(), reports.toString());
+        assertEquals(fresh.getSemanticsResult().getRootNode().toTree(), frontEnd.getSemanticsResult().getRootNode().toTree());
+    }
+}
@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the constants propagated and folded with optimizations on, through straight-line code, branches and loops,
+ * and that the compiled code computes the same value with and without them.
+ */
+public class ConstantPropagationTest {
+
+    private static Map<String, String> config(boolean optimize) {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("optimize", Boolean.toString(optimize));
+        return config;
+    }
+
+    private static String toOllir(String code, boolean optimize) {
+        var ollirResult = TestUtils.optimize(code, config(optimize));
+        TestUtils.noErrors(ollirResult);
+        return ollirResult.getOllirCode();
+    }
+
+    /**
+     * Compiles the class A of the code and calls its method foo with the given int arguments.
+     */
+    private static int runFoo(String code, boolean optimize, int... args) throws Exception {
+        var jasminResult = TestUtils.backend(code, config(optimize));
+        TestUtils.noErrors(jasminResult);
+
+        var outputDir = Files.createTempDirectory("constprop").toFile();
+        jasminResult.compile(outputDir);
+        try (var loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, null)) {
+            var aClass = loader.loadClass("A");
+            var paramTypes = new Class<?>[args.length];
+            Arrays.fill(paramTypes, int.class);
+            var boxedArgs = Arrays.stream(args).boxed().toArray();
+            // The generated class is not public
+            var constructor = aClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            var foo = aClass.getMethod("foo", paramTypes);
+            foo.setAccessible(true);
+            return (int) foo.invoke(constructor.newInstance(), boxedArgs);
+        }
+    }
+
+    private static void assertRuns(int expected, String code, int... args) throws Exception {
+        assertEquals(expected, runFoo(code, false, args));
+        assertEquals(expected, runFoo(code, true, args));
+    }
+
+    @Test
+    public void foldsLiteralArithmetic() throws Exception {
+        var code = "class A { public int foo() { int a; a = 2 * (3 + 4); return a - 1; } }";
+
+        assertTrue(toOllir(code, true).contains("ret.i32 13.i32"));
+        assertFalse(toOllir(code, false).contains("13.i32"));
+        assertRuns(13, code);
+    }
+
+    @Test
+    public void keepsConstantsBothBranchesAgreeOn() throws Exception {
+        var code = """
+                class A {
+                    public int foo(int n) {
+                        int a;
+                        int b;
+                        a = 1;
+                        b = 2;
+                        if (n < 3) { a = 5; b = 4; } else { b = 4; }
+                        return a + b;
+                    }
+                }
+                """;
+
+        var ollir = toOllir(code, true);
+        assertTrue(ollir, ollir.contains("a.i32 +.i32 4.i32"));
+        assertTrue(ollir, ollir.contains("n.i32 <.bool 3.i32"));
+        assertRuns(9, code, 1);
+        assertRuns(5, code, 7);
+    }
+
+    @Test
+    public void killsConstantsAssignedInLoop() throws Exception {
+        var code = """
+                class A {
+                    public int foo() {
+                        int a;
+                        int i;
+                        a = 10;
+                        i = 0;
+                        while (i < a) { i = i + 1; }
+                        return i * a;
+                    }
+                }
+                """;
+
+        var ollir = toOllir(code, true);
+        assertTrue(ollir, ollir.contains("i.i32 <.bool 10.i32"));
+        assertTrue(ollir, ollir.contains("i.i32 *.i32 10.i32"));
+        assertFalse(ollir, ollir.contains("0.i32 +.i32 1.i32"));
+        assertRuns(100, code);
+    }
+
+    @Test
+    public void keepsDivisionByZero() throws Exception {
+        var code = "class A { public int foo() { int a; a = 0; return 1 / a; } }";
+
+        assertTrue(toOllir(code, true).contains("1.i32 /.i32 0.i32"));
+        try {
+            runFoo(code, true);
+            throw new AssertionError("Expected the division by zero to throw");
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.BinaryOpInstruction;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.profiling.CompilerProfiler;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the copies and temporaries removed from OLLIR methods with optimizations on, and the ones that are kept.
+ */
+public class CopyPropagationTest {
+
+    private static final String CODE = """
+            A {
+            .construct A().V {
+            invokespecial(this, "<init>").V;
+            }
+            .method public chain(a.i32).i32 {
+            tmp3.i32 :=.i32 a.i32;
+            tmp4.i32 :=.i32 tmp3.i32 +.i32 1.i32;
+            x.i32 :=.i32 tmp4.i32;
+            ret.i32 x.i32;
+            }
+            .method public loop(n.i32).i32 {
+            i.i32 :=.i32 0.i32;
+            j.i32 :=.i32 i.i32;
+            goto cond_0;
+            body_0:
+            tmp0.i32 :=.i32 i.i32 +.i32 1.i32;
+            i.i32 :=.i32 tmp0.i32;
+            cond_0:
+            tmp1.bool :=.bool i.i32 <.bool n.i32;
+            if (tmp1.bool) goto body_0;
+            tmp2.i32 :=.i32 i.i32 +.i32 j.i32;
+            ret.i32 tmp2.i32;
+            }
+            }
+            """;
+
+    private static OllirResult optimize(boolean optimize) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", Boolean.toString(optimize));
+        return new JmmOptimizationImpl().optimize(new OllirResult(CODE, config));
+    }
+
+    private static OllirResult optimize() {
+        return optimize(true);
+    }
+
+    private static Method getMethod(OllirResult ollirResult, String name) {
+        return ollirResult.getOllirClass().getMethods().stream()
+                .filter(method -> method.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * @return the Jasmin code of the given method, from its header to '.end method'
+     */
+    private static String getJasminMethod(JasminResult jasminResult, String name) {
+        var code = jasminResult.getJasminCode();
+        int start = code.indexOf(".method public " + name + "(");
+        return code.substring(start, code.indexOf(".end method", start));
+    }
+
+    /**
+     * Assembles the class of the Jasmin result and calls the given method of a new instance with one int argument.
+     */
+    private static int run(JasminResult jasminResult, String methodName, int arg) throws Exception {
+        var outputDir = Files.createTempDirectory("copyprop").toFile();
+        jasminResult.compile(outputDir);
+        try (var loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, null)) {
+            var aClass = loader.loadClass("A");
+            // The generated class is not public
+            var constructor = aClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            var method = aClass.getMethod(methodName, int.class);
+            method.setAccessible(true);
+            return (int) method.invoke(constructor.newInstance(), arg);
+        }
+    }
+
+    @Test
+    public void collapsesCopyChain() {
+        var method = getMethod(optimize(), "chain");
+
+        // x := a + 1, ret x
+        assertEquals(2, method.getInstructions().size());
+        var assign = (AssignInstruction) method.getInstructions().get(0);
+        assertEquals("x", ((Operand) assign.getDest()).getName());
+        var sum = (BinaryOpInstruction) assign.getRhs();
+        assertEquals("a", ((Operand) sum.getLeftOperand()).getName());
+        assertFalse(method.getVarTable().containsKey("tmp3"));
+        assertFalse(method.getVarTable().containsKey("tmp4"));
+    }
+
+    @Test
+    public void keepsCopiesRedefinedInLoop() {
+        var method = getMethod(optimize(), "loop");
+
+        // 'i := tmp0' becomes 'i := i + 1', but j is read after i changes in the loop and keeps its own copy
+        assertFalse(method.getVarTable().containsKey("tmp0"));
+        assertTrue(method.getVarTable().containsKey("j"));
+        assertTrue(method.getInstructions().stream()
+                .anyMatch(inst -> inst instanceof AssignInstruction assign
+                        && ((Operand) assign.getDest()).getName().equals("i")
+                        && assign.getRhs() instanceof BinaryOpInstruction));
+        // The condition is jumped to, so it is not coalesced with the assignment before it
+        assertTrue(method.getLabels().containsKey("cond_0"));
+    }
+
+    @Test
+    public void countsInstructionsBeforeAndAfter() {
+        var profiler = new CompilerProfiler(true);
+        profiler.install();
+        try {
+            optimize();
+        } finally {
+            profiler.uninstall();
+        }
+
+        var counts = profiler.getCounts();
+        assertEquals(14, (long) counts.get("optInstructionsBefore"));
+        assertEquals(14 - counts.get("copiesRemoved") - counts.get("temporariesCoalesced")
+                - counts.get("deadInstructions"), (long) counts.get("optInstructionsAfter"));
+        assertEquals(11, (long) counts.get("optInstructionsAfter"));
+    }
+
+    @Test
+    public void generatesJasmin() throws Exception {
+        var plain = new JasminBackendImpl().toJasmin(optimize(false));
+        assertEquals(3, countStores(getJasminMethod(plain, "chain")));
+        assertEquals(5, run(plain, "chain", 4));
+        assertEquals(5, run(plain, "loop", 5));
+
+        // Only x is stored, the copies into tmp3 and tmp4 are gone
+        var optimized = new JasminBackendImpl().toJasmin(optimize());
+        var chain = getJasminMethod(optimized, "chain");
+        assertEquals(chain, 1, countStores(chain));
+        assertEquals(5, run(optimized, "chain", 4));
+        assertEquals(5, run(optimized, "loop", 5));
+        assertEquals(0, run(optimized, "loop", 0));
+    }
+
+    private static long countStores(String jasminCode) {
+        return jasminCode.lines().filter(line -> line.trim().startsWith("istore")).count();
+    }
+}
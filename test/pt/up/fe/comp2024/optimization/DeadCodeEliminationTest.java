@@ -0,0 +1,179 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.CallInstruction;
+import org.specs.comp.ollir.GotoInstruction;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the instructions and locals removed from OLLIR methods with optimizations on, and the ones that are kept.
+ */
+public class DeadCodeEliminationTest {
+
+    private static final String CODE = """
+            A {
+            .construct A().V {
+            invokespecial(this, "<init>").V;
+            }
+            .method public stores(n.i32).i32 {
+            a.i32 :=.i32 10.i32;
+            tmp0.i32 :=.i32 n.i32 +.i32 1.i32;
+            tmp1.i32 :=.i32 n.i32 /.i32 a.i32;
+            tmp2.i32 :=.i32 invokevirtual(this, "foo", n.i32).i32;
+            b.i32 :=.i32 n.i32 *.i32 2.i32;
+            ret.i32 b.i32;
+            }
+            .method public branches(n.i32).i32 {
+            if (1.bool) goto if_0;
+            n.i32 :=.i32 2.i32;
+            goto endif_0;
+            if_0:
+            n.i32 :=.i32 3.i32;
+            endif_0:
+            if (0.bool) goto if_1;
+            goto end_1;
+            if_1:
+            n.i32 :=.i32 4.i32;
+            end_1:
+            ret.i32 n.i32;
+            }
+            .method public foo(n.i32).i32 {
+            ret.i32 n.i32;
+            }
+            }
+            """;
+
+    private static OllirResult optimize(String code, boolean optimize) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", Boolean.toString(optimize));
+        return new JmmOptimizationImpl().optimize(new OllirResult(code, config));
+    }
+
+    private static OllirResult optimize(boolean optimize) {
+        return optimize(CODE, optimize);
+    }
+
+    private static Method getMethod(OllirResult ollirResult, String name) {
+        return ollirResult.getOllirClass().getMethods().stream()
+                .filter(method -> method.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * @return the Jasmin code of the given method, from its header to '.end method'
+     */
+    private static String getJasminMethod(JasminResult jasminResult, String name) {
+        var code = jasminResult.getJasminCode();
+        int start = code.indexOf(".method public " + name + "(");
+        return code.substring(start, code.indexOf(".end method", start));
+    }
+
+    /**
+     * Assembles the class of the Jasmin result and calls the given method of a new instance with one int argument.
+     */
+    private static int run(JasminResult jasminResult, String methodName, int arg) throws Exception {
+        var outputDir = Files.createTempDirectory("deadcode").toFile();
+        jasminResult.compile(outputDir);
+        try (var loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, null)) {
+            var aClass = loader.loadClass("A");
+            // The generated class is not public
+            var constructor = aClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            var method = aClass.getMethod(methodName, int.class);
+            method.setAccessible(true);
+            return (int) method.invoke(constructor.newInstance(), arg);
+        }
+    }
+
+    @Test
+    public void removesDeadStores() {
+        var method = getMethod(optimize(true), "stores");
+
+        // The division can throw and the call can have side effects
+        var varTable = method.getVarTable();
+        assertFalse(varTable.containsKey("tmp0"));
+        assertTrue(varTable.containsKey("tmp1"));
+        assertTrue(varTable.containsKey("tmp2"));
+        assertEquals(5, method.getInstructions().size());
+        assertTrue(method.getInstructions().stream()
+                .anyMatch(inst -> inst instanceof AssignInstruction assign && assign.getRhs() instanceof CallInstruction));
+    }
+
+    @Test
+    public void compactsLocals() {
+        var method = getMethod(optimize(true), "stores");
+
+        // a, tmp1, tmp2 and b, after 'this' and n
+        assertEquals(6, varTableLimit(method));
+        assertEquals(2, method.getVarTable().get("a").getVirtualReg());
+    }
+
+    @Test
+    public void removesUnreachableBranches() {
+        var method = getMethod(optimize(true), "branches");
+
+        // n := 3 and the return are left, the gotos to the next instruction are gone
+        assertEquals(2, method.getInstructions().size());
+        assertTrue(method.getInstructions().stream().noneMatch(GotoInstruction.class::isInstance));
+        assertTrue(method.getLabels().containsKey("endif_0"));
+    }
+
+    @Test
+    public void keepsCodeWithoutOptimizations() {
+        var method = getMethod(optimize(false), "stores");
+
+        assertEquals(6, method.getInstructions().size());
+    }
+
+    @Test
+    public void generatesJasmin() throws Exception {
+        // The backend does not compile calls yet, so this code has none and can be run
+        var code = """
+                A {
+                .construct A().V {
+                invokespecial(this, "<init>").V;
+                }
+                .method public foo(n.i32).i32 {
+                a.i32 :=.i32 n.i32 +.i32 1.i32;
+                if (1.bool) goto if_0;
+                n.i32 :=.i32 2.i32;
+                goto endif_0;
+                if_0:
+                n.i32 :=.i32 n.i32 *.i32 3.i32;
+                endif_0:
+                ret.i32 n.i32;
+                }
+                }
+                """;
+
+        var plain = new JasminBackendImpl().toJasmin(optimize(code, false));
+        assertTrue(getJasminMethod(plain, "foo").contains("iadd"));
+        assertEquals(15, run(plain, "foo", 5));
+
+        // The dead a := n + 1 and the branch that is never taken are gone
+        var optimized = new JasminBackendImpl().toJasmin(optimize(code, true));
+        var foo = getJasminMethod(optimized, "foo");
+        assertFalse(foo, foo.contains("iadd"));
+        assertFalse(foo, foo.contains("goto"));
+        assertEquals(15, run(optimized, "foo", 5));
+    }
+
+    private static int varTableLimit(Method method) {
+        return method.getVarTable().values().stream().mapToInt(descriptor -> descriptor.getVirtualReg()).max()
+                .orElse(0) + 1;
+    }
+}
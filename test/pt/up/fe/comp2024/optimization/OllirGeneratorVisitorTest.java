@@ -0,0 +1,219 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the OLLIR and Jasmin generated for method signatures, blocks and conditions.
+ */
+public class OllirGeneratorVisitorTest {
+
+    /**
+     * Assembles the class of the Jasmin result and calls the given method, whose parameters are all ints, on a new
+     * instance.
+     */
+    private static Object run(JasminResult jasminResult, String methodName, int... args) throws Exception {
+        var outputDir = Files.createTempDirectory("jasmin").toFile();
+        jasminResult.compile(outputDir);
+        try (var loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, null)) {
+            var aClass = loader.loadClass(jasminResult.getClassName());
+            var paramTypes = new Class<?>[args.length];
+            Arrays.fill(paramTypes, int.class);
+            // The generated class is not public
+            var constructor = aClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            var method = aClass.getMethod(methodName, paramTypes);
+            method.setAccessible(true);
+            return method.invoke(constructor.newInstance(), Arrays.stream(args).boxed().toArray());
+        }
+    }
+
+    @Test
+    public void arrayParameters() {
+        var code = """
+                class A {
+                    public int sum(int[] a, int n) {
+                        return a[0] + a[1] + n;
+                    }
+                    public int foo() {
+                        int[] b;
+                        b = new int[2];
+                        b[0] = 3;
+                        b[1] = 4;
+                        return this.sum(b, 5);
+                    }
+                }
+                """;
+
+        var ollirResult = TestUtils.optimize(code, CompilerConfig.getDefault());
+        TestUtils.noErrors(ollirResult);
+        var ollir = ollirResult.getOllirCode();
+        assertTrue(ollir, ollir.contains(".method public sum(a.array.i32, n.i32).i32"));
+        assertTrue(ollir, ollir.contains("\"sum\",b.array.i32,5.i32"));
+
+        var jasminResult = TestUtils.backend(code, CompilerConfig.getDefault());
+        TestUtils.noErrors(jasminResult);
+        var jasmin = jasminResult.getJasminCode();
+        assertTrue(jasmin, jasmin.contains(".method public sum([II)I"));
+    }
+
+    @Test
+    public void blocksAndParentheses() {
+        var code = """
+                class A {
+                    public int foo(int a) {
+                        int b;
+                        int c;
+                        {
+                            b = (a + 1) * 2;
+                            c = b - a;
+                            a = c;
+                        }
+                        return a;
+                    }
+                }
+                """;
+
+        var ollirResult = TestUtils.optimize(code, CompilerConfig.getDefault());
+        TestUtils.noErrors(ollirResult);
+        var ollir = ollirResult.getOllirCode();
+        assertTrue(ollir, ollir.contains(".method public foo(a.i32).i32"));
+        // Every statement of the block, and the parenthesised sum before the product
+        assertTrue(ollir, ollir.contains("a.i32 +.i32 1.i32"));
+        assertTrue(ollir, ollir.contains("b.i32 -.i32 a.i32"));
+        assertTrue(ollir, ollir.contains("a.i32 :=.i32 c.i32"));
+    }
+
+    @Test
+    public void shortCircuitOperators() throws Exception {
+        var code = """
+                class A {
+                    public int foo(int a, int b) {
+                        boolean x;
+                        boolean y;
+                        int r;
+                        x = a < 5 && b < 5;
+                        y = 0 < a && a < b;
+                        r = 0;
+                        if (x) {
+                            r = r + 1;
+                        } else {
+                            r = r + 10;
+                        }
+                        if (y && x) {
+                            r = r + 100;
+                        } else {
+                        }
+                        while (r < 0 || b < 0) {
+                            r = r + 1;
+                            b = b + 1;
+                        }
+                        return r;
+                    }
+                }
+                """;
+
+        for (var optimize : new boolean[]{false, true}) {
+            var config = CompilerConfig.getDefault();
+            config.put("optimize", Boolean.toString(optimize));
+
+            // Every label is defined once and every jump goes to a label of the method
+            var ollirResult = TestUtils.optimize(code, config);
+            TestUtils.noErrors(ollirResult);
+            var classUnit = ollirResult.getOllirClass();
+            classUnit.checkMethodLabels();
+            classUnit.buildCFGs();
+
+            var jasminResult = TestUtils.backend(code, config);
+            TestUtils.noErrors(jasminResult);
+            assertEquals(101, run(jasminResult, "foo", 1, 2));
+            assertEquals(10, run(jasminResult, "foo", 6, 2));
+            assertEquals(10, run(jasminResult, "foo", 3, 7));
+            assertEquals(1, run(jasminResult, "foo", 1, 0));
+            assertEquals(4, run(jasminResult, "foo", 1, -3));
+        }
+    }
+
+    @Test
+    public void shortCircuitSkipsRightOperand() throws Exception {
+        var code = """
+                class A {
+                    public int foo(int a, int b) {
+                        int r;
+                        r = 0;
+                        if (0 < b && 10 / b < a) {
+                            r = 1;
+                        } else {
+                        }
+                        if (b < 1 || 10 / b < a) {
+                            r = r + 10;
+                        } else {
+                        }
+                        return r;
+                    }
+                }
+                """;
+
+        var jasminResult = TestUtils.backend(code);
+        TestUtils.noErrors(jasminResult);
+        // 10 / b is not computed when b is 0
+        assertEquals(10, run(jasminResult, "foo", 1, 0));
+        assertEquals(11, run(jasminResult, "foo", 6, 2));
+        assertEquals(0, run(jasminResult, "foo", 1, 2));
+    }
+
+    @Test
+    public void nestedControlFlowLabels() throws Exception {
+        var code = """
+                class A {
+                    public int foo(int n) {
+                        int i;
+                        int j;
+                        int r;
+                        i = 0;
+                        r = 0;
+                        while (i < n) {
+                            j = 0;
+                            while (j < i && j < 3) {
+                                if (j < 1) {
+                                    r = r + 1;
+                                } else {
+                                    if (i < 4 || j < 2) {
+                                        r = r + 10;
+                                    } else {
+                                        r = r + 100;
+                                    }
+                                }
+                                j = j + 1;
+                            }
+                            i = i + 1;
+                        }
+                        return r;
+                    }
+                }
+                """;
+
+        // Every if, while and short-circuit operator has labels of its own
+        var ollirResult = TestUtils.optimize(code, CompilerConfig.getDefault());
+        TestUtils.noErrors(ollirResult);
+        var classUnit = ollirResult.getOllirClass();
+        classUnit.checkMethodLabels();
+        classUnit.buildCFGs();
+
+        var jasminResult = TestUtils.backend(code);
+        TestUtils.noErrors(jasminResult);
+        assertEquals(0, run(jasminResult, "foo", 1));
+        assertEquals(33, run(jasminResult, "foo", 4));
+        assertEquals(255, run(jasminResult, "foo", 6));
+    }
+}
@@ -0,0 +1,167 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmPipeline;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the code printed from OLLIR classes parses again into the same class, and that it is the OLLIR code of
+ * optimized compilations only.
+ */
+public class OllirPrinterTest {
+
+    private static final String OLLIR = """
+            import io;
+            import a.b.Foo;
+
+            A extends Foo {
+            .field public x.i32;
+            .field private ys.array.i32;
+
+            .construct A().V {
+            invokespecial(this, "<init>").V;
+            }
+
+            .method public static main(args.array.String).V {
+            a.A :=.A new(A).A;
+            invokespecial(a.A, "<init>").V;
+            tmp0.array.i32 :=.array.i32 new(array, 2.i32).array.i32;
+            putfield(a.A, ys.array.i32, tmp0.array.i32).V;
+            tmp1.i32 :=.i32 invokevirtual(a.A, "loop", 3.i32, 1.bool).i32;
+            invokestatic(io, "println", tmp1.i32).V;
+            ret.V;
+            }
+
+            .method public loop(n.i32, b.bool).i32 {
+            i.i32 :=.i32 0.i32;
+            ys.array.i32 :=.array.i32 getfield(this, ys.array.i32).array.i32;
+            whilecond_0:
+            if (i.i32 >=.bool n.i32) goto endwhile_0;
+            c.bool :=.bool !.bool b.bool;
+            if (c.bool) goto endwhile_0;
+            len.i32 :=.i32 arraylength(ys.array.i32).i32;
+            ys[i.i32].i32 :=.i32 len.i32 *.i32 i.i32;
+            i.i32 :=.i32 i.i32 +.i32 1.i32;
+            goto whilecond_0;
+            endwhile_0:
+            x.i32 :=.i32 getfield(this, x.i32).i32;
+            ret.i32 x.i32;
+            }
+            }
+            """;
+
+    // The OLLIR files of the other tests
+    private static final List<String> FIXTURES = List.of(
+            "pt/up/fe/comp/cp2/apps/example_ollir/HelloWorld.ollir",
+            "pt/up/fe/comp/cp2/apps/example_ollir/Simple.ollir",
+            "pt/up/fe/comp/cp2/jasmin/OllirToJasminArithmetics.ollir",
+            "pt/up/fe/comp/cp2/jasmin/OllirToJasminBasic.ollir",
+            "pt/up/fe/comp/cp2/jasmin/OllirToJasminFields.ollir",
+            "pt/up/fe/comp/cp2/jasmin/OllirToJasminInvoke.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_and.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_less.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_not.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/ByteCodeIndexes1.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arithmetic/ByteCodeIndexes2.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAccess.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAsArg.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayAsArgCode.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayInit.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayInitialization.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayNew.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ArrayVarArgs.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/ComplexArrayAccess.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/arrays/VarargsAndArrayInit.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/basic/BasicMethodsArray.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/calls/ConditionArgsFuncCall.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/IfElseInMain.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SimpleControlFlow.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SimpleIfElseNot.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SimpleIfElseStat.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SimpleWhileStat.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/control_flow/SwitchStat.ollir",
+            "pt/up/fe/comp/cpf/4_jasmin/limits/LocalLimits.ollir",
+            "pt/up/fe/comp/initial/jasmin/OllirToJasminArithmetics.ollir",
+            "pt/up/fe/comp/initial/jasmin/OllirToJasminBasic.ollir");
+
+    @Test
+    public void printedCodeParsesToSameClass() {
+        var printed = OllirPrinter.print(new OllirResult(OLLIR, CompilerConfig.getDefault()).getOllirClass());
+        var reparsed = new OllirResult(printed, CompilerConfig.getDefault()).getOllirClass();
+
+        assertEquals(printed, OllirPrinter.print(reparsed));
+        assertTrue(printed, printed.contains("A extends Foo {"));
+        assertTrue(printed, printed.contains(".field private ys.array.i32;"));
+        assertTrue(printed, printed.contains("invokevirtual(a.A, \"loop\", 3.i32, 1.bool).i32;"));
+        assertTrue(printed, printed.contains("invokestatic(io, \"println\", tmp1.i32).V;"));
+        assertTrue(printed, printed.contains("new(array, 2.i32).array.i32;"));
+        assertTrue(printed, printed.contains("if (i.i32 >=.bool n.i32) goto endwhile_0;"));
+        assertTrue(printed, printed.contains("ys[i.i32].i32 :=.i32 len.i32 *.i32 i.i32;"));
+        assertTrue(printed, printed.contains("endwhile_0:"));
+    }
+
+    @Test
+    public void fixturesPrintAgain() {
+        for (var fixture : FIXTURES) {
+            var printed = OllirPrinter.print(
+                    new OllirResult(SpecsIo.getResource(fixture), CompilerConfig.getDefault()).getOllirClass());
+            var reparsed = new OllirResult(printed, CompilerConfig.getDefault()).getOllirClass();
+            assertEquals(fixture, printed, OllirPrinter.print(reparsed));
+        }
+    }
+
+    @Test
+    public void plainCompilationHasGeneratedCode() {
+        var code = """
+                class A {
+                    public int foo(int n) {
+                        int a;
+                        a = n + 1;
+                        return n;
+                    }
+                }
+                """;
+
+        // Without optimizations the code is not printed again, it is the one the OLLIR class was parsed from
+        var result = new JmmPipeline().compile(code, CompilerConfig.getDefault());
+        assertEquals(result.getOllirResult().getOllirCode(), result.getOllirCode());
+    }
+
+    @Test
+    public void optimizedCompilationHasOptimizedCode() {
+        var code = """
+                class A {
+                    public int foo(int n) {
+                        int a;
+                        int b;
+                        a = n + 1;
+                        b = n;
+                        return b;
+                    }
+                }
+                """;
+
+        var config = CompilerConfig.getDefault();
+        var plain = new JmmPipeline().compile(code, config);
+        assertTrue(plain.getOllirCode(), plain.getOllirCode().contains("a.i32 :=.i32"));
+
+        config.put("optimize", "true");
+        var optimized = new JmmPipeline().compile(code, config);
+        var ollirCode = optimized.getOllirCode();
+
+        // The dead store is gone and the copy is replaced, as in the Jasmin code
+        assertFalse(ollirCode, ollirCode.contains("a.i32 :=.i32"));
+        assertTrue(ollirCode, ollirCode.contains("ret.i32 n.i32;"));
+        assertFalse(optimized.getJasminResult().getJasminCode().contains("iadd"));
+        new OllirResult(ollirCode, config);
+    }
+}
@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the registers given by the allocator to the locals of OLLIR methods, and the error when there are too few.
+ */
+public class RegisterAllocatorTest {
+
+    private static final String CODE = """
+            A {
+            .construct A().V {
+            invokespecial(this, "<init>").V;
+            }
+            .method public copies(arg.i32).i32 {
+            a.i32 :=.i32 0.i32;
+            b.i32 :=.i32 a.i32;
+            c.i32 :=.i32 b.i32;
+            ret.i32 c.i32;
+            }
+            .method public loop(n.i32).i32 {
+            i.i32 :=.i32 0.i32;
+            s.i32 :=.i32 0.i32;
+            goto cond_0;
+            body_0:
+            tmp0.i32 :=.i32 s.i32 +.i32 i.i32;
+            s.i32 :=.i32 tmp0.i32;
+            tmp1.i32 :=.i32 i.i32 +.i32 1.i32;
+            i.i32 :=.i32 tmp1.i32;
+            cond_0:
+            if (i.i32 <.bool n.i32) goto body_0;
+            ret.i32 s.i32;
+            }
+            }
+            """;
+
+    private static OllirResult allocate(int registers) {
+        var config = new HashMap<String, String>();
+        config.put("registerAllocation", Integer.toString(registers));
+        return new JmmOptimizationImpl().optimize(new OllirResult(CODE, config));
+    }
+
+    private static Method getMethod(OllirResult ollirResult, String name) {
+        return ollirResult.getOllirClass().getMethods().stream()
+                .filter(method -> method.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static int getReg(Method method, String var) {
+        return method.getVarTable().get(var).getVirtualReg();
+    }
+
+    @Test
+    public void copiesShareRegister() {
+        var method = getMethod(allocate(0), "copies");
+
+        assertEquals(1, getReg(method, "arg"));
+        assertEquals(2, getReg(method, "a"));
+        assertEquals(2, getReg(method, "b"));
+        assertEquals(2, getReg(method, "c"));
+    }
+
+    @Test
+    public void liveVariablesGetDifferentRegisters() {
+        var method = getMethod(allocate(0), "loop");
+
+        assertEquals(1, getReg(method, "n"));
+        assertNotEquals(getReg(method, "i"), getReg(method, "s"));
+        assertTrue(getReg(method, "i") > 1 && getReg(method, "i") < 4);
+        assertTrue(getReg(method, "s") > 1 && getReg(method, "s") < 4);
+    }
+
+    @Test
+    public void tooFewRegistersIsError() {
+        var ollirResult = allocate(3);
+
+        var errors = ollirResult.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .toList();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().contains("'loop' needs 4"));
+    }
+}
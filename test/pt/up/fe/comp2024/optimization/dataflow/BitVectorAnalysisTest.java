@@ -0,0 +1,172 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the facts found by the analyses of the framework on a loop and on array elements, and that the solver
+ * converges.
+ */
+public class BitVectorAnalysisTest {
+
+    // 0: i := 0, 1: s := 0, 2: goto, 3: t := s + i, 4: s := t, 5: u := i + 1, 6: i := u, 7: if, 8: v := s + i,
+    // 9: ret
+    private static final String CODE = """
+            A {
+            .construct A().V {
+            invokespecial(this, "<init>").V;
+            }
+            .method public loop(n.i32).i32 {
+            i.i32 :=.i32 0.i32;
+            s.i32 :=.i32 0.i32;
+            goto cond_0;
+            body_0:
+            t.i32 :=.i32 s.i32 +.i32 i.i32;
+            s.i32 :=.i32 t.i32;
+            u.i32 :=.i32 i.i32 +.i32 1.i32;
+            i.i32 :=.i32 u.i32;
+            cond_0:
+            if (i.i32 <.bool n.i32) goto body_0;
+            v.i32 :=.i32 s.i32 +.i32 i.i32;
+            ret.i32 v.i32;
+            }
+            .method public arrays(a.array.i32, b.array.i32, i.i32, j.i32).i32 {
+            x.i32 :=.i32 a[i.i32].i32 +.i32 1.i32;
+            y.i32 :=.i32 a[j.i32].i32 +.i32 1.i32;
+            b[j.i32].i32 :=.i32 0.i32;
+            z.i32 :=.i32 a[i.i32].i32 +.i32 1.i32;
+            i.i32 :=.i32 j.i32;
+            w.i32 :=.i32 a[i.i32].i32 +.i32 1.i32;
+            ret.i32 w.i32;
+            }
+            }
+            """;
+
+    private static FlowGraph buildGraph() {
+        return buildGraph("loop");
+    }
+
+    private static FlowGraph buildGraph(String methodName) {
+        var classUnit = new OllirResult(CODE, new HashMap<>()).getOllirClass();
+        classUnit.buildCFGs();
+        var method = classUnit.getMethods().stream()
+                .filter(m -> m.getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return new FlowGraph(method);
+    }
+
+    private static BitSet vars(DefUse defUse, String... names) {
+        var vars = new BitSet();
+        for (var name : names) {
+            vars.set(defUse.indexOf(name));
+        }
+        return vars;
+    }
+
+    private static BitSet bits(int... indexes) {
+        var bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    @Test
+    public void flowGraphFollowsBranches() {
+        var graph = buildGraph();
+
+        assertEquals(10, graph.size());
+        assertEquals(bits(7).toString(), bits(graph.getSuccessors(2)).toString());
+        assertEquals(bits(3, 8).toString(), bits(graph.getSuccessors(7)).toString());
+        assertTrue(graph.isExit(9));
+        assertFalse(graph.isExit(7));
+        assertTrue(graph.unreachable().isEmpty());
+    }
+
+    @Test
+    public void liveVariablesInLoop() {
+        var graph = buildGraph();
+        var defUse = new DefUse(graph);
+        var live = new LiveVariables(graph, defUse).solve();
+
+        assertEquals(vars(defUse, "n"), live.getIn(0));
+        assertEquals(vars(defUse, "i", "s", "n"), live.getIn(7));
+        assertEquals(vars(defUse, "t", "i", "n"), live.getOut(3));
+        assertEquals(vars(defUse, "v"), live.getIn(9));
+        assertTrue(live.getOut(9).isEmpty());
+    }
+
+    @Test
+    public void reachingDefinitionsMergeAtLoopHead() {
+        var graph = buildGraph();
+        var defUse = new DefUse(graph);
+        var reaching = new ReachingDefinitions(graph, defUse).solve();
+
+        // Both definitions of i and s reach the condition
+        assertEquals(bits(0, 1, 3, 4, 5, 6), reaching.getIn(7));
+        assertEquals(bits(0, 1, 3, 4, 5, 6, 8), reaching.getOut(8));
+        assertTrue(reaching.getIn(0).isEmpty());
+    }
+
+    @Test
+    public void availableExpressionsKilledByRedefinition() {
+        var graph = buildGraph();
+        var defUse = new DefUse(graph);
+        var analysis = new AvailableExpressions(graph, defUse);
+        var available = analysis.solve();
+
+        int sum = analysis.getAssigned(3);
+        int increment = analysis.getAssigned(5);
+        assertEquals(sum, analysis.getAssigned(8));
+        assertEquals(2, analysis.getExpressions().size());
+
+        assertEquals(bits(sum), available.getOut(3));
+        // s was redefined
+        assertTrue(available.getOut(4).isEmpty());
+        assertEquals(bits(increment), available.getOut(5));
+        // Nothing is computed before the loop, so nothing is available at its head
+        assertTrue(available.getIn(7).isEmpty());
+    }
+
+    @Test
+    public void availableArrayElementsKilledByStoresAndIndexes() {
+        // 0: x := a[i] + 1, 1: y := a[j] + 1, 2: b[j] := 0, 3: z := a[i] + 1, 4: i := j, 5: w := a[i] + 1, 6: ret
+        var graph = buildGraph("arrays");
+        var defUse = new DefUse(graph);
+        var analysis = new AvailableExpressions(graph, defUse);
+        var available = analysis.solve();
+
+        int first = analysis.getAssigned(0);
+        int second = analysis.getAssigned(1);
+        assertEquals(List.of("a[i] ADD 1", "a[j] ADD 1"), analysis.getExpressions());
+        assertEquals(first, analysis.getAssigned(3));
+        assertEquals(first, analysis.getAssigned(5));
+
+        assertEquals(bits(first, second), available.getOut(1));
+        // b may be a
+        assertTrue(available.getOut(2).isEmpty());
+        assertEquals(bits(first), available.getOut(3));
+        // The index changed
+        assertTrue(available.getOut(4).isEmpty());
+        assertEquals(bits(first), available.getOut(5));
+    }
+
+    @Test
+    public void solverConverges() {
+        var graph = buildGraph();
+        var result = new LiveVariables(graph, new DefUse(graph)).solve();
+
+        assertTrue(result.getVisits() >= graph.size());
+        assertTrue(result.getUpdates() <= result.getVisits());
+        assertTrue(result.getVisitsPerInstruction() < 3);
+    }
+}
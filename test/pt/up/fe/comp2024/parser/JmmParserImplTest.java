@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.CompilerConfig;
+import utils.JmmProgramGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the two-stage parser gives the same results as a single LL parse, and the shared prediction caches.
+ */
+public class JmmParserImplTest {
+
+    @Test
+    public void sllGivesSameTreeAsLl() {
+        var config = CompilerConfig.getDefault();
+        for (int seed = 0; seed < 5; seed++) {
+            var code = new JmmProgramGenerator(seed).methods(5).statements(30).generate();
+
+            var parser = new JmmParserImpl();
+            var sll = parser.parse(code, config);
+            var ll = new JmmParserImpl(false).parse(code, config);
+
+            TestUtils.noErrors(sll);
+            assertEquals(1, parser.getSllParses());
+            assertEquals(0, parser.getLlFallbacks());
+            assertEquals(ll.getRootNode().toTree(), sll.getRootNode().toTree());
+        }
+    }
+
+    @Test
+    public void syntaxErrorFallsBackToLl() {
+        var config = CompilerConfig.getDefault();
+        var code = "class A { int a; public int foo( { return 1; } }";
+
+        var parser = new JmmParserImpl();
+        var sll = parser.parse(code, config);
+        var ll = new JmmParserImpl(false).parse(code, config);
+
+        assertEquals(0, parser.getSllParses());
+        assertEquals(1, parser.getLlFallbacks());
+        assertNull(sll.getRootNode());
+        assertEquals(ll.getReports().toString(), sll.getReports().toString());
+    }
+
+    @Test
+    public void warmUpFillsPredictionCache() {
+        TestUtils.noErrors(new JmmParserImpl(false).parse(PredictionCache.WARM_UP_PROGRAM, CompilerConfig.getDefault()));
+
+        PredictionCache.clear();
+        assertEquals(0, PredictionCache.size());
+
+        PredictionCache.warmUp();
+        assertTrue(PredictionCache.size() > 0);
+    }
+}
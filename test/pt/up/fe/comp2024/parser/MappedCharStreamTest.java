@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.CompilerConfig;
+import utils.JmmProgramGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that parsing a memory-mapped file gives the same results as parsing its code.
+ */
+public class MappedCharStreamTest {
+
+    @Test
+    public void mappedFileGivesSameTree() throws IOException {
+        var code = new JmmProgramGenerator(7).methods(20).statements(200).generate();
+        var file = Files.createTempFile("mapped", ".jmm");
+        try {
+            Files.writeString(file, code);
+
+            var input = MappedCharStream.open(file.toFile());
+            assertTrue(input instanceof MappedCharStream);
+            assertEquals(code, input.toString());
+
+            var config = CompilerConfig.getDefault();
+            var fromFile = new JmmParserImpl().parse(file.toFile(), config);
+            var fromCode = new JmmParserImpl().parse(code, config);
+
+            TestUtils.noErrors(fromFile);
+            assertEquals(fromCode.getRootNode().toTree(), fromFile.getRootNode().toTree());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void syntaxErrorHasSamePosition() throws IOException {
+        var code = new JmmProgramGenerator(7).methods(20).statements(200).generate() + "\n  class {";
+        var file = Files.createTempFile("mapped", ".jmm");
+        try {
+            Files.writeString(file, code);
+
+            var config = CompilerConfig.getDefault();
+            var fromFile = new JmmParserImpl().parse(file.toFile(), config);
+            var fromCode = new JmmParserImpl().parse(code, config);
+
+            assertEquals(fromCode.getReports().toString(), fromFile.getReports().toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void smallFileIsRead() throws IOException {
+        var file = Files.createTempFile("small", ".jmm");
+        try {
+            Files.writeString(file, "class A {}");
+            assertTrue(MappedCharStream.open(file.toFile()) instanceof ANTLRInputStream);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.fe.comp2024.profiling;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmPipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the fields of the JSON report written with '-t'.
+ */
+public class ProfileReportTest {
+
+    private static final String CODE = """
+            class A {
+                public int foo(int a) { return a + 1; }
+                public int bar(int a) { int b; b = a * 2; return b; }
+            }
+            """;
+
+    private static List<String> field(Iterable<?> elements, String name) {
+        var values = new ArrayList<String>();
+        elements.forEach(element -> values.add(((JsonObject) element).get(name).getAsString()));
+        return values;
+    }
+
+    @Test
+    public void reportShape() throws IOException {
+        var reportFile = Files.createTempFile("jmmprofile", ".json");
+        var config = CompilerConfig.getDefault();
+        config.put("profile", reportFile.toString());
+
+        var report = new ProfileReport();
+        report.add(new File("A.jmm"), new JmmPipeline().compile(CODE, config));
+        report.write(config);
+
+        var json = JsonParser.parseString(Files.readString(reportFile)).getAsJsonObject();
+        var units = json.getAsJsonArray("units");
+        assertEquals(1, units.size());
+
+        var unit = units.get(0).getAsJsonObject();
+        assertEquals("A.jmm", unit.get("file").getAsString());
+        assertFalse(unit.get("cached").getAsBoolean());
+
+        // Enclosing stages come before their sub-stages
+        var stages = unit.getAsJsonArray("stages");
+        assertEquals(List.of("parse", "analysis", "analysis.symbolTable", "analysis.compactAst", "analysis.passes",
+                        "ollir", "ollir.optimizeAst", "ollir.toOllir", "ollir.optimize", "jasmin"),
+                field(stages, "stage"));
+        for (var stage : stages) {
+            var stageJson = stage.getAsJsonObject();
+            assertTrue(stageJson.toString(), stageJson.get("wallMillis").getAsDouble() >= 0);
+            assertFalse(stageJson.toString(), stageJson.has("method"));
+        }
+
+        var methods = unit.getAsJsonArray("methods");
+        var jasminMethods = new ArrayList<JsonObject>();
+        methods.forEach(method -> {
+            if (method.getAsJsonObject().get("stage").getAsString().equals("jasmin")) {
+                jasminMethods.add(method.getAsJsonObject());
+            }
+        });
+        assertEquals(List.of("foo", "bar"), field(jasminMethods, "method"));
+        for (var method : jasminMethods) {
+            assertTrue(method.toString(), method.get("jasminLines").getAsLong() > 0);
+            assertTrue(method.toString(), method.get("ollirInstructions").getAsLong() > 0);
+        }
+
+        var counts = unit.getAsJsonObject("counts");
+        assertTrue(counts.toString(), counts.get("astNodes").getAsLong() > 0);
+        assertTrue(counts.toString(), counts.get("ollirInstructions").getAsLong() > 0);
+        assertTrue(counts.toString(), counts.get("jasminLines").getAsLong() > 0);
+    }
+
+    @Test
+    public void disabledWritesNothing() {
+        var config = CompilerConfig.getDefault();
+        var result = new JmmPipeline().compile(CODE, config);
+
+        // Only the wall times of the stages are measured
+        var profile = result.getProfiler().orElseThrow().toJson();
+        assertEquals(0, profile.getAsJsonArray("stages").size());
+        assertEquals(0, profile.getAsJsonArray("methods").size());
+        assertEquals(0, profile.getAsJsonObject("counts").size());
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that semantic analysis leaves the symbol table as the builder made it: each parameter and local is listed
+ * once, in its own method, and variables are found the same way with sequential and parallel analysis.
+ */
+public class JmmSymbolTableTest {
+
+    private static final String CODE = """
+            class A {
+                int f;
+                boolean g;
+                public int foo(int a, boolean b) {
+                    int x;
+                    int[] y;
+                    x = a;
+                    return x;
+                }
+                public int bar(int x) {
+                    boolean f;
+                    f = true;
+                    return x;
+                }
+                public static void main(String[] args) {
+                    int m;
+                    m = 1;
+                }
+            }
+            """;
+
+    private static JmmSymbolTable analyse(String jobs) {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("analysisJobs", jobs);
+        var result = new JmmAnalysisImpl().semanticAnalysis(new JmmParserImpl().parse(CODE, config));
+        assertFalse(ReportUtils.anyError(result.getReports()));
+        return (JmmSymbolTable) result.getSymbolTable();
+    }
+
+    private static void assertVariables(JmmSymbolTable table) {
+        var intType = new Type("int", false);
+        var booleanType = new Type("boolean", false);
+
+        assertEquals(List.of(new Symbol(intType, "f"), new Symbol(booleanType, "g")), table.getFields());
+
+        assertEquals(List.of(new Symbol(intType, "a"), new Symbol(booleanType, "b")), table.getParameters("foo"));
+        assertEquals(List.of(new Symbol(intType, "x"), new Symbol(new Type("int", true), "y")),
+                table.getLocalVariables("foo"));
+        assertEquals(List.of(new Symbol(intType, "x")), table.getParameters("bar"));
+        assertEquals(List.of(new Symbol(booleanType, "f")), table.getLocalVariables("bar"));
+        assertEquals(List.of(new Symbol(intType, "m")), table.getLocalVariables("main"));
+
+        // Analysis does not add scopes of its own
+        assertEquals(List.of(), table.getLocalVariables("Global"));
+
+        assertEquals(intType, table.getVariableType("a", "foo"));
+        assertEquals(intType, table.getVariableType("x", "foo"));
+        assertEquals(booleanType, table.getVariableType("g", "foo"));
+        assertEquals(intType, table.getVariableType("x", "bar"));
+        assertEquals(booleanType, table.getVariableType("f", "bar"));
+        assertNull(table.getVariableType("a", "bar"));
+        assertNull(table.getVariableType("m", "foo"));
+    }
+
+    @Test
+    public void varargsOnlyForDots() {
+        var root = new JmmParserImpl().parse("""
+                class A {
+                    public int sum(int... a) { return a[0]; }
+                    public int first(int[] a) { return a[0]; }
+                    public int none() { return 0; }
+                }
+                """, CompilerConfig.getDefault()).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+
+        // Both parameters are int arrays, only the first takes separate ints
+        assertEquals(new Type("int", true), table.getParameters("sum").get(0).getType());
+        assertEquals(new Type("int", true), table.getParameters("first").get(0).getType());
+        assertTrue(table.isVarargs("sum"));
+        assertFalse(table.isVarargs("first"));
+        assertFalse(table.isVarargs("none"));
+    }
+
+    @Test
+    public void sequentialAnalysisKeepsVariables() {
+        assertVariables(analyse("1"));
+    }
+
+    @Test
+    public void parallelAnalysisKeepsVariables() {
+        assertVariables(analyse("4"));
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp2024.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the messages each level of the '-l' option prints.
+ */
+public class CompilerLoggerTest {
+
+    @After
+    public void restoreDefaultLevel() {
+        CompilerLogger.configure("");
+    }
+
+    /**
+     * Logs a message at every level on the given category.
+     *
+     * @return the lines printed to stderr
+     */
+    private static List<String> logAll(String category) {
+        var stderr = System.err;
+        var captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            var log = CompilerLogger.get(category);
+            log.trace("trace {} {} {}", 1, 2, 3);
+            log.debug("debug {} {}", 1, 2);
+            log.info("info");
+            log.warn("warn {}", 1);
+            log.error("error");
+        } finally {
+            System.setErr(stderr);
+        }
+        return captured.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    public void defaultPrintsWarningsAndErrors() {
+        assertEquals(List.of("[WARN test.default] warn 1", "[ERROR test.default] error"), logAll("test.default"));
+
+        var log = CompilerLogger.get("test.default");
+        assertFalse(log.isDebugEnabled());
+        assertFalse(log.isTraceEnabled());
+        assertTrue(log.isEnabled(CompilerLogger.Level.WARN));
+    }
+
+    @Test
+    public void categoryLevels() {
+        CompilerLogger.configure("test=info,test.category.sub=trace");
+
+        assertEquals(List.of("[INFO test.category] info", "[WARN test.category] warn 1",
+                "[ERROR test.category] error"), logAll("test.category"));
+        assertEquals(5, logAll("test.category.sub").size());
+        assertEquals("[TRACE test.category.sub] trace 1 2 3", logAll("test.category.sub").get(0));
+        assertEquals("[DEBUG test.category.sub] debug 1 2", logAll("test.category.sub").get(1));
+        // Categories that are not configured keep the default level
+        assertEquals(2, logAll("other").size());
+    }
+
+    @Test
+    public void offAndEmptySpec() {
+        CompilerLogger.configure("off");
+        assertEquals(List.of(), logAll("test.off"));
+
+        CompilerLogger.configure("");
+        assertEquals(2, logAll("test.off").size());
+    }
+}
@@ -0,0 +1,368 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of configurable size, for scaling tests and benchmarks.
+ * <p>
+ * The same seed and settings always generate the same program. Programs are well-typed: every variable is declared,
+ * expressions have the type expected by their context and calls match the signature of the called method. Loops
+ * always terminate, each one has its own counter, and methods only call the methods declared before them, so there
+ * is no recursion.
+ *
+ * <pre>
+ * var code = new JmmProgramGenerator(42).methods(10).statements(1000).generate();
+ * </pre>
+ */
+public class JmmProgramGenerator {
+
+    private static final String CLASS_NAME = "Generated";
+    private static final String INDENT = "    ";
+
+    private final long seed;
+
+    private int fields = 4;
+    private int methods = 4;
+    private int statements = 20;
+    private int expressionDepth = 3;
+    private int nestingDepth = 2;
+
+    // Generation state
+    private Random random;
+    private StringBuilder code;
+    private List<Signature> signatures;
+    private List<Signature> callees;
+    private int loopCounters;
+
+    public JmmProgramGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Number of fields of the class, half of them int and half boolean.
+     */
+    public JmmProgramGenerator fields(int fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * Number of methods, besides main.
+     */
+    public JmmProgramGenerator methods(int methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    /**
+     * Number of top-level statements in each method.
+     */
+    public JmmProgramGenerator statements(int statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    /**
+     * Maximum nesting of binary operations and calls in an expression.
+     */
+    public JmmProgramGenerator expressionDepth(int expressionDepth) {
+        this.expressionDepth = expressionDepth;
+        return this;
+    }
+
+    /**
+     * Maximum nesting of if and while statements.
+     */
+    public JmmProgramGenerator nestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    public String generate() {
+        random = new Random(seed);
+        code = new StringBuilder();
+        signatures = new ArrayList<>();
+        loopCounters = 0;
+
+        for (int i = 0; i < methods; i++) {
+            signatures.add(randomSignature("m" + i));
+        }
+
+        code.append("import io;\n\n");
+        code.append("class ").append(CLASS_NAME).append(" {\n");
+
+        for (int i = 0; i < fields; i++) {
+            line(1, (isIntField(i) ? "int" : "boolean") + " f" + i + ";");
+        }
+
+        for (int i = 0; i < signatures.size(); i++) {
+            callees = signatures.subList(0, i);
+            generateMethod(signatures.get(i));
+        }
+
+        generateMain();
+
+        code.append("}\n");
+        return code.toString();
+    }
+
+    private Signature randomSignature(String name) {
+        var returnType = random.nextBoolean() ? VarType.INT : VarType.BOOLEAN;
+        var params = new ArrayList<VarType>();
+        int numParams = random.nextInt(4);
+        for (int i = 0; i < numParams; i++) {
+            params.add(VarType.values()[random.nextInt(VarType.values().length)]);
+        }
+        return new Signature(name, returnType, params);
+    }
+
+    private void generateMethod(Signature signature) {
+        var scope = new Scope(false);
+
+        var header = new StringBuilder();
+        header.append("public ").append(signature.returnType.jmm).append(" ").append(signature.name).append("(");
+        for (int i = 0; i < signature.params.size(); i++) {
+            var name = "p" + i;
+            header.append(i > 0 ? ", " : "").append(signature.params.get(i).jmm).append(" ").append(name);
+            scope.add(signature.params.get(i), name);
+        }
+        header.append(") {");
+        line(1, header.toString());
+
+        declareLocals(scope);
+
+        // Loop counters are declared up front, Java-- has no declarations inside blocks
+        int firstCounter = loopCounters;
+        var body = new StringBuilder();
+        var previousCode = code;
+        code = body;
+
+        initLocals(scope);
+        for (int i = 0; i < statements; i++) {
+            generateStatement(2, 0, scope);
+        }
+        line(2, "return " + expression(signature.returnType, expressionDepth, scope) + ";");
+
+        code = previousCode;
+        for (int i = firstCounter; i < loopCounters; i++) {
+            line(2, "int w" + i + ";");
+        }
+        code.append(body);
+        line(1, "}");
+    }
+
+    /**
+     * Locals of each type, so every kind of expression has variables to use.
+     */
+    private void declareLocals(Scope scope) {
+        for (var type : VarType.values()) {
+            for (int i = 0; i < 2; i++) {
+                var name = type.prefix + i;
+                line(2, type.jmm + " " + name + ";");
+                scope.add(type, name);
+            }
+        }
+    }
+
+    private void initLocals(Scope scope) {
+        for (var type : VarType.values()) {
+            for (int i = 0; i < 2; i++) {
+                line(2, type.prefix + i + " = " + initialValue(type) + ";");
+            }
+        }
+    }
+
+    private void generateMain() {
+        var scope = new Scope(true);
+        callees = signatures;
+        line(1, "public static void main(String[] args) {");
+        declareLocals(scope);
+        line(2, CLASS_NAME + " g;");
+        initLocals(scope);
+        line(2, "g = new " + CLASS_NAME + "();");
+
+        for (var signature : signatures) {
+            if (signature.returnType == VarType.INT) {
+                line(2, "io.println(" + call("g", signature, scope) + ");");
+            } else {
+                line(2, call("g", signature, scope) + ";");
+            }
+        }
+
+        line(1, "}");
+    }
+
+    private void generateStatement(int indent, int nesting, Scope scope) {
+        int choice = random.nextInt(nesting < nestingDepth ? 7 : 5);
+
+        switch (choice) {
+            case 0, 1 -> {
+                var name = scope.random(VarType.INT, random);
+                line(indent, name + " = " + expression(VarType.INT, expressionDepth, scope) + ";");
+            }
+            case 2 -> {
+                var name = scope.random(VarType.BOOLEAN, random);
+                line(indent, name + " = " + expression(VarType.BOOLEAN, expressionDepth, scope) + ";");
+            }
+            case 3 -> {
+                var array = scope.random(VarType.INT_ARRAY, random);
+                line(indent, array + "[" + random.nextInt(8) + "] = " + expression(VarType.INT, expressionDepth, scope)
+                        + ";");
+            }
+            case 4 -> {
+                boolean canCall = !callees.isEmpty() && !scope.isStatic;
+                if (canCall && (fields == 0 || random.nextBoolean())) {
+                    var signature = callees.get(random.nextInt(callees.size()));
+                    line(indent, call("this", signature, scope) + ";");
+                } else if (fields > 0 && !scope.isStatic) {
+                    int field = random.nextInt(fields);
+                    var type = isIntField(field) ? VarType.INT : VarType.BOOLEAN;
+                    line(indent, "f" + field + " = " + expression(type, expressionDepth, scope) + ";");
+                } else {
+                    line(indent, scope.random(VarType.INT, random) + " = 0;");
+                }
+            }
+            case 5 -> {
+                line(indent, "if (" + expression(VarType.BOOLEAN, expressionDepth, scope) + ") {");
+                generateStatement(indent + 1, nesting + 1, scope);
+                line(indent, "} else {");
+                generateStatement(indent + 1, nesting + 1, scope);
+                line(indent, "}");
+            }
+            default -> {
+                var counter = "w" + loopCounters++;
+                line(indent, counter + " = 0;");
+                line(indent, "while (" + counter + " < " + (1 + random.nextInt(10)) + ") {");
+                generateStatement(indent + 1, nesting + 1, scope);
+                line(indent + 1, counter + " = " + counter + " + 1;");
+                line(indent, "}");
+            }
+        }
+    }
+
+    private String initialValue(VarType type) {
+        return switch (type) {
+            case INT -> String.valueOf(random.nextInt(100));
+            case BOOLEAN -> random.nextBoolean() ? "true" : "false";
+            case INT_ARRAY -> "new int[8]";
+        };
+    }
+
+    /**
+     * Builds an expression of the given type. One operand of each operation is a leaf, so the size of the expression
+     * grows linearly with its depth.
+     */
+    private String expression(VarType type, int depth, Scope scope) {
+        if (depth <= 0 || random.nextInt(4) == 0) {
+            return leaf(type, scope);
+        }
+
+        if (type == VarType.INT) {
+            int choice = random.nextInt(6);
+            if (choice == 5 && !scope.isStatic) {
+                var intCallees = callees.stream().filter(s -> s.returnType == VarType.INT).toList();
+                if (!intCallees.isEmpty()) {
+                    var callee = intCallees.get(random.nextInt(intCallees.size()));
+                    return call("this", callee, scope, depth - 1);
+                }
+            }
+
+            var op = new String[]{"+", "-", "*"}[random.nextInt(3)];
+            var nested = "(" + expression(VarType.INT, depth - 1, scope) + ")";
+            var leaf = leaf(VarType.INT, scope);
+            return random.nextBoolean() ? nested + " " + op + " " + leaf : leaf + " " + op + " " + nested;
+        }
+
+        if (type == VarType.BOOLEAN) {
+            return switch (random.nextInt(3)) {
+                case 0 -> "!(" + expression(VarType.BOOLEAN, depth - 1, scope) + ")";
+                case 1 -> "(" + expression(VarType.BOOLEAN, depth - 1, scope) + ") && " + leaf(VarType.BOOLEAN, scope);
+                default -> "(" + expression(VarType.INT, depth - 1, scope) + ") < " + leaf(VarType.INT, scope);
+            };
+        }
+
+        return leaf(type, scope);
+    }
+
+    private String leaf(VarType type, Scope scope) {
+        switch (type) {
+            case INT:
+                return switch (random.nextInt(4)) {
+                    case 0 -> String.valueOf(random.nextInt(100));
+                    case 1 -> scope.random(VarType.INT_ARRAY, random) + ".length";
+                    case 2 -> scope.random(VarType.INT_ARRAY, random) + "[" + random.nextInt(8) + "]";
+                    default -> scope.random(VarType.INT, random);
+                };
+            case BOOLEAN:
+                return random.nextInt(3) == 0 ? String.valueOf(random.nextBoolean())
+                        : scope.random(VarType.BOOLEAN, random);
+            default:
+                return scope.random(VarType.INT_ARRAY, random);
+        }
+    }
+
+    private String call(String target, Signature signature, Scope scope) {
+        return call(target, signature, scope, 0);
+    }
+
+    private String call(String target, Signature signature, Scope scope, int argumentDepth) {
+        var call = new StringBuilder();
+        call.append(target).append(".").append(signature.name).append("(");
+        for (int i = 0; i < signature.params.size(); i++) {
+            call.append(i > 0 ? ", " : "").append(expression(signature.params.get(i), argumentDepth, scope));
+        }
+        return call.append(")").toString();
+    }
+
+    private static boolean isIntField(int field) {
+        return field % 2 == 0;
+    }
+
+    private void line(int indent, String text) {
+        code.append(INDENT.repeat(indent)).append(text).append("\n");
+    }
+
+    private enum VarType {
+        INT("int", "i"),
+        BOOLEAN("boolean", "b"),
+        INT_ARRAY("int[]", "a");
+
+        private final String jmm;
+        private final String prefix;
+
+        VarType(String jmm, String prefix) {
+            this.jmm = jmm;
+            this.prefix = prefix;
+        }
+    }
+
+    private record Signature(String name, VarType returnType, List<VarType> params) {
+    }
+
+    /**
+     * Variables visible in the method being generated, by type.
+     */
+    private static class Scope {
+
+        private final boolean isStatic;
+        private final List<List<String>> variables = new ArrayList<>();
+
+        private Scope(boolean isStatic) {
+            this.isStatic = isStatic;
+            for (int i = 0; i < VarType.values().length; i++) {
+                variables.add(new ArrayList<>());
+            }
+        }
+
+        private void add(VarType type, String name) {
+            variables.get(type.ordinal()).add(name);
+        }
+
+        private String random(VarType type, Random random) {
+            var candidates = variables.get(type.ordinal());
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+    }
+}